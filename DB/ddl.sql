@@ -10,6 +10,8 @@ create table user
     password     varchar(100) not null,
     biography    text         null,
     phone_number varchar(10)  not null,
+    -- 追蹤者數（反正規化），由追蹤與取消追蹤存儲過程維護，用於判斷動態分發方式
+    follower_count int       default 0 not null,
     constraint user_pk_2
         unique (user_name),
     constraint user_pk_4
@@ -24,6 +26,8 @@ create table post
     user_id    bigint                              not null,
     content    varchar(5000)                       not null,
     created_at timestamp default CURRENT_TIMESTAMP null,
+    -- 留言數（反正規化），由留言的新增與刪除存儲過程維護
+    comment_count int       default 0                 not null,
     constraint post_user_user_id_fk
         foreign key (user_id) references user (user_id)
             on delete cascade
@@ -46,3 +50,38 @@ create table comment
         foreign key (user_id) references user (user_id)
             on delete cascade
 );
+
+-- 建立追蹤關係資料表
+create table follow
+(
+    follower_id bigint                              not null,
+    followee_id bigint                              not null,
+    created_at  timestamp default CURRENT_TIMESTAMP null,
+    primary key (follower_id, followee_id),
+    constraint follow_follower_user_id_fk
+        foreign key (follower_id) references user (user_id)
+            on delete cascade,
+    constraint follow_followee_user_id_fk
+        foreign key (followee_id) references user (user_id)
+            on delete cascade
+);
+
+-- 依被追蹤者查詢追蹤者（發文時分發至追蹤者的動態）
+create index follow_followee_id_follower_id_index
+    on follow (followee_id, follower_id);
+
+-- 留言依發文ID批次查詢並依時間排序
+create index comment_post_id_created_at_index
+    on comment (post_id, created_at);
+
+-- 發文 Keyset 分頁
+create index post_created_at_post_id_index
+    on post (created_at, post_id);
+
+-- 個人頁面依使用者 Keyset 分頁，以索引範圍掃描取代全表掃描
+create index post_user_id_created_at_post_id_index
+    on post (user_id, created_at, post_id);
+
+-- 首頁動態依使用者以發文ID倒序讀取（同時作為外鍵索引）
+create index post_user_id_post_id_index
+    on post (user_id, post_id);
@@ -7,6 +7,7 @@
 
 -- 插入測試使用者資料
 -- 要求：Password 密碼請加鹽(salt)並經雜湊(Hash)後儲存，避免明碼外洩 - 使用SHA2加鹽雜湊
+-- 此為舊版雜湊格式，登入成功時後端會重新以 BCrypt 雜湊後更新
 INSERT INTO user (user_name, email, password, phone_number, biography) VALUES
 ('Alice_Chen', 'alice.chen@gmail.com', SHA2(CONCAT('password123', 'salt123'), 256), '0911111111', '喜歡攝影和旅行的軟體工程師 📸✈️'),
 ('Bob_Wang', 'bob.wang@hotmail.com', SHA2(CONCAT('securepass456', 'salt123'), 256), '0922222222', '美食愛好者，專業廚師 🍳👨‍🍳'),
@@ -155,3 +156,24 @@ INSERT INTO comment (user_id, post_id, content) VALUES
 (1, 22, '手沖咖啡的技巧學習了！'),
 (2, 22, '水溫控制原來這麼重要'),
 (4, 22, '細節決定好咖啡，專業知識分享讚');
+
+-- 以測試留言資料初始化發文的留言數
+UPDATE post p
+SET p.comment_count = (SELECT COUNT(*) FROM comment c WHERE c.post_id = p.post_id);
+
+-- 插入測試追蹤關係
+INSERT INTO follow (follower_id, followee_id) VALUES
+(1, 2), (1, 3), (1, 6), (1, 10),
+(2, 1), (2, 10),
+(3, 1), (3, 8),
+(4, 5), (4, 10),
+(5, 4), (5, 9),
+(6, 1), (6, 4),
+(7, 8), (7, 10),
+(8, 3), (8, 7),
+(9, 5), (9, 10),
+(10, 1), (10, 9);
+
+-- 以測試追蹤資料初始化使用者的追蹤者數
+UPDATE user u
+SET u.follower_count = (SELECT COUNT(*) FROM follow f WHERE f.followee_id = u.user_id);
@@ -1,18 +1,23 @@
 DELIMITER $$
 
--- 建立使用者
+-- 建立使用者，返回新建立的使用者（p_password_hash 為應用程式計算的 BCrypt 雜湊）
 CREATE PROCEDURE sp_create_user (
     IN p_user_name VARCHAR(15),
     IN p_email VARCHAR(100),
-    IN p_password VARCHAR(100),
-    IN p_phone_number VARCHAR(10)
+    IN p_password_hash VARCHAR(100),
+    IN p_phone_number VARCHAR(10),
+    IN p_biography TEXT
 )
 BEGIN
-    INSERT INTO user (user_name, email, password, phone_number)
-    VALUES (p_user_name, p_email, SHA2(CONCAT(p_password, 'salt123'), 256), p_phone_number);
+    INSERT INTO user (user_name, email, password, phone_number, biography)
+    VALUES (p_user_name, p_email, p_password_hash, p_phone_number, p_biography);
+
+    SELECT user_id, user_name, email, biography
+    FROM user
+    WHERE user_id = LAST_INSERT_ID();
 END$$
 
--- 建立貼文
+-- 建立貼文，返回新建立的貼文
 CREATE PROCEDURE sp_create_post (
     IN p_user_id BIGINT,
     IN p_content VARCHAR(5000)
@@ -20,30 +25,97 @@ CREATE PROCEDURE sp_create_post (
 BEGIN
     INSERT INTO post (user_id, content)
     VALUES (p_user_id, p_content);
+
+    SELECT p.*, u.user_name
+    FROM post p
+    JOIN user u ON p.user_id = u.user_id
+    WHERE p.post_id = LAST_INSERT_ID();
 END$$
 
--- 建立留言
+-- 建立留言，返回新建立的留言
 CREATE PROCEDURE sp_create_comment (
     IN p_user_id BIGINT,
     IN p_post_id BIGINT,
     IN p_content VARCHAR(255)
 )
 BEGIN
+    DECLARE v_comment_id BIGINT;
+
     START TRANSACTION;
     INSERT INTO comment (user_id, post_id, content)
     VALUES (p_user_id, p_post_id, p_content);
+    SET v_comment_id = LAST_INSERT_ID();
+    UPDATE post
+    SET comment_count = comment_count + 1
+    WHERE post_id = p_post_id;
     COMMIT;
+
+    SELECT c.*, u.user_name
+    FROM comment c
+    JOIN user u ON c.user_id = u.user_id
+    WHERE c.comment_id = v_comment_id;
 END$$
 
--- 用戶登入驗證
-CREATE PROCEDURE sp_user_login (
-    IN p_phone_number VARCHAR(10),
-    IN p_password VARCHAR(100)
+-- 新增留言（不自行開啟交易，由呼叫端批次寫入時在同一個交易中提交）
+CREATE PROCEDURE sp_insert_comment (
+    IN p_user_id BIGINT,
+    IN p_post_id BIGINT,
+    IN p_content VARCHAR(255)
 )
 BEGIN
-    SELECT user_id, user_name, email, biography
+    INSERT INTO comment (user_id, post_id, content)
+    VALUES (p_user_id, p_post_id, p_content);
+    UPDATE post
+    SET comment_count = comment_count + 1
+    WHERE post_id = p_post_id;
+END$$
+
+-- 刪除留言（僅限留言者本人），返回留言所屬的發文ID，未刪除時 deleted 為 0
+CREATE PROCEDURE sp_delete_comment (
+    IN p_comment_id BIGINT,
+    IN p_user_id BIGINT
+)
+BEGIN
+    DECLARE v_post_id BIGINT DEFAULT NULL;
+    DECLARE v_deleted INT DEFAULT 0;
+
+    START TRANSACTION;
+    SELECT post_id INTO v_post_id
+    FROM comment
+    WHERE comment_id = p_comment_id AND user_id = p_user_id
+    FOR UPDATE;
+
+    IF v_post_id IS NOT NULL THEN
+        DELETE FROM comment WHERE comment_id = p_comment_id;
+        SET v_deleted = ROW_COUNT();
+        UPDATE post
+        SET comment_count = comment_count - v_deleted
+        WHERE post_id = v_post_id;
+    END IF;
+    COMMIT;
+
+    SELECT v_deleted AS deleted, v_post_id AS post_id;
+END$$
+
+-- 依手機號碼獲取登入所需的使用者資料與密碼雜湊，由應用程式比對密碼
+CREATE PROCEDURE sp_get_user_credentials (
+    IN p_phone_number VARCHAR(10)
+)
+BEGIN
+    SELECT user_id, user_name, email, biography, password
     FROM user
-    WHERE phone_number = p_phone_number AND password = SHA2(CONCAT(p_password, 'salt123'), 256);
+    WHERE phone_number = p_phone_number;
+END$$
+
+-- 更新密碼雜湊（舊版雜湊於登入成功後改存為 BCrypt）
+CREATE PROCEDURE sp_update_user_password (
+    IN p_user_id BIGINT,
+    IN p_password_hash VARCHAR(100)
+)
+BEGIN
+    UPDATE user
+    SET password = p_password_hash
+    WHERE user_id = p_user_id;
 END$$
 
 -- 獲取所有發文
@@ -55,16 +127,102 @@ BEGIN
     ORDER BY p.created_at DESC;
 END$$
 
--- 獲取特定發文的留言
+-- 以 Keyset 分頁獲取發文（依 created_at, post_id 由新到舊，搭配 post_created_at_post_id_index）
+CREATE PROCEDURE sp_get_feed_page (
+    IN p_before_created_at TIMESTAMP,
+    IN p_before_post_id BIGINT,
+    IN p_limit INT
+)
+BEGIN
+    IF p_before_created_at IS NULL THEN
+        SELECT p.*, u.user_name
+        FROM post p
+        JOIN user u ON p.user_id = u.user_id
+        ORDER BY p.created_at DESC, p.post_id DESC
+        LIMIT p_limit;
+    ELSE
+        SELECT p.*, u.user_name
+        FROM post p
+        JOIN user u ON p.user_id = u.user_id
+        WHERE p.created_at < p_before_created_at
+           OR (p.created_at = p_before_created_at AND p.post_id < p_before_post_id)
+        ORDER BY p.created_at DESC, p.post_id DESC
+        LIMIT p_limit;
+    END IF;
+END$$
+
+-- 以 Keyset 分頁獲取特定使用者的發文（依 created_at、post_id 由新到舊）
+CREATE PROCEDURE sp_get_user_posts_page (
+    IN p_user_id BIGINT,
+    IN p_before_created_at TIMESTAMP,
+    IN p_before_post_id BIGINT,
+    IN p_limit INT
+)
+BEGIN
+    IF p_before_created_at IS NULL THEN
+        SELECT p.*, u.user_name
+        FROM post p
+        JOIN user u ON p.user_id = u.user_id
+        WHERE p.user_id = p_user_id
+        ORDER BY p.created_at DESC, p.post_id DESC
+        LIMIT p_limit;
+    ELSE
+        SELECT p.*, u.user_name
+        FROM post p
+        JOIN user u ON p.user_id = u.user_id
+        WHERE p.user_id = p_user_id
+          AND (p.created_at < p_before_created_at
+           OR (p.created_at = p_before_created_at AND p.post_id < p_before_post_id))
+        ORDER BY p.created_at DESC, p.post_id DESC
+        LIMIT p_limit;
+    END IF;
+END$$
+
+-- 以 Keyset 分頁獲取特定發文的留言（依 created_at, comment_id 由舊到新）
 CREATE PROCEDURE sp_get_post_comments (
-    IN p_post_id BIGINT
+    IN p_post_id BIGINT,
+    IN p_after_created_at TIMESTAMP,
+    IN p_after_comment_id BIGINT,
+    IN p_limit INT
+)
+BEGIN
+    IF p_after_created_at IS NULL THEN
+        SELECT c.*, u.user_name
+        FROM comment c
+        JOIN user u ON c.user_id = u.user_id
+        WHERE c.post_id = p_post_id
+        ORDER BY c.created_at ASC, c.comment_id ASC
+        LIMIT p_limit;
+    ELSE
+        SELECT c.*, u.user_name
+        FROM comment c
+        JOIN user u ON c.user_id = u.user_id
+        WHERE c.post_id = p_post_id
+          AND (c.created_at > p_after_created_at
+           OR (c.created_at = p_after_created_at AND c.comment_id > p_after_comment_id))
+        ORDER BY c.created_at ASC, c.comment_id ASC
+        LIMIT p_limit;
+    END IF;
+END$$
+
+-- 批次獲取多篇發文最新的 N 筆留言預覽（p_post_ids 為 JSON 陣列，例如 [1,2,3]）
+-- 以 LATERAL 子查詢逐篇走 comment_post_id_created_at_index，每篇只讀取 N 筆（需 MySQL 8.0.14+）
+CREATE PROCEDURE sp_get_comment_previews (
+    IN p_post_ids JSON,
+    IN p_limit INT
 )
 BEGIN
     SELECT c.*, u.user_name
-    FROM comment c
+    FROM JSON_TABLE(p_post_ids, '$[*]' COLUMNS (post_id BIGINT PATH '$')) ids
+    JOIN LATERAL (
+        SELECT *
+        FROM comment
+        WHERE comment.post_id = ids.post_id
+        ORDER BY comment.created_at DESC, comment.comment_id DESC
+        LIMIT p_limit
+    ) c ON TRUE
     JOIN user u ON c.user_id = u.user_id
-    WHERE c.post_id = p_post_id
-    ORDER BY c.created_at ASC;
+    ORDER BY c.post_id, c.created_at ASC, c.comment_id ASC;
 END$$
 
 -- 編輯發文
@@ -113,4 +271,117 @@ BEGIN
     WHERE user_id = p_user_id;
 END$$
 
-DELIMITER ;
\ No newline at end of file
+-- 追蹤使用者，已追蹤時不重複建立，返回是否新建立追蹤關係
+-- 要求：需同時異動多個資料表時，請實作Transaction，避免資料錯亂
+CREATE PROCEDURE sp_follow_user (
+    IN p_follower_id BIGINT,
+    IN p_followee_id BIGINT
+)
+BEGIN
+    DECLARE v_followed INT DEFAULT 0;
+
+    START TRANSACTION;
+    INSERT IGNORE INTO follow (follower_id, followee_id)
+    VALUES (p_follower_id, p_followee_id);
+    SET v_followed = ROW_COUNT();
+    IF v_followed > 0 THEN
+        UPDATE user
+        SET follower_count = follower_count + 1
+        WHERE user_id = p_followee_id;
+    END IF;
+    COMMIT;
+
+    SELECT v_followed AS followed;
+END$$
+
+-- 取消追蹤使用者，返回是否刪除了追蹤關係
+-- 要求：需同時異動多個資料表時，請實作Transaction，避免資料錯亂
+CREATE PROCEDURE sp_unfollow_user (
+    IN p_follower_id BIGINT,
+    IN p_followee_id BIGINT
+)
+BEGIN
+    DECLARE v_unfollowed INT DEFAULT 0;
+
+    START TRANSACTION;
+    DELETE FROM follow
+    WHERE follower_id = p_follower_id AND followee_id = p_followee_id;
+    SET v_unfollowed = ROW_COUNT();
+    IF v_unfollowed > 0 THEN
+        UPDATE user
+        SET follower_count = follower_count - 1
+        WHERE user_id = p_followee_id;
+    END IF;
+    COMMIT;
+
+    SELECT v_unfollowed AS unfollowed;
+END$$
+
+-- 獲取追蹤者ID，最多返回 p_limit 筆
+CREATE PROCEDURE sp_get_follower_ids (
+    IN p_followee_id BIGINT,
+    IN p_limit INT
+)
+BEGIN
+    SELECT follower_id
+    FROM follow
+    WHERE followee_id = p_followee_id
+    LIMIT p_limit;
+END$$
+
+-- 獲取使用者的追蹤者數
+CREATE PROCEDURE sp_get_follower_count (
+    IN p_user_id BIGINT
+)
+BEGIN
+    SELECT follower_count
+    FROM user
+    WHERE user_id = p_user_id;
+END$$
+
+-- 獲取使用者追蹤的對象及其追蹤者數
+CREATE PROCEDURE sp_get_followees (
+    IN p_follower_id BIGINT
+)
+BEGIN
+    SELECT f.followee_id, u.follower_count
+    FROM follow f
+    JOIN user u ON f.followee_id = u.user_id
+    WHERE f.follower_id = p_follower_id;
+END$$
+
+-- 獲取多位使用者發文ID早於 p_before_post_id 的最新發文ID（依發文ID由新到舊）
+-- 以 JSON 陣列傳入使用者ID，每位使用者各自以索引讀取至多 p_limit 筆後再合併
+CREATE PROCEDURE sp_get_users_post_ids (
+    IN p_user_ids JSON,
+    IN p_before_post_id BIGINT,
+    IN p_limit INT
+)
+BEGIN
+    SELECT p.post_id
+    FROM JSON_TABLE(p_user_ids, '$[*]' COLUMNS (user_id BIGINT PATH '$')) ids
+    JOIN LATERAL (
+        SELECT post.post_id
+        FROM post
+        WHERE post.user_id = ids.user_id
+          AND (p_before_post_id IS NULL OR post.post_id < p_before_post_id)
+        ORDER BY post.post_id DESC
+        LIMIT p_limit
+    ) p ON TRUE
+    ORDER BY p.post_id DESC
+    LIMIT p_limit;
+END$$
+
+-- 依發文ID批次獲取發文（依發文ID由新到舊），已刪除的發文不會返回
+CREATE PROCEDURE sp_get_posts_by_ids (
+    IN p_post_ids JSON
+)
+BEGIN
+    SELECT p.*, u.user_name
+    FROM JSON_TABLE(p_post_ids, '$[*]' COLUMNS (post_id BIGINT PATH '$')) ids
+    JOIN post p ON p.post_id = ids.post_id
+    JOIN user u ON p.user_id = u.user_id
+    ORDER BY p.post_id DESC;
+END$$
+
+DELIMITER ;
@@ -1,33 +1,101 @@
 import { defineStore } from 'pinia'
 import axios from 'axios'
 
+const PAGE_SIZE = 20
+// 與後端 feed.comment-preview-size 相同
+const COMMENT_PREVIEW_SIZE = 3
+
+// 即時推送連線不放入 state，避免被轉為響應式物件
+let eventSource = null
+const FEED_EVENT_TYPES = ['POST_CREATED', 'POST_UPDATED', 'POST_DELETED', 'COMMENT_CREATED', 'COMMENT_DELETED']
+
 export const usePostsStore = defineStore('posts', {
   state: () => ({
     posts: [],
+    nextCursor: null,
+    hasMore: true,
+    // 依發文ID保存已展開的完整留言分頁 { comments, nextCursor }
+    commentThreads: {},
     isLoading: false,
+    isLoadingMore: false,
+    // 即時推送連線中時，寫入後不重新載入列表，改由增量事件更新
+    streamConnected: false,
     error: null
   }),
   
   actions: {
+    // 重新載入第一頁
     async fetchPosts() {
       this.isLoading = true
       this.error = null
       try {
-        const response = await axios.get('/api/post/list')
-        if (response.data.success) {
-          this.posts = response.data.data || []
-        } else {
-          this.posts = []
-        }
+        const page = await this.fetchFeedPage(null)
+        this.posts = page.posts
+        this.nextCursor = page.nextCursor
+        this.hasMore = !!page.nextCursor
         return this.posts
       } catch (error) {
         this.error = error.response?.data?.message || 'Failed to fetch posts'
         this.posts = []
+        this.nextCursor = null
+        this.hasMore = false
         throw error
       } finally {
         this.isLoading = false
       }
     },
+
+    // 無限捲動：以游標載入下一頁並附加到列表尾端
+    async fetchMorePosts() {
+      if (!this.hasMore || this.isLoading || this.isLoadingMore) {
+        return
+      }
+      this.isLoadingMore = true
+      this.error = null
+      try {
+        const page = await this.fetchFeedPage(this.nextCursor)
+        const existingIds = new Set(this.posts.map(post => post.postId))
+        this.posts.push(...page.posts.filter(post => !existingIds.has(post.postId)))
+        this.nextCursor = page.nextCursor
+        this.hasMore = !!page.nextCursor
+      } catch (error) {
+        this.error = error.response?.data?.message || 'Failed to fetch posts'
+        throw error
+      } finally {
+        this.isLoadingMore = false
+      }
+    },
+
+    async fetchFeedPage(cursor) {
+      const params = { limit: PAGE_SIZE }
+      if (cursor) {
+        params.before = cursor
+      }
+      const response = await axios.get('/api/post/feed', { params })
+      if (response.data.success && response.data.data) {
+        return {
+          posts: response.data.data.posts || [],
+          nextCursor: response.data.data.nextCursor
+        }
+      }
+      return { posts: [], nextCursor: null }
+    },
+    
+    // 個人頁面：以游標分頁載入特定使用者的發文，不影響動態列表
+    async fetchUserPosts(userId, cursor = null) {
+      const params = { limit: PAGE_SIZE }
+      if (cursor) {
+        params.before = cursor
+      }
+      const response = await axios.get(`/api/post/user/${userId}`, { params })
+      if (response.data.success && response.data.data) {
+        return {
+          posts: response.data.data.posts || [],
+          nextCursor: response.data.data.nextCursor
+        }
+      }
+      return { posts: [], nextCursor: null }
+    },
     
     async createPost(content) {
       this.isLoading = true
@@ -37,9 +105,9 @@ export const usePostsStore = defineStore('posts', {
           content: content
         })
         
-        // Add the new post to our posts array
-        if (response.data.success && response.data.data) {
-          await this.fetchPosts() // Refresh posts to get the latest data
+        // 推送連線中斷時才重新載入，否則由 POST_CREATED 事件加入列表
+        if (response.data.success && response.data.data && !this.streamConnected) {
+          await this.fetchPosts()
         }
         return response.data
       } catch (error) {
@@ -59,8 +127,8 @@ export const usePostsStore = defineStore('posts', {
           content: content
         })
         
-        // Refresh posts to get the latest data
-        if (response.data.success) {
+        // 推送連線中斷時才重新載入，否則由 POST_UPDATED 事件更新
+        if (response.data.success && !this.streamConnected) {
           await this.fetchPosts()
         }
         
@@ -79,8 +147,8 @@ export const usePostsStore = defineStore('posts', {
       try {
         const response = await axios.delete(`/api/post/delete/${postId}`)
         
-        // Refresh posts to get the latest data
-        if (response.data.success) {
+        // 推送連線中斷時才重新載入，否則由 POST_DELETED 事件移除
+        if (response.data.success && !this.streamConnected) {
           await this.fetchPosts()
         }
         
@@ -95,20 +163,127 @@ export const usePostsStore = defineStore('posts', {
     
     async addComment(postId, content) {
       try {
-        const response = await axios.post('/api/comment/create', {
+        const response = await axios.post('/api/comments/create', {
           postId: postId,
           content: content
         })
         
-        // Refresh posts to get the latest data with comments
-        if (response.data.success) {
+        // 推送連線中斷時才重新載入，否則由 COMMENT_CREATED 事件更新
+        if (response.data.success && !this.streamConnected) {
           await this.fetchPosts()
+          if (this.commentThreads[postId]) {
+            await this.fetchComments(postId)
+          }
         }
         
         return response.data
       } catch (error) {
         throw error.response?.data?.message || 'Failed to add comment'
       }
+    },
+
+    // 訂閱發文與留言的即時增量事件，EventSource 斷線後會自動重新連線
+    connectStream() {
+      if (eventSource) {
+        return
+      }
+      const user = JSON.parse(localStorage.getItem('user'))
+      if (!user || !user.token) {
+        return
+      }
+      // EventSource 無法設定 Authorization 標頭，令牌改由查詢參數帶入
+      const url = `${axios.defaults.baseURL}/api/post/stream?access_token=${encodeURIComponent(user.token)}`
+      eventSource = new EventSource(url)
+      let opened = false
+      eventSource.onopen = () => {
+        this.streamConnected = true
+        // 重新連線代表中斷期間可能遺漏事件，重新載入第一頁
+        if (opened) {
+          this.fetchPosts().catch(() => {})
+        }
+        opened = true
+      }
+      eventSource.onerror = () => {
+        this.streamConnected = false
+      }
+      FEED_EVENT_TYPES.forEach(type => {
+        eventSource.addEventListener(type, message => {
+          this.applyFeedEvent(JSON.parse(message.data))
+        })
+      })
+    },
+
+    disconnectStream() {
+      if (eventSource) {
+        eventSource.close()
+        eventSource = null
+      }
+      this.streamConnected = false
+    },
+
+    // 套用伺服器推送的增量事件，只更新受影響的發文
+    applyFeedEvent(event) {
+      const post = this.posts.find(item => item.postId === event.postId)
+      switch (event.type) {
+        case 'POST_CREATED':
+          if (!post && event.post) {
+            this.posts.unshift({ ...event.post, comments: event.post.comments || [] })
+          }
+          break
+        case 'POST_UPDATED':
+          if (post) {
+            post.content = event.content
+          }
+          break
+        case 'POST_DELETED':
+          this.posts = this.posts.filter(item => item.postId !== event.postId)
+          delete this.commentThreads[event.postId]
+          break
+        case 'COMMENT_CREATED': {
+          if (!post || !event.comment) {
+            break
+          }
+          const comment = { ...event.comment, createdAt: event.comment.createdAt || Date.now() }
+          post.commentCount = (post.commentCount || 0) + 1
+          post.comments = [...(post.comments || []), comment].slice(-COMMENT_PREVIEW_SIZE)
+          // 已展開且已載入到最後一頁時才附加，否則由「載入更多」取得
+          const thread = this.commentThreads[event.postId]
+          if (thread && !thread.nextCursor) {
+            thread.comments.push(comment)
+          }
+          break
+        }
+        case 'COMMENT_DELETED': {
+          if (!post) {
+            break
+          }
+          post.commentCount = Math.max((post.commentCount || 0) - 1, 0)
+          post.comments = (post.comments || []).filter(item => item.commentId !== event.commentId)
+          const thread = this.commentThreads[event.postId]
+          if (thread) {
+            thread.comments = thread.comments.filter(item => item.commentId !== event.commentId)
+          }
+          break
+        }
+      }
+    },
+
+    // 展開完整留言：以游標分頁載入，cursor 為空時從第一頁重新載入
+    async fetchComments(postId, cursor = null) {
+      const params = { limit: PAGE_SIZE }
+      if (cursor) {
+        params.after = cursor
+      }
+      const response = await axios.get(`/api/comments/list/${postId}`, { params })
+      if (!response.data.success || !response.data.data) {
+        return
+      }
+      const page = response.data.data
+      const existing = cursor ? this.commentThreads[postId]?.comments || [] : []
+      this.commentThreads[postId] = {
+        comments: [...existing, ...(page.comments || [])],
+        nextCursor: page.nextCursor
+      }
     }
   }
 }) 
\ No newline at end of file
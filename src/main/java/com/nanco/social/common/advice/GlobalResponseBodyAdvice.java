@@ -1,8 +1,10 @@
 package com.nanco.social.common.advice;
 
+import com.nanco.social.common.converter.SerializedFeedPageConverter;
 import com.nanco.social.model.dto.ApiResponse;
 import org.springframework.core.MethodParameter;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.ByteArrayHttpMessageConverter;
 import org.springframework.http.converter.HttpMessageConverter;
 import org.springframework.http.server.ServerHttpRequest;
 import org.springframework.http.server.ServerHttpResponse;
@@ -14,8 +16,10 @@ public class GlobalResponseBodyAdvice implements ResponseBodyAdvice<Object> {
 
     @Override
     public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
-        // 只處理非ApiResponse類型的返回值
-        return !returnType.getParameterType().equals(ApiResponse.class);
+        // 只處理非ApiResponse類型的返回值；已組好的位元組回應（例如發文分頁）原樣輸出
+        return !returnType.getParameterType().equals(ApiResponse.class)
+                && !ByteArrayHttpMessageConverter.class.isAssignableFrom(converterType)
+                && !SerializedFeedPageConverter.class.isAssignableFrom(converterType);
     }
 
     @Override
@@ -0,0 +1,138 @@
+package com.nanco.social.common.async;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * 單一類工作的隔離執行緒池（艙壁），執行緒數、佇列長度與逾時各自設定
+ * 某類查詢變慢時只會佔滿自己的執行緒與佇列，不影響其他類工作，也不佔用 Tomcat 的請求執行緒
+ * 寫入類的執行緒池只對仍在佇列中的工作逾時：已開始的寫入可能已提交，回應可重試的逾時會讓客戶端重複寫入
+ */
+public class Bulkhead implements AutoCloseable {
+
+    private final String name;
+    private final long timeoutMillis;
+    private final boolean timeoutRunning;
+    private final ThreadPoolTaskExecutor executor;
+    // 逾時計時器；工作完成（或寫入開始執行）時取消並移出佇列，大量短工作不會累積待觸發的計時器
+    private final ScheduledThreadPoolExecutor timer;
+
+    private final Counter rejected;
+    private final Counter timeouts;
+
+    public Bulkhead(String name, int threads, int queueCapacity, long timeoutMillis, MeterRegistry registry) {
+        this(name, threads, queueCapacity, timeoutMillis, true, registry);
+    }
+
+    /**
+     * @param timeoutRunning 已開始執行的工作是否也會逾時；寫入應為 false，只有仍在佇列中的工作會逾時
+     */
+    public Bulkhead(String name, int threads, int queueCapacity, long timeoutMillis, boolean timeoutRunning,
+                    MeterRegistry registry) {
+        this.name = name;
+        this.timeoutMillis = timeoutMillis;
+        this.timeoutRunning = timeoutRunning;
+        this.executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bulkhead-" + name + "-");
+        executor.setTaskDecorator(new RequestContextTaskDecorator());
+        executor.initialize();
+        this.timer = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "bulkhead-" + name + "-timeout");
+            thread.setDaemon(true);
+            return thread;
+        });
+        timer.setRemoveOnCancelPolicy(true);
+
+        new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), name, "bulkhead", Tags.empty()).bindTo(registry);
+        this.rejected = Counter.builder("bulkhead.rejected")
+                .description("佇列已滿而拒絕的工作數")
+                .tag("name", name)
+                .register(registry);
+        this.timeouts = Counter.builder("bulkhead.timeouts")
+                .description("超過時間上限仍未完成的工作數")
+                .tag("name", name)
+                .register(registry);
+    }
+
+    /**
+     * 在此執行緒池執行工作
+     * 超過時間上限時以 TimeoutException 結束，逾時前仍在佇列中的工作不會再執行；
+     * 不逾時執行中工作的執行緒池，逾時一律代表工作未執行，客戶端可安全重試
+     *
+     * @throws RejectedExecutionException 佇列已滿
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        // 工作開始執行與佇列逾時只有一方會成功
+        AtomicBoolean started = new AtomicBoolean();
+        // 工作可能在計時器建立前就開始執行，建立後再檢查一次
+        AtomicReference<ScheduledFuture<?>> timeout = new AtomicReference<>();
+        try {
+            executor.execute(() -> {
+                if (!started.compareAndSet(false, true)) {
+                    return;
+                }
+                if (!timeoutRunning) {
+                    // 已開始的工作不會逾時，計時器不再需要
+                    cancel(timeout.get());
+                }
+                try {
+                    future.complete(task.get());
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            throw e;
+        }
+        timeout.set(timer.schedule(() -> {
+            boolean queued = started.compareAndSet(false, true);
+            if ((queued || timeoutRunning) && future.completeExceptionally(new TimeoutException())) {
+                timeouts.increment();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS));
+        if (!timeoutRunning && started.get()) {
+            cancel(timeout.get());
+        }
+        future.whenComplete((result, error) -> cancel(timeout.get()));
+        return future;
+    }
+
+    // 尚待觸發的逾時計時器數
+    int pendingTimeouts() {
+        return timer.getQueue().size();
+    }
+
+    private static void cancel(ScheduledFuture<?> scheduled) {
+        if (scheduled != null) {
+            scheduled.cancel(false);
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdown();
+        timer.shutdownNow();
+    }
+}
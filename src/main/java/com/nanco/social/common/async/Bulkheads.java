@@ -0,0 +1,75 @@
+package com.nanco.social.common.async;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * 依工作類型分開的執行緒池：發文讀取、留言讀取、寫入、登入註冊
+ * 控制器將資料庫工作交給對應的執行緒池並返回 CompletableFuture，請求執行緒立即釋放
+ */
+@Component
+public class Bulkheads implements AutoCloseable {
+
+    private final Bulkhead feedReads;
+    private final Bulkhead commentReads;
+    private final Bulkhead writes;
+    private final Bulkhead auth;
+
+    @Autowired
+    public Bulkheads(@Value("${bulkhead.feed-read.threads:10}") int feedReadThreads,
+                     @Value("${bulkhead.feed-read.queue-capacity:200}") int feedReadQueue,
+                     @Value("${bulkhead.feed-read.timeout-ms:3000}") long feedReadTimeout,
+                     @Value("${bulkhead.comment-read.threads:6}") int commentReadThreads,
+                     @Value("${bulkhead.comment-read.queue-capacity:200}") int commentReadQueue,
+                     @Value("${bulkhead.comment-read.timeout-ms:3000}") long commentReadTimeout,
+                     @Value("${bulkhead.write.threads:6}") int writeThreads,
+                     @Value("${bulkhead.write.queue-capacity:100}") int writeQueue,
+                     @Value("${bulkhead.write.timeout-ms:5000}") long writeTimeout,
+                     @Value("${bulkhead.auth.threads:4}") int authThreads,
+                     @Value("${bulkhead.auth.queue-capacity:100}") int authQueue,
+                     @Value("${bulkhead.auth.timeout-ms:5000}") long authTimeout,
+                     MeterRegistry registry) {
+        this.feedReads = new Bulkhead("feed-read", feedReadThreads, feedReadQueue, feedReadTimeout, registry);
+        this.commentReads = new Bulkhead("comment-read", commentReadThreads, commentReadQueue, commentReadTimeout, registry);
+        this.writes = new Bulkhead("write", writeThreads, writeQueue, writeTimeout, false, registry);
+        this.auth = new Bulkhead("auth", authThreads, authQueue, authTimeout, registry);
+    }
+
+    /**
+     * 發文列表、首頁動態與個人頁面
+     */
+    public Bulkhead feedReads() {
+        return feedReads;
+    }
+
+    /**
+     * 留言列表
+     */
+    public Bulkhead commentReads() {
+        return commentReads;
+    }
+
+    /**
+     * 發文、留言、追蹤與使用者資料的寫入；只有仍在佇列中的工作會逾時，已開始的寫入一律等待其結果
+     */
+    public Bulkhead writes() {
+        return writes;
+    }
+
+    /**
+     * 登入與註冊的資料庫查詢（密碼雜湊另由 PasswordHasher 的執行緒池計算，雜湊完成後的寫入再交回此執行緒池）
+     */
+    public Bulkhead auth() {
+        return auth;
+    }
+
+    @Override
+    public void close() {
+        feedReads.close();
+        commentReads.close();
+        writes.close();
+        auth.close();
+    }
+}
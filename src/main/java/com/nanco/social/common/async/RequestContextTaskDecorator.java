@@ -0,0 +1,20 @@
+package com.nanco.social.common.async;
+
+import org.springframework.core.task.TaskDecorator;
+
+/**
+ * 將送出任務時的請求快照帶到執行緒池中的執行緒
+ * ReplicaRouter 依請求的方法與使用者判斷讀取主庫或副本，在其他執行緒執行時仍需取得同一個請求的資訊；
+ * 只傳遞快照中的固定值，不重新綁定 HttpServletRequest，工作在請求結束後才執行完畢時也不會存取已回收的請求
+ */
+public class RequestContextTaskDecorator implements TaskDecorator {
+
+    @Override
+    public Runnable decorate(Runnable runnable) {
+        RequestSnapshot snapshot = RequestSnapshot.current();
+        if (snapshot == null) {
+            return runnable;
+        }
+        return RequestSnapshot.wrap(snapshot, runnable);
+    }
+}
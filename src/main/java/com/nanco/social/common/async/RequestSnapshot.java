@@ -0,0 +1,112 @@
+package com.nanco.social.common.async;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 請求的快照：只保存讀取路由需要的固定值（方法、使用者ID），以及本次回應是否使用了過期資料
+ * 執行緒池中的工作以送出時的快照取代 HttpServletRequest；工作可能在請求結束後仍在執行（逾時或背景查詢），
+ * 此時 Tomcat 已將請求物件回收給其他請求使用，不可再讀寫，快照則只是一般物件，不受影響
+ * 快照在請求執行緒上建立並存放於請求屬性，回應前由請求執行緒讀回
+ */
+public final class RequestSnapshot {
+
+    private static final String ATTRIBUTE = RequestSnapshot.class.getName();
+
+    private static final ThreadLocal<RequestSnapshot> CURRENT = new ThreadLocal<>();
+
+    private final String method;
+    private final Long userId;
+    // 使用過期資料時的資料年齡（毫秒），-1 代表未使用
+    private final AtomicLong staleAgeMillis = new AtomicLong(-1);
+
+    public RequestSnapshot(String method, Long userId) {
+        this.method = method;
+        this.userId = userId;
+    }
+
+    /**
+     * 目前執行緒的請求快照：執行緒池中的工作為送出時的快照，請求執行緒則取自目前的請求
+     *
+     * @return 不在請求中時為 null
+     */
+    public static RequestSnapshot current() {
+        RequestSnapshot snapshot = CURRENT.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (!(attributes instanceof ServletRequestAttributes)) {
+            return null;
+        }
+        return of(((ServletRequestAttributes) attributes).getRequest());
+    }
+
+    /**
+     * 請求的快照，不存在時建立；只能在請求處理中（請求執行緒上）呼叫
+     */
+    public static RequestSnapshot of(HttpServletRequest request) {
+        RequestSnapshot existing = find(request);
+        if (existing != null) {
+            return existing;
+        }
+        Object userId = request.getAttribute("userId");
+        RequestSnapshot snapshot = new RequestSnapshot(request.getMethod(), userId instanceof Long ? (Long) userId : null);
+        request.setAttribute(ATTRIBUTE, snapshot);
+        return snapshot;
+    }
+
+    /**
+     * 請求已建立的快照，不建立新的
+     */
+    public static RequestSnapshot find(HttpServletRequest request) {
+        Object snapshot = request.getAttribute(ATTRIBUTE);
+        return snapshot instanceof RequestSnapshot ? (RequestSnapshot) snapshot : null;
+    }
+
+    /**
+     * 在執行期間將快照設為目前執行緒的快照
+     */
+    public static Runnable wrap(RequestSnapshot snapshot, Runnable runnable) {
+        return () -> {
+            RequestSnapshot previous = CURRENT.get();
+            CURRENT.set(snapshot);
+            try {
+                runnable.run();
+            } finally {
+                if (previous == null) {
+                    CURRENT.remove();
+                } else {
+                    CURRENT.set(previous);
+                }
+            }
+        };
+    }
+
+    /**
+     * 標記回應使用了過期資料，多次標記時保留最舊的資料年齡
+     */
+    public void markStale(long ageMillis) {
+        staleAgeMillis.accumulateAndGet(ageMillis, Math::max);
+    }
+
+    /**
+     * 過期資料的年齡（毫秒），未使用過期資料時為 null
+     */
+    public Long getStaleAgeMillis() {
+        long age = staleAgeMillis.get();
+        return age < 0 ? null : age;
+    }
+
+    public String getMethod() {
+        return method;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+}
@@ -0,0 +1,86 @@
+package com.nanco.social.common.config;
+
+import com.nanco.social.common.datasource.ReplicaRouter;
+import com.nanco.social.common.datasource.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 主庫與唯讀副本
+ * 主庫沿用 Spring Boot 依 spring.datasource.* 自動配置的連線池，寫入與交易皆使用 jdbcTemplate；
+ * 唯讀查詢使用 replicaJdbcTemplate，由 ReplicaRouter 分配到副本，未設定副本時同樣使用主庫
+ */
+@Configuration
+public class DataSourceConfig {
+
+    // 定義第二個 JdbcTemplate 後 Spring Boot 不再自動建立，需自行宣告主庫的 JdbcTemplate
+    @Bean
+    @Primary
+    public JdbcTemplate jdbcTemplate(DataSource dataSource) {
+        return new JdbcTemplate(dataSource);
+    }
+
+    @Bean(destroyMethod = "close")
+    public ReplicaRouter replicaRouter(DataSource dataSource, MeterRegistry meterRegistry,
+                                       @Value("${datasource.replicas.urls:}") String urls,
+                                       @Value("${datasource.replicas.username:${spring.datasource.username}}") String username,
+                                       @Value("${datasource.replicas.password:${spring.datasource.password}}") String password,
+                                       @Value("${datasource.replicas.pool-size:10}") int poolSize,
+                                       @Value("${datasource.replicas.strategy:least-connections}") String strategy,
+                                       @Value("${datasource.replicas.max-lag-seconds:2}") long maxLagSeconds,
+                                       @Value("${datasource.replicas.sticky-window-ms:5000}") long stickyWindowMillis,
+                                       @Value("${datasource.replicas.health-interval-ms:2000}") long healthIntervalMillis) {
+        List<DataSource> replicas = new ArrayList<>();
+        String[] replicaUrls = urls.trim().isEmpty() ? new String[0] : urls.split(",");
+        for (int i = 0; i < replicaUrls.length; i++) {
+            replicas.add(replicaDataSource(dataSource, meterRegistry, replicaUrls[i].trim(), username, password,
+                    poolSize, i + 1));
+        }
+        ReplicaRouter router = new ReplicaRouter(dataSource, replicas,
+                ReplicaRouter.Strategy.valueOf(strategy.trim().toUpperCase(Locale.ROOT).replace('-', '_')),
+                maxLagSeconds, stickyWindowMillis, meterRegistry);
+        router.start(healthIntervalMillis);
+        return router;
+    }
+
+    @Bean
+    public JdbcTemplate replicaJdbcTemplate(ReplicaRouter replicaRouter) {
+        return new JdbcTemplate(new ReplicaRoutingDataSource(replicaRouter));
+    }
+
+    // 副本沿用主庫的驅動程式參數（預備語句快取等），連線設為唯讀；副本無法連線時不影響啟動，由健康檢查排除
+    private static HikariDataSource replicaDataSource(DataSource primary, MeterRegistry meterRegistry, String url,
+                                                      String username, String password, int poolSize, int index) {
+        HikariConfig config = new HikariConfig();
+        if (primary instanceof HikariDataSource) {
+            HikariDataSource primaryPool = (HikariDataSource) primary;
+            config.setDriverClassName(primaryPool.getDriverClassName());
+            config.setDataSourceProperties(primaryPool.getDataSourceProperties());
+            config.setConnectionTimeout(primaryPool.getConnectionTimeout());
+            config.setMaxLifetime(primaryPool.getMaxLifetime());
+        }
+        config.setPoolName("social-replica-" + index);
+        config.setJdbcUrl(url);
+        config.setUsername(username);
+        config.setPassword(password);
+        config.setMaximumPoolSize(poolSize);
+        config.setMinimumIdle(poolSize);
+        config.setReadOnly(true);
+        config.setInitializationFailTimeout(-1);
+        config.setMetricRegistry(meterRegistry);
+        return new HikariDataSource(config);
+    }
+}
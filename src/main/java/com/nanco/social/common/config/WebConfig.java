@@ -1,14 +1,54 @@
 package com.nanco.social.common.config;
 
+import com.nanco.social.common.converter.SerializedFeedPageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
 import org.springframework.web.servlet.config.annotation.CorsRegistry;
 import org.springframework.web.servlet.config.annotation.EnableWebMvc;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.List;
+
 @Configuration
 @EnableWebMvc
 public class WebConfig implements WebMvcConfigurer {
 
+    @Value("${web.async.pool-size:8}")
+    private int asyncPoolSize;
+
+    @Value("${web.async.queue-capacity:100}")
+    private int asyncQueueCapacity;
+
+    @Value("${web.async.timeout-ms:150000}")
+    private long asyncTimeout;
+
+    // 串流回應（StreamingResponseBody）使用有上限的執行緒池，避免預設的 SimpleAsyncTaskExecutor 每個請求建立新執行緒
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(asyncPoolSize);
+        executor.setMaxPoolSize(asyncPoolSize);
+        executor.setQueueCapacity(asyncQueueCapacity);
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+        configurer.setDefaultTimeout(asyncTimeout);
+    }
+
+    // 發文分頁的快取位元組直接寫入回應
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(0, new SerializedFeedPageConverter());
+    }
+
     @Override
     public void addCorsMappings(CorsRegistry registry) {
         registry.addMapping("/**")
@@ -1,9 +1,25 @@
 package com.nanco.social.common.config;
 
+import com.nanco.social.common.datasource.ReadYourWritesInterceptor;
+import com.nanco.social.common.datasource.ReplicaRouter;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
 @Configuration
 public class WebMvcConfig implements WebMvcConfigurer {
-    // 現在使用 JWT 認證，不需要任何攔截器配置
+    // 使用 JWT 認證，不需要登入攔截器；寫入請求需通知副本路由，讓使用者讀到自己剛寫入的資料
+
+    private final ReplicaRouter replicaRouter;
+
+    @Autowired
+    public WebMvcConfig(ReplicaRouter replicaRouter) {
+        this.replicaRouter = replicaRouter;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new ReadYourWritesInterceptor(replicaRouter)).addPathPatterns("/api/**");
+    }
 }
@@ -1,6 +1,8 @@
 package com.nanco.social.common.config;
 
+import com.nanco.social.common.filter.ConcurrencyLimitFilter;
 import com.nanco.social.common.filter.JwtRequestFilter;
+import com.nanco.social.common.filter.RateLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -20,10 +22,15 @@ import java.util.Arrays;
 public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
     private final JwtRequestFilter jwtRequestFilter;
+    private final ConcurrencyLimitFilter concurrencyLimitFilter;
+    private final RateLimitFilter rateLimitFilter;
 
     @Autowired
-    public WebSecurityConfig(JwtRequestFilter jwtRequestFilter) {
+    public WebSecurityConfig(JwtRequestFilter jwtRequestFilter, ConcurrencyLimitFilter concurrencyLimitFilter,
+                             RateLimitFilter rateLimitFilter) {
         this.jwtRequestFilter = jwtRequestFilter;
+        this.concurrencyLimitFilter = concurrencyLimitFilter;
+        this.rateLimitFilter = rateLimitFilter;
     }
 
     @Override
@@ -34,6 +41,8 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
             .authorizeRequests()
                 .antMatchers("/api/user/login", "/api/user/register").permitAll()
                 .antMatchers("/", "/index.html", "/css/**", "/js/**", "/images/**", "/favicon.ico").permitAll()
+                // 健康檢查與 Prometheus 抓取不帶令牌，正式環境應由網路層限制 /actuator 的來源
+                .antMatchers("/actuator/health", "/actuator/prometheus").permitAll()
                 .anyRequest().authenticated()
             .and()
             .sessionManagement()
@@ -41,6 +50,10 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter {
 
         // 將JWT過濾器添加到UsernamePasswordAuthenticationFilter之前
         http.addFilterBefore(jwtRequestFilter, UsernamePasswordAuthenticationFilter.class);
+        // 過載時在驗證令牌之前就拒絕請求
+        http.addFilterBefore(concurrencyLimitFilter, JwtRequestFilter.class);
+        // 每位使用者的寫入限流需要驗證後的 userId
+        http.addFilterAfter(rateLimitFilter, JwtRequestFilter.class);
     }
 
     @Bean
@@ -0,0 +1,67 @@
+package com.nanco.social.common.converter;
+
+import com.nanco.social.service.cache.SerializedFeedPage;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 將已序列化的發文分頁輸出為與 ApiResponse<FeedPage> 相同結構的 JSON
+ * 固定片段與快取的發文位元組依序直接寫入回應，不另外組成完整的位元組陣列，並明確設定 Content-Length
+ */
+public class SerializedFeedPageConverter extends AbstractHttpMessageConverter<SerializedFeedPage> {
+
+    // 發文分頁回應的固定片段，與 ApiResponse<FeedPage> 的 JSON 結構相同
+    private static final byte[] FEED_PREFIX = "{\"success\":true,\"message\":\"操作成功\",\"data\":{\"posts\":"
+            .getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FEED_CURSOR = ",\"nextCursor\":".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] FEED_SUFFIX = "}}".getBytes(StandardCharsets.UTF_8);
+
+    public SerializedFeedPageConverter() {
+        super(MediaType.APPLICATION_JSON);
+    }
+
+    @Override
+    protected boolean supports(Class<?> clazz) {
+        return SerializedFeedPage.class == clazz;
+    }
+
+    // 只用於輸出
+    @Override
+    public boolean canRead(Class<?> clazz, MediaType mediaType) {
+        return false;
+    }
+
+    @Override
+    protected SerializedFeedPage readInternal(Class<? extends SerializedFeedPage> clazz, HttpInputMessage inputMessage) {
+        throw new HttpMessageNotReadableException("不支援讀取發文分頁", inputMessage);
+    }
+
+    @Override
+    protected Long getContentLength(SerializedFeedPage page, MediaType contentType) {
+        return (long) (FEED_PREFIX.length + page.getPostsJson().length + FEED_CURSOR.length
+                + nextCursor(page).length + FEED_SUFFIX.length);
+    }
+
+    @Override
+    protected void writeInternal(SerializedFeedPage page, HttpOutputMessage outputMessage) throws IOException {
+        OutputStream out = outputMessage.getBody();
+        out.write(FEED_PREFIX);
+        out.write(page.getPostsJson());
+        out.write(FEED_CURSOR);
+        out.write(nextCursor(page));
+        out.write(FEED_SUFFIX);
+    }
+
+    // 游標為 Base64URL 字串，不需跳脫
+    private static byte[] nextCursor(SerializedFeedPage page) {
+        return (page.getNextCursor() == null ? "null" : "\"" + page.getNextCursor() + "\"")
+                .getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,30 @@
+package com.nanco.social.common.datasource;
+
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * 已登入使用者發出寫入請求時通知 ReplicaRouter，之後一段時間內該使用者的讀取都使用主庫
+ */
+public class ReadYourWritesInterceptor implements HandlerInterceptor {
+
+    private final ReplicaRouter router;
+
+    public ReadYourWritesInterceptor(ReplicaRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        String method = request.getMethod();
+        if (!"GET".equals(method) && !"HEAD".equals(method) && !"OPTIONS".equals(method)) {
+            Object userId = request.getAttribute("userId");
+            if (userId instanceof Long) {
+                router.recordWrite((Long) userId);
+            }
+        }
+        return true;
+    }
+}
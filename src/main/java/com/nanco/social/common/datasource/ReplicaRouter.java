@@ -0,0 +1,308 @@
+package com.nanco.social.common.datasource;
+
+import com.nanco.social.common.async.RequestSnapshot;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * 讀取連線的路由：唯讀查詢分散到健康的副本，其餘情況使用主庫
+ * 以下情況讀取主庫：
+ * - 交易進行中，或目前請求為寫入（POST、PUT、DELETE）
+ * - 目前使用者在 sticky 時間內曾寫入（讀取自己剛寫入的資料，不受副本延遲影響）
+ * - 沒有健康的副本
+ * 定期檢查副本的複寫延遲，超過上限或無法連線時暫停使用，恢復後重新加入
+ */
+public class ReplicaRouter implements AutoCloseable {
+
+    /**
+     * 副本選擇方式
+     */
+    public enum Strategy {
+        ROUND_ROBIN,
+        // 選擇使用中連線數最少的副本，相同時輪流
+        LEAST_CONNECTIONS
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRouter.class);
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Strategy strategy;
+    private final long maxLagSeconds;
+    private final long stickyNanos;
+    private final LongSupplier nanoTime;
+
+    private final AtomicInteger next = new AtomicInteger();
+    // 使用者ID -> sticky 到期時間
+    private final Map<Long, Long> recentWriters = new ConcurrentHashMap<>();
+
+    private final Counter primaryReads;
+    private final Counter replicaReads;
+
+    private ScheduledExecutorService healthChecker;
+
+    public ReplicaRouter(DataSource primary, List<DataSource> replicas, Strategy strategy,
+                         long maxLagSeconds, long stickyMillis, MeterRegistry registry) {
+        this(primary, replicas, strategy, maxLagSeconds, stickyMillis, registry, System::nanoTime);
+    }
+
+    ReplicaRouter(DataSource primary, List<DataSource> replicas, Strategy strategy,
+                  long maxLagSeconds, long stickyMillis, MeterRegistry registry, LongSupplier nanoTime) {
+        this.primary = primary;
+        this.replicas = new ArrayList<>();
+        for (int i = 0; i < replicas.size(); i++) {
+            this.replicas.add(new Replica("replica-" + (i + 1), replicas.get(i)));
+        }
+        this.strategy = strategy;
+        this.maxLagSeconds = maxLagSeconds;
+        this.stickyNanos = TimeUnit.MILLISECONDS.toNanos(stickyMillis);
+        this.nanoTime = nanoTime;
+
+        this.primaryReads = Counter.builder("db.routing.reads")
+                .description("唯讀查詢的路由結果")
+                .tag("target", "primary")
+                .register(registry);
+        this.replicaReads = Counter.builder("db.routing.reads")
+                .description("唯讀查詢的路由結果")
+                .tag("target", "replica")
+                .register(registry);
+        Gauge.builder("db.replicas.healthy", this, ReplicaRouter::getHealthyCount)
+                .description("目前可使用的副本數")
+                .register(registry);
+    }
+
+    /**
+     * 開始定期檢查副本延遲，沒有副本時不啟動
+     */
+    public void start(long intervalMillis) {
+        if (replicas.isEmpty()) {
+            return;
+        }
+        checkHealth();
+        healthChecker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "replica-health");
+            thread.setDaemon(true);
+            return thread;
+        });
+        healthChecker.scheduleWithFixedDelay(this::checkHealth, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (healthChecker != null) {
+            healthChecker.shutdownNow();
+        }
+    }
+
+    /**
+     * 寫入請求開始時呼叫，之後 sticky 時間內該使用者的讀取都使用主庫
+     */
+    public void recordWrite(Long userId) {
+        if (userId != null && !replicas.isEmpty()) {
+            recentWriters.put(userId, nanoTime.getAsLong() + stickyNanos);
+        }
+    }
+
+    /**
+     * 選擇唯讀查詢使用的資料來源
+     */
+    public DataSource route() {
+        if (replicas.isEmpty() || mustReadPrimary()) {
+            primaryReads.increment();
+            return primary;
+        }
+        Replica replica = select();
+        if (replica == null) {
+            primaryReads.increment();
+            return primary;
+        }
+        replicaReads.increment();
+        return replica.dataSource;
+    }
+
+    /**
+     * 目前執行緒的唯讀查詢是否會使用主庫，合併相同查詢時用於區分，避免需讀取主庫的請求取得副本的結果
+     */
+    public boolean readsPrimary() {
+        return replicas.isEmpty() || mustReadPrimary();
+    }
+
+    public boolean hasReplicas() {
+        return !replicas.isEmpty();
+    }
+
+    /**
+     * 副本可使用的最大延遲，寫入後經過此時間，所有使用中的副本都已包含該寫入
+     */
+    public long getMaxLagNanos() {
+        return TimeUnit.SECONDS.toNanos(maxLagSeconds);
+    }
+
+    public int getHealthyCount() {
+        int count = 0;
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 檢查每個副本的複寫延遲，並清除已過期的 sticky 紀錄
+     */
+    void checkHealth() {
+        for (Replica replica : replicas) {
+            long lag = lagSeconds(replica);
+            boolean healthy = lag >= 0 && lag <= maxLagSeconds;
+            if (healthy != replica.healthy) {
+                if (healthy) {
+                    log.info("副本 {} 已恢復，延遲 {} 秒", replica.name, lag);
+                } else {
+                    log.warn("副本 {} 暫停使用，延遲 {}（上限 {} 秒）", replica.name,
+                            lag < 0 ? "未知" : lag + " 秒", maxLagSeconds);
+                }
+            }
+            replica.healthy = healthy;
+        }
+
+        long now = nanoTime.getAsLong();
+        Iterator<Map.Entry<Long, Long>> iterator = recentWriters.entrySet().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().getValue() - now <= 0) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private boolean mustReadPrimary() {
+        if (TransactionSynchronizationManager.isActualTransactionActive()) {
+            return true;
+        }
+        // 執行緒池中的工作使用送出時的快照，不存取請求物件
+        RequestSnapshot snapshot = RequestSnapshot.current();
+        if (snapshot == null) {
+            return false;
+        }
+        if (!isSafe(snapshot.getMethod())) {
+            return true;
+        }
+        Long userId = snapshot.getUserId();
+        if (userId == null) {
+            return false;
+        }
+        Long expiresAt = recentWriters.get(userId);
+        return expiresAt != null && expiresAt - nanoTime.getAsLong() > 0;
+    }
+
+    // 只在健康的副本之間輪流，暫停使用的副本不會讓相鄰的副本多分到請求
+    private Replica select() {
+        List<Replica> healthy = new ArrayList<>(replicas.size());
+        for (Replica replica : replicas) {
+            if (replica.healthy) {
+                healthy.add(replica);
+            }
+        }
+        if (healthy.isEmpty()) {
+            return null;
+        }
+        int offset = Math.floorMod(next.getAndIncrement(), healthy.size());
+        if (strategy == Strategy.ROUND_ROBIN) {
+            return healthy.get(offset);
+        }
+        Replica selected = null;
+        int selectedActive = Integer.MAX_VALUE;
+        for (int i = 0; i < healthy.size(); i++) {
+            Replica replica = healthy.get((offset + i) % healthy.size());
+            int active = activeConnections(replica.dataSource);
+            if (active < selectedActive) {
+                selected = replica;
+                selectedActive = active;
+            }
+        }
+        return selected;
+    }
+
+    private static int activeConnections(DataSource dataSource) {
+        if (dataSource instanceof HikariDataSource) {
+            HikariPoolMXBean pool = ((HikariDataSource) dataSource).getHikariPoolMXBean();
+            return pool == null ? 0 : pool.getActiveConnections();
+        }
+        return 0;
+    }
+
+    // 複寫延遲（秒），無法連線、不是副本或複寫已停止時返回 -1
+    private static long lagSeconds(Replica replica) {
+        try (Connection connection = replica.dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            ResultSet rs;
+            try {
+                rs = statement.executeQuery("SHOW REPLICA STATUS");
+            } catch (SQLException e) {
+                // MySQL 8.0.22 之前的版本
+                rs = statement.executeQuery("SHOW SLAVE STATUS");
+            }
+            try (ResultSet status = rs) {
+                if (!status.next()) {
+                    return -1;
+                }
+                long lag = lagColumn(status, "Seconds_Behind_Source");
+                if (lag == Long.MIN_VALUE) {
+                    lag = lagColumn(status, "Seconds_Behind_Master");
+                }
+                return lag == Long.MIN_VALUE ? -1 : lag;
+            }
+        } catch (SQLException e) {
+            log.warn("無法檢查副本 {}：{}", replica.name, e.getMessage());
+            return -1;
+        }
+    }
+
+    // 欄位不存在時返回 Long.MIN_VALUE，值為 NULL（複寫停止）時返回 -1
+    private static long lagColumn(ResultSet status, String column) throws SQLException {
+        try {
+            long lag = status.getLong(column);
+            return status.wasNull() ? -1 : lag;
+        } catch (SQLException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static boolean isSafe(String method) {
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        // 通過第一次檢查後才開始使用
+        private volatile boolean healthy;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package com.nanco.social.common.datasource;
+
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * 唯讀查詢使用的資料來源，每次取得連線時由 ReplicaRouter 決定使用主庫或副本
+ * 只供 replicaJdbcTemplate 使用，不註冊為 DataSource bean，避免取代 Spring Boot 自動配置的主庫
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+
+    private final ReplicaRouter router;
+
+    public ReplicaRoutingDataSource(ReplicaRouter router) {
+        this.router = router;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return router.route().getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return router.route().getConnection(username, password);
+    }
+}
@@ -0,0 +1,18 @@
+package com.nanco.social.common.exception;
+
+/**
+ * 存儲過程的斷路器開啟中，呼叫未送到資料庫
+ */
+public class CircuitOpenException extends RuntimeException {
+
+    private final String procedure;
+
+    public CircuitOpenException(String procedure) {
+        super("斷路器開啟中：" + procedure);
+        this.procedure = procedure;
+    }
+
+    public String getProcedure() {
+        return procedure;
+    }
+}
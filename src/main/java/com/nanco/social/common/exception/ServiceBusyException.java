@@ -0,0 +1,15 @@
+package com.nanco.social.common.exception;
+
+/**
+ * 系統暫時無法處理請求（佇列已滿、等待逾時等），請求未被執行，客戶端可稍後重試
+ */
+public class ServiceBusyException extends RuntimeException {
+
+    public ServiceBusyException(String message) {
+        super(message);
+    }
+
+    public ServiceBusyException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
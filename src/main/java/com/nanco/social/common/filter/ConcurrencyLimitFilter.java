@@ -0,0 +1,139 @@
+package com.nanco.social.common.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nanco.social.model.dto.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+/**
+ * 過載保護：讀取（GET）與寫入請求各自有依回應時間調整的併發上限，超過時立即回應 503 與 Retry-After
+ * 放在 JWT 驗證之前，被拒絕的請求不花費驗證令牌與查詢資料庫的成本
+ * 資料庫飽和時多出的請求不在 Tomcat 與連線池排隊，已接受的請求回應時間維持穩定
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+
+    // 即時推送為長時間連線、匯出由同時匯出數上限限制、登入與註冊由密碼雜湊執行緒池限制，不納入計算
+    private static final Set<String> EXCLUDED_PATHS = Set.of(
+            "/api/post/stream", "/api/post/export", "/api/user/login", "/api/user/register");
+
+    private final boolean enabled;
+    private final long retryAfterSeconds;
+    private final GradientLimiter readLimiter;
+    private final GradientLimiter writeLimiter;
+    private final byte[] rejectedBody;
+
+    @Autowired
+    public ConcurrencyLimitFilter(@Value("${concurrency-limit.enabled:true}") boolean enabled,
+                                  @Value("${concurrency-limit.read.initial:50}") int readInitial,
+                                  @Value("${concurrency-limit.read.min:10}") int readMin,
+                                  @Value("${concurrency-limit.read.max:500}") int readMax,
+                                  @Value("${concurrency-limit.write.initial:20}") int writeInitial,
+                                  @Value("${concurrency-limit.write.min:5}") int writeMin,
+                                  @Value("${concurrency-limit.write.max:200}") int writeMax,
+                                  @Value("${concurrency-limit.retry-after-seconds:1}") long retryAfterSeconds,
+                                  ObjectMapper objectMapper, MeterRegistry registry) throws IOException {
+        this.enabled = enabled;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.readLimiter = new GradientLimiter("read", readInitial, readMin, readMax, registry);
+        this.writeLimiter = new GradientLimiter("write", writeInitial, writeMin, writeMax, registry);
+        this.rejectedBody = objectMapper.writeValueAsBytes(ApiResponse.fail("系統忙碌中，請稍後再試"));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getServletPath();
+        return !enabled || !path.startsWith("/api/") || EXCLUDED_PATHS.contains(path)
+                || "OPTIONS".equals(request.getMethod());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        GradientLimiter limiter = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod())
+                ? readLimiter : writeLimiter;
+        if (!limiter.tryAcquire()) {
+            reject(response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } catch (IOException | ServletException | RuntimeException | Error e) {
+            // 處理中拋出例外的回應時間不作為調整上限的樣本
+            limiter.release(0);
+            throw e;
+        }
+        if (request.isAsyncStarted()) {
+            // 非同步處理（例如 CompletableFuture）在完成時才歸還名額
+            request.getAsyncContext().addListener(new ReleaseOnComplete(limiter, start));
+        } else if (response.getStatus() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            // 被使用者限流立即拒絕的請求不反映資料庫負載，不作為樣本
+            limiter.release(0);
+        } else {
+            limiter.release(System.nanoTime() - start);
+        }
+    }
+
+    public GradientLimiter getReadLimiter() {
+        return readLimiter;
+    }
+
+    public GradientLimiter getWriteLimiter() {
+        return writeLimiter;
+    }
+
+    private void reject(HttpServletResponse response) throws IOException {
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(rejectedBody.length);
+        response.getOutputStream().write(rejectedBody);
+    }
+
+    private static final class ReleaseOnComplete implements AsyncListener {
+        private final GradientLimiter limiter;
+        private final long start;
+
+        private ReleaseOnComplete(GradientLimiter limiter, long start) {
+            this.limiter = limiter;
+            this.start = start;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            limiter.release(System.nanoTime() - start);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            // 逾時後仍會觸發 onComplete，由 onComplete 歸還
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            // 發生錯誤後仍會觸發 onComplete，由 onComplete 歸還
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
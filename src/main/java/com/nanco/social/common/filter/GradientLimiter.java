@@ -0,0 +1,125 @@
+package com.nanco.social.common.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 依回應時間自動調整的併發上限（gradient 演算法）
+ * 以長期平均回應時間作為無負載時的基準，與最新的回應時間相比：
+ * - 回應時間接近基準時上限逐步增加，可容納更多同時處理的請求
+ * - 回應時間高於基準（資料庫開始排隊）時依比例降低上限，多出的請求直接拒絕，不再排隊拉長所有人的回應時間
+ * 基準會緩慢跟隨實際回應時間，負載持續偏高時不會永遠維持在低上限
+ */
+public class GradientLimiter {
+
+    // 回應時間為基準的幾倍以內視為正常
+    private static final double TOLERANCE = 1.5;
+    // 每次調整時新上限所佔的比重，避免單一樣本造成劇烈變動
+    private static final double SMOOTHING = 0.2;
+    // 長期平均約涵蓋的樣本數
+    private static final int LONG_WINDOW = 600;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile int limit;
+
+    // 以下欄位只在 synchronized 的 onSample 中存取
+    private double estimatedLimit;
+    private double longRtt;
+
+    private final Counter rejected;
+
+    public GradientLimiter(String name, int initialLimit, int minLimit, int maxLimit, MeterRegistry registry) {
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.limit = initialLimit;
+        this.estimatedLimit = initialLimit;
+
+        this.rejected = Counter.builder("http.concurrency.rejected")
+                .description("超過併發上限而拒絕的請求數")
+                .tag("budget", name)
+                .register(registry);
+        Gauge.builder("http.concurrency.limit", this, GradientLimiter::getLimit)
+                .description("目前的併發上限")
+                .tag("budget", name)
+                .register(registry);
+        Gauge.builder("http.concurrency.inflight", this, GradientLimiter::getInFlight)
+                .description("目前處理中的請求數")
+                .tag("budget", name)
+                .register(registry);
+    }
+
+    /**
+     * 嘗試取得處理名額，已達上限時返回 false
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                rejected.increment();
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 請求結束時歸還名額
+     *
+     * @param rttNanos 請求處理時間，小於等於 0 時不作為調整上限的樣本（例如處理中拋出例外）
+     */
+    public void release(long rttNanos) {
+        // 以歸還前的處理中請求數判斷上限是否真的被用到
+        int current = inFlight.getAndDecrement();
+        if (rttNanos > 0) {
+            onSample(rttNanos, current);
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private synchronized void onSample(long rttNanos, int inFlightAtCompletion) {
+        double shortRtt = rttNanos;
+        if (longRtt == 0) {
+            longRtt = shortRtt;
+        } else {
+            longRtt += (shortRtt - longRtt) * 2.0 / (LONG_WINDOW + 1);
+        }
+        // 回應時間大幅下降（負載解除）時讓基準較快回到新水準
+        if (longRtt / shortRtt > 2) {
+            longRtt *= 0.95;
+        }
+
+        // 處理中的請求不到上限一半時，回應時間無法反映上限是否足夠，不調高上限
+        if (inFlightAtCompletion < estimatedLimit / 2 && shortRtt <= longRtt * TOLERANCE) {
+            return;
+        }
+
+        double gradient = Math.max(0.5, Math.min(1.0, TOLERANCE * longRtt / shortRtt));
+        // 允許少量排隊，上限愈大可容許的排隊數愈多
+        double queueSize = Math.sqrt(estimatedLimit);
+        double newLimit = estimatedLimit * gradient + queueSize;
+        newLimit = estimatedLimit * (1 - SMOOTHING) + newLimit * SMOOTHING;
+        estimatedLimit = Math.max(minLimit, Math.min(maxLimit, newLimit));
+        limit = (int) estimatedLimit;
+    }
+}
@@ -1,6 +1,9 @@
 package com.nanco.social.common.filter;
 
+import com.nanco.social.common.util.JwtPrincipal;
 import com.nanco.social.common.util.JwtUtil;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
@@ -13,38 +16,65 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JwtRequestFilter extends OncePerRequestFilter {
 
+    private static final String STREAM_PATH = "/api/post/stream";
+    private static final String STREAM_TOKEN_PARAMETER = "access_token";
+
     private final JwtUtil jwtUtil;
 
+    // 令牌驗證耗時（不含後續的請求處理），依結果分開：valid、invalid、anonymous（未帶令牌）
+    private final Timer validTimer;
+    private final Timer invalidTimer;
+    private final Timer anonymousTimer;
+
     @Autowired
-    public JwtRequestFilter(JwtUtil jwtUtil) {
+    public JwtRequestFilter(JwtUtil jwtUtil, MeterRegistry registry) {
         this.jwtUtil = jwtUtil;
+        this.validTimer = timer(registry, "valid");
+        this.invalidTimer = timer(registry, "invalid");
+        this.anonymousTimer = timer(registry, "anonymous");
+    }
+
+    private static Timer timer(MeterRegistry registry, String result) {
+        return Timer.builder("jwt.filter")
+                .description("JWT令牌驗證耗時")
+                .tag("result", result)
+                .publishPercentileHistogram()
+                .register(registry);
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        long start = System.nanoTime();
         final String authorizationHeader = request.getHeader("Authorization");
 
-        String token = null;
-        Long userId = null;
-        String userName = null;
+        JwtPrincipal principal = null;
 
-        // 檢查Authorization頭是否包含Bearer令牌
+        String token = null;
         if (authorizationHeader != null && authorizationHeader.startsWith("Bearer ")) {
             token = authorizationHeader.substring(7);
+        } else if (STREAM_PATH.equals(request.getServletPath())) {
+            // 瀏覽器的 EventSource 無法設定請求標頭，即時推送連線改由查詢參數帶入令牌
+            token = request.getParameter(STREAM_TOKEN_PARAMETER);
+        }
+
+        // 一次解析同時驗證簽章與到期時間
+        if (token != null && !token.isEmpty()) {
             try {
-                userId = jwtUtil.extractUserId(token);
-                userName = jwtUtil.extractUserName(token);
+                principal = jwtUtil.verify(token);
             } catch (Exception e) {
                 logger.error("無法解析JWT令牌", e);
             }
         }
 
         // 如果令牌有效，設置用戶信息到請求屬性中並設置 Spring Security 認證
-        if (userId != null && userName != null && jwtUtil.validateToken(token)) {
+        if (principal != null && principal.getUserId() != null && principal.getUserName() != null) {
+            Long userId = principal.getUserId();
+            String userName = principal.getUserName();
             request.setAttribute("userId", userId);
             request.setAttribute("userName", userName);
             
@@ -54,6 +84,11 @@ public class JwtRequestFilter extends OncePerRequestFilter {
             SecurityContextHolder.getContext().setAuthentication(authToken);
         }
 
+        Timer timer = token == null || token.isEmpty()
+                ? anonymousTimer
+                : principal != null ? validTimer : invalidTimer;
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
         filterChain.doFilter(request, response);
     }
 
@@ -0,0 +1,101 @@
+package com.nanco.social.common.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nanco.social.model.dto.ApiResponse;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每位使用者的寫入限流，放在 JWT 驗證之後，以 JwtRequestFilter 設定的 userId 區分使用者
+ * 依端點分類各自設定速率與容量：發文（post）、留言（comment）、其他寫入（write）
+ * 超過時回應 429 與 Retry-After；讀取請求與未登入的請求不限流
+ */
+@Component
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private final boolean enabled;
+    private final TokenBucketLimiter postLimiter;
+    private final TokenBucketLimiter commentLimiter;
+    private final TokenBucketLimiter writeLimiter;
+    private final byte[] limitedBody;
+
+    @Autowired
+    public RateLimitFilter(@Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.post.per-second:0.5}") double postRate,
+                           @Value("${rate-limit.post.burst:5}") int postBurst,
+                           @Value("${rate-limit.comment.per-second:2}") double commentRate,
+                           @Value("${rate-limit.comment.burst:10}") int commentBurst,
+                           @Value("${rate-limit.write.per-second:5}") double writeRate,
+                           @Value("${rate-limit.write.burst:20}") int writeBurst,
+                           ObjectMapper objectMapper, MeterRegistry registry) throws IOException {
+        this(enabled,
+                new TokenBucketLimiter("post", postRate, postBurst, registry),
+                new TokenBucketLimiter("comment", commentRate, commentBurst, registry),
+                new TokenBucketLimiter("write", writeRate, writeBurst, registry),
+                objectMapper);
+    }
+
+    RateLimitFilter(boolean enabled, TokenBucketLimiter postLimiter, TokenBucketLimiter commentLimiter,
+                    TokenBucketLimiter writeLimiter, ObjectMapper objectMapper) throws IOException {
+        this.enabled = enabled;
+        this.postLimiter = postLimiter;
+        this.commentLimiter = commentLimiter;
+        this.writeLimiter = writeLimiter;
+        this.limitedBody = objectMapper.writeValueAsBytes(ApiResponse.fail("請求過於頻繁，請稍後再試"));
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String method = request.getMethod();
+        return !enabled || "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method)
+                || !request.getServletPath().startsWith("/api/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        Object userId = request.getAttribute("userId");
+        if (userId instanceof Long) {
+            long wait = limiterFor(request.getServletPath()).tryAcquire((Long) userId);
+            if (wait > 0) {
+                reject(response, wait);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private TokenBucketLimiter limiterFor(String path) {
+        if ("/api/post/create".equals(path)) {
+            return postLimiter;
+        }
+        if ("/api/comments/create".equals(path)) {
+            return commentLimiter;
+        }
+        return writeLimiter;
+    }
+
+    private void reject(HttpServletResponse response, long waitNanos) throws IOException {
+        // Retry-After 以秒為單位，無條件進位
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(seconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.setContentLength(limitedBody.length);
+        response.getOutputStream().write(limitedBody);
+    }
+}
@@ -0,0 +1,119 @@
+package com.nanco.social.common.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 每位使用者各自的令牌桶限流
+ * 以 GCRA 表示令牌桶：每位使用者只保存一個「理論到達時間」，取得令牌時以 CAS 更新，不使用鎖
+ * 使用者的桶存放在 ConcurrentHashMap（依鍵分段，讀取不加鎖）中；桶已補滿的使用者與不存在的使用者等價，定期移除
+ */
+public class TokenBucketLimiter {
+
+    private final String name;
+    // 每個令牌的間隔
+    private final long intervalNanos;
+    // 桶滿時可連續取得的時間寬度（容量 × 間隔）
+    private final long burstNanos;
+    private final long sweepIntervalNanos;
+    private final LongSupplier nanoTime;
+
+    // 使用者ID -> 理論到達時間，超過目前時間的部分即已用掉的令牌
+    private final ConcurrentHashMap<Long, AtomicLong> buckets = new ConcurrentHashMap<>();
+    private final AtomicLong nextSweep;
+
+    private final Counter allowed;
+    private final Counter limited;
+
+    public TokenBucketLimiter(String name, double permitsPerSecond, int burst, MeterRegistry registry) {
+        this(name, permitsPerSecond, burst, TimeUnit.SECONDS.toNanos(60), registry, System::nanoTime);
+    }
+
+    TokenBucketLimiter(String name, double permitsPerSecond, int burst, long sweepIntervalNanos,
+                       MeterRegistry registry, LongSupplier nanoTime) {
+        this.name = name;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond);
+        this.burstNanos = intervalNanos * Math.max(1, burst);
+        this.sweepIntervalNanos = sweepIntervalNanos;
+        this.nanoTime = nanoTime;
+        this.nextSweep = new AtomicLong(nanoTime.getAsLong() + sweepIntervalNanos);
+
+        this.allowed = Counter.builder("rate.limit.decisions")
+                .description("限流判斷結果")
+                .tag("class", name)
+                .tag("result", "allowed")
+                .register(registry);
+        this.limited = Counter.builder("rate.limit.decisions")
+                .description("限流判斷結果")
+                .tag("class", name)
+                .tag("result", "limited")
+                .register(registry);
+        Gauge.builder("rate.limit.users", buckets, Map::size)
+                .description("目前保存令牌桶的使用者數")
+                .tag("class", name)
+                .register(registry);
+    }
+
+    /**
+     * 嘗試為使用者取得一個令牌
+     *
+     * @return 取得成功返回 0，否則返回需等待的奈秒數
+     */
+    public long tryAcquire(long userId) {
+        long now = nanoTime.getAsLong();
+        sweepIfDue(now);
+
+        AtomicLong bucket = buckets.get(userId);
+        if (bucket == null) {
+            bucket = buckets.putIfAbsent(userId, new AtomicLong(now + intervalNanos));
+            if (bucket == null) {
+                allowed.increment();
+                return 0;
+            }
+        }
+        while (true) {
+            long tat = bucket.get();
+            long next = Math.max(tat, now) + intervalNanos;
+            long wait = next - now - burstNanos;
+            if (wait > 0) {
+                limited.increment();
+                return wait;
+            }
+            if (bucket.compareAndSet(tat, next)) {
+                allowed.increment();
+                return 0;
+            }
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getTrackedUsers() {
+        return buckets.size();
+    }
+
+    // 由搶到時間點的請求順帶清除，不需要另外的排程執行緒
+    private void sweepIfDue(long now) {
+        long due = nextSweep.get();
+        if (now - due < 0 || !nextSweep.compareAndSet(due, now + sweepIntervalNanos)) {
+            return;
+        }
+        Iterator<Map.Entry<Long, AtomicLong>> iterator = buckets.entrySet().iterator();
+        while (iterator.hasNext()) {
+            // 與同時取得令牌的請求競爭時，最多讓該使用者多取得一個令牌
+            if (iterator.next().getValue().get() - now <= 0) {
+                iterator.remove();
+            }
+        }
+    }
+}
@@ -1,13 +1,18 @@
 package com.nanco.social.common.handler;
 
 import com.nanco.social.common.exception.BusinessException;
+import com.nanco.social.common.exception.ServiceBusyException;
 import com.nanco.social.model.dto.ApiResponse;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseBody;
 
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+
 @ControllerAdvice
 public class GlobalExceptionHandler {
 
@@ -18,6 +23,36 @@ public class GlobalExceptionHandler {
         return new ResponseEntity<>(response, HttpStatus.BAD_REQUEST);
     }
 
+    // 有上限的執行緒池已滿（例如密碼雜湊），請客戶端稍後重試
+    @ExceptionHandler(RejectedExecutionException.class)
+    @ResponseBody
+    public ResponseEntity<ApiResponse<String>> handleRejectedExecutionException(RejectedExecutionException e) {
+        ApiResponse<String> response = ApiResponse.fail("系統忙碌中，請稍後再試");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+    // 寫入未被執行（例如留言批次寫入的佇列已滿或等待逾時），請客戶端稍後重試
+    @ExceptionHandler(ServiceBusyException.class)
+    @ResponseBody
+    public ResponseEntity<ApiResponse<String>> handleServiceBusyException(ServiceBusyException e) {
+        ApiResponse<String> response = ApiResponse.fail(e.getMessage());
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
+    // 工作在執行緒池中超過時間上限（見 Bulkhead），請客戶端稍後重試；寫入只在尚未執行時逾時，重試不會重複寫入
+    @ExceptionHandler(TimeoutException.class)
+    @ResponseBody
+    public ResponseEntity<ApiResponse<String>> handleTimeoutException(TimeoutException e) {
+        ApiResponse<String> response = ApiResponse.fail("處理逾時，請稍後再試");
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .body(response);
+    }
+
     @ExceptionHandler(Exception.class)
     @ResponseBody
     public ResponseEntity<ApiResponse<String>> handleException(Exception e) {
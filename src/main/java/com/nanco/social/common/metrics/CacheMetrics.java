@@ -0,0 +1,68 @@
+package com.nanco.social.common.metrics;
+
+import com.nanco.social.common.util.JwtUtil;
+import com.nanco.social.common.util.VerifiedTokenCache;
+import com.nanco.social.service.cache.FeedCache;
+import com.nanco.social.service.timeline.TimelineService;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * 記憶體快取的命中統計，沿用 Micrometer 快取指標的命名（cache.gets、cache.size、cache.evictions），以 cache 標籤區分
+ * 命中率由監控端計算：rate(cache_gets_total{result="hit"}) / rate(cache_gets_total)
+ */
+@Component
+public class CacheMetrics implements MeterBinder {
+
+    private final JwtUtil jwtUtil;
+    private final FeedCache feedCache;
+    private final TimelineService timelineService;
+
+    @Autowired
+    public CacheMetrics(JwtUtil jwtUtil, FeedCache feedCache, TimelineService timelineService) {
+        this.jwtUtil = jwtUtil;
+        this.feedCache = feedCache;
+        this.timelineService = timelineService;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        VerifiedTokenCache tokenCache = jwtUtil.getTokenCache();
+        gets(registry, "jwt", "hit", tokenCache, VerifiedTokenCache::getHitCount);
+        gets(registry, "jwt", "miss", tokenCache, VerifiedTokenCache::getMissCount);
+        Gauge.builder("cache.size", tokenCache, VerifiedTokenCache::size)
+                .tag("cache", "jwt")
+                .register(registry);
+
+        gets(registry, "feed", "hit", feedCache, FeedCache::getHitCount);
+        gets(registry, "feed", "miss", feedCache, FeedCache::getMissCount);
+        Gauge.builder("cache.size", feedCache, FeedCache::size)
+                .tag("cache", "feed")
+                .register(registry);
+        FunctionCounter.builder("cache.evictions", feedCache, FeedCache::getEvictionCount)
+                .tag("cache", "feed")
+                .register(registry);
+
+        // 首頁動態只記錄重建次數（即未命中），以常駐數量觀察容量是否足夠
+        Gauge.builder("timeline.resident", timelineService, TimelineService::getResidentCount)
+                .description("記憶體中的首頁動態數")
+                .register(registry);
+        FunctionCounter.builder("timeline.rebuilds", timelineService, TimelineService::getRebuildCount)
+                .description("由資料庫重建首頁動態的次數")
+                .register(registry);
+    }
+
+    private static <T> void gets(MeterRegistry registry, String cache, String result,
+                                 T source, ToDoubleFunction<T> count) {
+        FunctionCounter.builder("cache.gets", source, count)
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(registry);
+    }
+}
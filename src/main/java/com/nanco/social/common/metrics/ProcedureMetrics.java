@@ -0,0 +1,98 @@
+package com.nanco.social.common.metrics;
+
+import com.nanco.social.common.resilience.CircuitBreakers;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Stored Procedure 呼叫耗時統計，每個存儲過程各自一組直方圖（依成功或失敗分開）
+ * 另依存儲過程及例外類型計算錯誤次數，資料存取層攔截例外後只返回預設值，需由此計數得知失敗
+ * 每次呼叫皆經過該存儲過程的斷路器，開啟中的呼叫直接拋出 CircuitOpenException，不計入耗時與錯誤
+ */
+@Component
+public class ProcedureMetrics {
+
+    private static final String TIMER_NAME = "db.procedure";
+    private static final String ERROR_COUNTER_NAME = "db.procedure.errors";
+
+    private final MeterRegistry registry;
+    private final CircuitBreakers circuitBreakers;
+
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> errorCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProcedureMetrics(MeterRegistry registry, CircuitBreakers circuitBreakers) {
+        this.registry = registry;
+        this.circuitBreakers = circuitBreakers;
+    }
+
+    /**
+     * 不使用斷路器
+     */
+    public ProcedureMetrics(MeterRegistry registry) {
+        this(registry, CircuitBreakers.disabled());
+    }
+
+    /**
+     * 執行存儲過程呼叫並記錄耗時，例外計數後原樣拋出
+     *
+     * @param procedure 存儲過程名稱
+     * @param call 資料庫呼叫
+     * @return 呼叫結果
+     */
+    public <T> T record(String procedure, Supplier<T> call) {
+        return circuitBreakers.execute(procedure, () -> timed(procedure, call));
+    }
+
+    private <T> T timed(String procedure, Supplier<T> call) {
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            T result = call.get();
+            outcome = "success";
+            return result;
+        } catch (RuntimeException | Error e) {
+            errorCounter(procedure, e).increment();
+            throw e;
+        } finally {
+            timer(procedure, outcome).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 執行沒有返回值的存儲過程呼叫並記錄耗時
+     */
+    public void run(String procedure, Runnable call) {
+        record(procedure, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private Timer timer(String procedure, String outcome) {
+        return timers.computeIfAbsent(procedure + ':' + outcome, key -> Timer.builder(TIMER_NAME)
+                .description("Stored Procedure 呼叫耗時")
+                .tag("procedure", procedure)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+
+    private Counter errorCounter(String procedure, Throwable error) {
+        String exception = error.getClass().getSimpleName();
+        return errorCounters.computeIfAbsent(procedure + ':' + exception, key -> Counter.builder(ERROR_COUNTER_NAME)
+                .description("Stored Procedure 呼叫失敗次數")
+                .tag("procedure", procedure)
+                .tag("exception", exception)
+                .register(registry));
+    }
+}
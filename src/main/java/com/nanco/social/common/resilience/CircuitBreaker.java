@@ -0,0 +1,137 @@
+package com.nanco.social.common.resilience;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.LongSupplier;
+
+/**
+ * 單一存儲過程的斷路器
+ * 關閉：全部放行，以最近 windowSize 次呼叫計算失敗率，達門檻即開啟
+ * 開啟：直接拒絕，不再對資料庫重試；經過 openMillis 後轉為半開
+ * 半開：只放行一個試探呼叫，成功即關閉，失敗則重新開啟
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final String name;
+    private final double failureRateThreshold;
+    private final int minimumCalls;
+    private final long openNanos;
+    private final LongSupplier nanoTime;
+
+    private volatile State state = State.CLOSED;
+    private volatile long openedAt;
+    private final AtomicBoolean probing = new AtomicBoolean();
+
+    // 最近呼叫結果的環狀緩衝，以 this 同步
+    private final boolean[] outcomes;
+    private int index;
+    private int count;
+    private int failures;
+
+    public CircuitBreaker(String name, double failureRateThreshold, int windowSize, int minimumCalls, long openMillis) {
+        this(name, failureRateThreshold, windowSize, minimumCalls, openMillis, System::nanoTime);
+    }
+
+    CircuitBreaker(String name, double failureRateThreshold, int windowSize, int minimumCalls, long openMillis,
+                   LongSupplier nanoTime) {
+        this.name = name;
+        this.failureRateThreshold = failureRateThreshold;
+        this.outcomes = new boolean[windowSize];
+        this.minimumCalls = Math.min(minimumCalls, windowSize);
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMillis);
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * 是否放行這次呼叫；放行後必須以 onSuccess 或 onError 回報結果
+     */
+    public boolean tryAcquire() {
+        State current = state;
+        if (current == State.CLOSED) {
+            return true;
+        }
+        if (current == State.OPEN) {
+            if (nanoTime.getAsLong() - openedAt < openNanos) {
+                return false;
+            }
+            synchronized (this) {
+                if (state == State.OPEN) {
+                    state = State.HALF_OPEN;
+                } else if (state == State.CLOSED) {
+                    return true;
+                }
+            }
+        }
+        return probing.compareAndSet(false, true);
+    }
+
+    public void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            synchronized (this) {
+                resetWindow();
+                state = State.CLOSED;
+            }
+            probing.set(false);
+            return;
+        }
+        record(false);
+    }
+
+    public void onError() {
+        if (state == State.HALF_OPEN) {
+            synchronized (this) {
+                open();
+            }
+            probing.set(false);
+            return;
+        }
+        record(true);
+    }
+
+    private synchronized void record(boolean failed) {
+        if (state != State.CLOSED) {
+            // 開啟前已放行的呼叫較晚回報，不影響目前狀態
+            return;
+        }
+        if (count == outcomes.length) {
+            if (outcomes[index]) {
+                failures--;
+            }
+        } else {
+            count++;
+        }
+        outcomes[index] = failed;
+        if (failed) {
+            failures++;
+        }
+        index = (index + 1) % outcomes.length;
+
+        if (count >= minimumCalls && failures >= failureRateThreshold * count) {
+            open();
+        }
+    }
+
+    private void open() {
+        resetWindow();
+        openedAt = nanoTime.getAsLong();
+        state = State.OPEN;
+    }
+
+    private void resetWindow() {
+        index = 0;
+        count = 0;
+        failures = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public State getState() {
+        return state;
+    }
+}
@@ -0,0 +1,122 @@
+package com.nanco.social.common.resilience;
+
+import com.nanco.social.common.exception.CircuitOpenException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * 每個存儲過程各自一個斷路器，由 ProcedureMetrics 在每次呼叫前後使用
+ * 資料庫故障或逾時時快速失敗，避免所有請求持續重試拖垮資料庫；
+ * 只有資料存取例外（DataAccessException 或由 SQLException 引起）計入失敗，
+ * 違反唯一鍵等由請求內容造成的錯誤，以及呼叫端回呼拋出的例外（例如串流匯出時客戶端中斷）皆不計入
+ */
+@Component
+public class CircuitBreakers {
+
+    private final boolean enabled;
+    private final double failureRateThreshold;
+    private final int windowSize;
+    private final int minimumCalls;
+    private final long openMillis;
+    private final MeterRegistry registry;
+
+    private final Map<String, CircuitBreaker> breakers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> rejectedCounters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public CircuitBreakers(@Value("${circuit-breaker.enabled:true}") boolean enabled,
+                           @Value("${circuit-breaker.failure-rate:0.5}") double failureRateThreshold,
+                           @Value("${circuit-breaker.window-size:20}") int windowSize,
+                           @Value("${circuit-breaker.minimum-calls:10}") int minimumCalls,
+                           @Value("${circuit-breaker.open-ms:5000}") long openMillis,
+                           MeterRegistry registry) {
+        this.enabled = enabled;
+        this.failureRateThreshold = failureRateThreshold;
+        this.windowSize = windowSize;
+        this.minimumCalls = minimumCalls;
+        this.openMillis = openMillis;
+        this.registry = registry;
+    }
+
+    /**
+     * 不使用斷路器，全部放行
+     */
+    public static CircuitBreakers disabled() {
+        return new CircuitBreakers(false, 1, 1, 1, 0, new SimpleMeterRegistry());
+    }
+
+    /**
+     * 經由該存儲過程的斷路器執行呼叫
+     *
+     * @throws CircuitOpenException 斷路器開啟中，未呼叫資料庫
+     */
+    public <T> T execute(String procedure, Supplier<T> call) {
+        if (!enabled) {
+            return call.get();
+        }
+        CircuitBreaker breaker = breaker(procedure);
+        if (!breaker.tryAcquire()) {
+            rejectedCounter(procedure).increment();
+            throw new CircuitOpenException(procedure);
+        }
+        try {
+            T result = call.get();
+            breaker.onSuccess();
+            return result;
+        } catch (RuntimeException | Error e) {
+            if (isDatabaseFailure(e)) {
+                breaker.onError();
+            } else {
+                breaker.onSuccess();
+            }
+            throw e;
+        }
+    }
+
+    static boolean isDatabaseFailure(Throwable error) {
+        if (error instanceof DataIntegrityViolationException) {
+            return false;
+        }
+        if (error instanceof DataAccessException) {
+            return true;
+        }
+        for (Throwable cause = error.getCause(); cause != null && cause != error; cause = cause.getCause()) {
+            if (cause instanceof SQLException) {
+                return true;
+            }
+            error = cause;
+        }
+        return false;
+    }
+
+    public CircuitBreaker breaker(String procedure) {
+        return breakers.computeIfAbsent(procedure, key -> {
+            CircuitBreaker breaker = new CircuitBreaker(key, failureRateThreshold, windowSize, minimumCalls, openMillis);
+            // 0：關閉，1：開啟，2：半開
+            Gauge.builder("db.circuit.state", breaker, b -> b.getState().ordinal())
+                    .description("存儲過程斷路器狀態")
+                    .tag("procedure", key)
+                    .register(registry);
+            return breaker;
+        });
+    }
+
+    private Counter rejectedCounter(String procedure) {
+        return rejectedCounters.computeIfAbsent(procedure, key -> Counter.builder("db.circuit.rejected")
+                .description("斷路器開啟而未呼叫資料庫的次數")
+                .tag("procedure", key)
+                .register(registry));
+    }
+}
@@ -0,0 +1,241 @@
+package com.nanco.social.common.resilience;
+
+import com.nanco.social.common.async.RequestContextTaskDecorator;
+import com.nanco.social.common.datasource.ReplicaRouter;
+import com.nanco.social.common.util.StaleResponses;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 讀取查詢的過期資料備援（stale-while-revalidate）
+ * 保存每組參數上次成功的結果；資料庫正常時（斷路器關閉）查詢直接在呼叫端的執行緒執行，失敗時改返回上次的結果，
+ * 只有斷路器未關閉或該組參數上次查詢超過 latencyBudgetMillis 時，才交由背景執行緒執行並最多等待 latencyBudgetMillis，
+ * 失敗或超過等待時間時返回上次的結果並標記請求為過期資料；
+ * 逾時的查詢繼續在背景完成並更新保存的結果，同一組參數同時只有一個背景查詢，在時間內完成後恢復直接查詢
+ * 沒有可用的舊結果時直接查詢並原樣拋出例外，由資料存取層照舊處理
+ */
+@Component
+public class StaleWhileRevalidate implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(StaleWhileRevalidate.class);
+
+    private final long latencyBudgetMillis;
+    private final long maxStaleNanos;
+    private final int maxEntries;
+    private final ReplicaRouter replicaRouter;
+    private final CircuitBreakers circuitBreakers;
+    private final MeterRegistry registry;
+    private final ThreadPoolTaskExecutor refreshExecutor;
+
+    // 以 entries 本身同步，依存取順序淘汰
+    private final LinkedHashMap<List<Object>, Entry> entries;
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<Object>> refreshes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public StaleWhileRevalidate(@Value("${stale-while-revalidate.latency-budget-ms:500}") long latencyBudgetMillis,
+                                @Value("${stale-while-revalidate.max-stale-ms:600000}") long maxStaleMillis,
+                                @Value("${stale-while-revalidate.max-entries:1000}") int maxEntries,
+                                @Value("${stale-while-revalidate.refresh-threads:4}") int refreshThreads,
+                                @Value("${stale-while-revalidate.refresh-queue-capacity:100}") int refreshQueueCapacity,
+                                ReplicaRouter replicaRouter,
+                                CircuitBreakers circuitBreakers,
+                                MeterRegistry registry) {
+        this.latencyBudgetMillis = latencyBudgetMillis;
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleMillis);
+        this.maxEntries = maxEntries;
+        this.replicaRouter = replicaRouter;
+        this.circuitBreakers = circuitBreakers;
+        this.registry = registry;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<List<Object>, Entry> eldest) {
+                return size() > StaleWhileRevalidate.this.maxEntries;
+            }
+        };
+
+        this.refreshExecutor = new ThreadPoolTaskExecutor();
+        refreshExecutor.setCorePoolSize(refreshThreads);
+        refreshExecutor.setMaxPoolSize(refreshThreads);
+        refreshExecutor.setQueueCapacity(refreshQueueCapacity);
+        refreshExecutor.setThreadNamePrefix("stale-refresh-");
+        // 背景查詢沿用發起請求的讀取路由
+        refreshExecutor.setTaskDecorator(new RequestContextTaskDecorator());
+        refreshExecutor.initialize();
+        new ExecutorServiceMetrics(refreshExecutor.getThreadPoolExecutor(), "stale-refresh", "bulkhead", Tags.empty())
+                .bindTo(registry);
+    }
+
+    /**
+     * 執行讀取查詢，必要時改返回上次成功的結果
+     *
+     * @param procedure 存儲過程名稱，用於區分不同查詢及統計
+     * @param loader 實際查詢
+     * @param args 查詢參數，可包含 null
+     * @return 查詢結果，可能為保存的舊結果，呼叫端不可修改
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T read(String procedure, Supplier<T> loader, Object... args) {
+        List<Object> key = new ArrayList<>(args.length + 2);
+        key.add(procedure);
+        key.add(replicaRouter.readsPrimary());
+        key.addAll(Arrays.asList(args));
+
+        Entry stale = usableEntry(key);
+        if (stale == null) {
+            long start = System.nanoTime();
+            T result = loader.get();
+            store(key, result, start);
+            counter(procedure, "fresh").increment();
+            return result;
+        }
+
+        if (circuitBreakers.breaker(procedure).getState() == CircuitBreaker.State.CLOSED && !stale.slow) {
+            return readInline(procedure, key, loader, stale);
+        }
+
+        CompletableFuture<Object> refresh = new CompletableFuture<>();
+        CompletableFuture<Object> existing = refreshes.putIfAbsent(key, refresh);
+        if (existing == null) {
+            try {
+                startRefresh(procedure, key, loader, refresh);
+            } catch (RejectedExecutionException e) {
+                refreshes.remove(key, refresh);
+                return serveStale(procedure, stale, "rejected");
+            }
+        } else {
+            refresh = existing;
+        }
+        try {
+            T result = (T) refresh.get(latencyBudgetMillis, TimeUnit.MILLISECONDS);
+            counter(procedure, "fresh").increment();
+            return result;
+        } catch (TimeoutException e) {
+            // 背景查詢繼續執行，完成後更新保存的結果
+            return serveStale(procedure, stale, "slow");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return serveStale(procedure, stale, "slow");
+        } catch (ExecutionException e) {
+            return serveStale(procedure, stale, "error");
+        }
+    }
+
+    // 資料庫正常時直接查詢，不佔用背景執行緒；超過等待時間的參數之後改由背景查詢
+    private <T> T readInline(String procedure, List<Object> key, Supplier<T> loader, Entry stale) {
+        long start = System.nanoTime();
+        T result;
+        try {
+            result = loader.get();
+        } catch (RuntimeException e) {
+            log.warn("{} 查詢失敗，改用上次的結果：{}", procedure, e.getMessage());
+            return serveStale(procedure, stale, "error");
+        }
+        store(key, result, start);
+        counter(procedure, "fresh").increment();
+        return result;
+    }
+
+    private void startRefresh(String procedure, List<Object> key, Supplier<?> loader,
+                              CompletableFuture<Object> refresh) {
+        refreshExecutor.execute(() -> {
+            // 先移除再通知等待者，等待者返回後的下一個請求會開始新的查詢，不會取得這次的結果
+            long start = System.nanoTime();
+            try {
+                Object result = loader.get();
+                store(key, result, start);
+                refreshes.remove(key, refresh);
+                refresh.complete(result);
+            } catch (RuntimeException | Error e) {
+                log.warn("{} 查詢失敗，改用上次的結果：{}", procedure, e.getMessage());
+                refreshes.remove(key, refresh);
+                refresh.completeExceptionally(e);
+            }
+        });
+    }
+
+    private <T> T serveStale(String procedure, Entry stale, String reason) {
+        counter(procedure, "stale-" + reason).increment();
+        StaleResponses.mark(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - stale.loadedAt));
+        @SuppressWarnings("unchecked")
+        T value = (T) stale.value;
+        return value;
+    }
+
+    private Entry usableEntry(List<Object> key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.nanoTime() - entry.loadedAt > maxStaleNanos) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+    // 查詢超過 latencyBudgetMillis 時標記，之後該組參數改由背景執行緒查詢，直到在時間內完成
+    private void store(List<Object> key, Object value, long start) {
+        long now = System.nanoTime();
+        Entry entry = new Entry(value, now, now - start > TimeUnit.MILLISECONDS.toNanos(latencyBudgetMillis));
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * 目前保存的結果數
+     */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    // fresh：返回最新結果；stale-error / stale-slow / stale-rejected：因失敗、逾時或背景執行緒已滿而返回舊結果
+    private Counter counter(String procedure, String result) {
+        return counters.computeIfAbsent(procedure + ':' + result, key -> Counter.builder("stale.reads")
+                .description("讀取查詢返回最新或過期結果的次數")
+                .tag("procedure", procedure)
+                .tag("result", result)
+                .register(registry));
+    }
+
+    @Override
+    public void close() {
+        refreshExecutor.shutdown();
+    }
+
+    private static final class Entry {
+
+        private final Object value;
+        private final long loadedAt;
+        private final boolean slow;
+
+        private Entry(Object value, long loadedAt, boolean slow) {
+            this.value = value;
+            this.loadedAt = loadedAt;
+            this.slow = slow;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.nanco.social.common.security;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 密碼雜湊：以 BCrypt（每個使用者各自的鹽，成本可設定）在應用程式內計算，不佔用資料庫 CPU
+ * 雜湊在專用且有上限的執行緒池執行，大量登入時排隊或拒絕，不會佔滿處理其他請求的執行緒
+ * 仍可驗證舊版 SHA2(密碼 + 'salt123') 的雜湊，驗證成功後由呼叫端改存為 BCrypt
+ */
+@Component
+public class PasswordHasher implements AutoCloseable {
+
+    /**
+     * 密碼驗證結果
+     */
+    public enum Verification {
+        MISMATCH,
+        MATCH,
+        // 密碼正確，但雜湊為舊版格式或成本低於目前設定，應重新雜湊後儲存
+        MATCH_NEEDS_REHASH
+    }
+
+    private static final String LEGACY_SALT = "salt123";
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    // 帳號不存在時仍比對一次，回應時間不透露帳號是否存在
+    private final String dummyHash;
+
+    private final Timer hashTimer;
+    private final Timer verifyTimer;
+
+    @Autowired
+    public PasswordHasher(@Value("${security.password.bcrypt-strength:10}") int strength,
+                          @Value("${security.password.threads:0}") int threads,
+                          @Value("${security.password.queue-capacity:200}") int queueCapacity,
+                          MeterRegistry registry) {
+        this.encoder = new BCryptPasswordEncoder(strength);
+        int poolSize = threads > 0 ? threads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "password-hash-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.AbortPolicy());
+        this.dummyHash = encoder.encode("dummy-password");
+
+        this.hashTimer = Timer.builder("password.hash")
+                .description("密碼雜湊計算時間")
+                .tag("operation", "hash")
+                .register(registry);
+        this.verifyTimer = Timer.builder("password.hash")
+                .description("密碼雜湊計算時間")
+                .tag("operation", "verify")
+                .register(registry);
+        Gauge.builder("password.hash.queue", executor, e -> e.getQueue().size())
+                .description("等待計算的密碼雜湊數")
+                .register(registry);
+    }
+
+    /**
+     * 以 BCrypt 雜湊密碼
+     *
+     * @throws RejectedExecutionException 等待中的雜湊已達上限
+     */
+    public CompletableFuture<String> hash(String rawPassword) {
+        return submit(hashTimer, () -> encoder.encode(rawPassword));
+    }
+
+    /**
+     * 比對密碼與儲存的雜湊
+     *
+     * @param storedHash 儲存的雜湊，帳號不存在時傳入 null
+     * @throws RejectedExecutionException 等待中的雜湊已達上限
+     */
+    public CompletableFuture<Verification> verify(String rawPassword, String storedHash) {
+        return submit(verifyTimer, () -> {
+            if (storedHash == null) {
+                encoder.matches(rawPassword, dummyHash);
+                return Verification.MISMATCH;
+            }
+            if (!isBcrypt(storedHash)) {
+                return matchesLegacy(rawPassword, storedHash) ? Verification.MATCH_NEEDS_REHASH : Verification.MISMATCH;
+            }
+            if (!encoder.matches(rawPassword, storedHash)) {
+                return Verification.MISMATCH;
+            }
+            return encoder.upgradeEncoding(storedHash) ? Verification.MATCH_NEEDS_REHASH : Verification.MATCH;
+        });
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    private <T> CompletableFuture<T> submit(Timer timer, Supplier<T> task) {
+        return CompletableFuture.supplyAsync(() -> timer.record(task), executor);
+    }
+
+    private static boolean isBcrypt(String storedHash) {
+        return storedHash.startsWith("$2");
+    }
+
+    // 舊版由 sp_create_user 以 SHA2(CONCAT(密碼, 'salt123'), 256) 計算，儲存為小寫十六進位
+    private static boolean matchesLegacy(String rawPassword, String storedHash) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest((rawPassword + LEGACY_SALT).getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return MessageDigest.isEqual(hex.toString().getBytes(StandardCharsets.US_ASCII),
+                    storedHash.toLowerCase().getBytes(StandardCharsets.US_ASCII));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
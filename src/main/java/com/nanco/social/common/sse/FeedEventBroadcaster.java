@@ -0,0 +1,369 @@
+package com.nanco.social.common.sse;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nanco.social.common.exception.BusinessException;
+import com.nanco.social.model.dto.FeedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+/**
+ * 發文動態即時推送（Server-Sent Events）
+ * 連線建立後即交還 Servlet 執行緒，閒置連線不佔用任何執行緒；
+ * 每個事件只序列化一次，放入各連線的有界佇列後由共用的少量執行緒寫出，
+ * 佇列已滿代表客戶端跟不上，直接中斷該連線，客戶端重新連線後再重新載入列表
+ * 寫入請求發布事件時只交給分派執行緒（一次入列），序列化與逐一放入各連線佇列皆不在寫入的執行緒上進行；
+ * 分派執行緒只有一個，事件依發布順序送出
+ * 寫出是阻塞的 Servlet 寫入，不再讀取的客戶端會佔住寫出執行緒；單次寫出超過 send-timeout-ms 的連線即移除，
+ * 並暫時增加一個寫出執行緒補上被佔住的執行緒（最多 max-stalled-senders 個），其他連線的寫出不受影響
+ */
+@Component
+public class FeedEventBroadcaster {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedEventBroadcaster.class);
+
+    // 與 MVC 預設的 JSON 轉換器使用相同設定，確保輸出格式一致
+    private static final ObjectWriter EVENT_WRITER = Jackson2ObjectMapperBuilder.json().build()
+            .writerFor(FeedEvent.class);
+
+    // 心跳訊框，維持經過代理伺服器的閒置連線並及早發現已斷線的客戶端
+    private static final Frame HEARTBEAT = new Frame(null, null);
+
+    private final int bufferSize;
+    private final int maxConnections;
+    private final long reconnectMillis;
+    private final long sendTimeoutNanos;
+    private final int senderThreads;
+    private final int maxStalledSenders;
+    private final Supplier<SseEmitter> emitterFactory;
+
+    private final Map<Long, Subscriber> subscribers = new ConcurrentHashMap<>();
+    private final AtomicLong nextSubscriberId = new AtomicLong();
+
+    private final ExecutorService dispatcher;
+    private final ThreadPoolExecutor sender;
+    // 被卡住的寫出佔用的執行緒數，以 this 同步
+    private int stalledSenders;
+    private final ScheduledExecutorService heartbeat;
+
+    private final Counter droppedCounter;
+    private final Counter stalledCounter;
+
+    @Autowired
+    public FeedEventBroadcaster(MeterRegistry registry,
+                                @Value("${feed.stream.buffer-size:64}") int bufferSize,
+                                @Value("${feed.stream.max-connections:20000}") int maxConnections,
+                                @Value("${feed.stream.timeout-ms:1800000}") long timeoutMillis,
+                                @Value("${feed.stream.reconnect-ms:3000}") long reconnectMillis,
+                                @Value("${feed.stream.heartbeat-ms:25000}") long heartbeatMillis,
+                                @Value("${feed.stream.sender-threads:2}") int senderThreads,
+                                @Value("${feed.stream.send-timeout-ms:2000}") long sendTimeoutMillis,
+                                @Value("${feed.stream.max-stalled-senders:16}") int maxStalledSenders) {
+        this(registry, bufferSize, maxConnections, timeoutMillis, reconnectMillis, heartbeatMillis, senderThreads,
+                sendTimeoutMillis, maxStalledSenders, () -> new SseEmitter(timeoutMillis));
+    }
+
+    FeedEventBroadcaster(MeterRegistry registry, int bufferSize, int maxConnections, long timeoutMillis,
+                         long reconnectMillis, long heartbeatMillis, int senderThreads, long sendTimeoutMillis,
+                         int maxStalledSenders, Supplier<SseEmitter> emitterFactory) {
+        this.bufferSize = bufferSize;
+        this.maxConnections = maxConnections;
+        this.reconnectMillis = reconnectMillis;
+        this.sendTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeoutMillis);
+        this.senderThreads = senderThreads;
+        this.maxStalledSenders = maxStalledSenders;
+        this.emitterFactory = emitterFactory;
+        this.dispatcher = Executors.newSingleThreadExecutor(daemon("feed-stream-dispatch"));
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), daemon("feed-stream-sender"));
+        this.heartbeat = Executors.newSingleThreadScheduledExecutor(daemon("feed-stream-heartbeat"));
+        this.heartbeat.scheduleAtFixedRate(() -> enqueueAll(HEARTBEAT),
+                heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        long checkMillis = Math.max(sendTimeoutMillis / 2, 10);
+        this.heartbeat.scheduleAtFixedRate(this::removeStalledSubscribers,
+                checkMillis, checkMillis, TimeUnit.MILLISECONDS);
+
+        Gauge.builder("feed.stream.connections", subscribers, Map::size)
+                .description("即時推送連線數")
+                .register(registry);
+        this.droppedCounter = Counter.builder("feed.stream.dropped")
+                .description("因緩衝區已滿而中斷的即時推送連線數")
+                .register(registry);
+        this.stalledCounter = Counter.builder("feed.stream.stalled")
+                .description("因寫出超過時間上限而中斷的即時推送連線數")
+                .register(registry);
+    }
+
+    /**
+     * 建立新的即時推送連線
+     *
+     * @return SSE 連線
+     * @throws BusinessException 連線數已達上限
+     */
+    public SseEmitter subscribe() {
+        if (subscribers.size() >= maxConnections) {
+            throw new BusinessException("即時連線數已達上限，請稍後再試");
+        }
+        Long id = nextSubscriberId.incrementAndGet();
+        Subscriber subscriber = new Subscriber(id, emitterFactory.get(), bufferSize);
+        subscriber.emitter.onCompletion(() -> subscribers.remove(id));
+        subscriber.emitter.onTimeout(() -> remove(subscriber));
+        subscriber.emitter.onError(e -> remove(subscriber));
+        subscribers.put(id, subscriber);
+
+        // 第一個訊框告知客戶端重新連線間隔，同時讓代理伺服器立即轉送回應標頭
+        subscriber.offer(HEARTBEAT);
+        schedule(subscriber);
+        return subscriber.emitter;
+    }
+
+    /**
+     * 服務層寫入成功後發布的事件，交由分派執行緒序列化一次後分送給所有連線
+     */
+    @EventListener
+    public void broadcast(FeedEvent event) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        try {
+            dispatcher.execute(() -> dispatch(event));
+        } catch (RejectedExecutionException e) {
+            // 關閉中，不再推送
+        }
+    }
+
+    private void dispatch(FeedEvent event) {
+        String json;
+        try {
+            json = EVENT_WRITER.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            log.error("無法序列化發文事件", e);
+            return;
+        }
+        enqueueAll(new Frame(event.getType(), json));
+    }
+
+    public int getConnectionCount() {
+        return subscribers.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        heartbeat.shutdownNow();
+        dispatcher.shutdownNow();
+        sender.shutdownNow();
+        for (Subscriber subscriber : subscribers.values()) {
+            subscriber.emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    private void enqueueAll(Frame frame) {
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.offer(frame)) {
+                schedule(subscriber);
+            } else {
+                // 緩衝區已滿，慢速客戶端不得拖累其他連線
+                droppedCounter.increment();
+                remove(subscriber);
+            }
+        }
+    }
+
+    // 每個連線同一時間最多只有一個寫出任務，確保訊框依序送出
+    private void schedule(Subscriber subscriber) {
+        if (subscriber.scheduled.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(subscriber));
+            } catch (RuntimeException e) {
+                // 關閉中，執行緒池不再接受任務
+                subscriber.scheduled.set(false);
+            }
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        boolean closeAfterSend = false;
+        try {
+            Frame frame;
+            while ((frame = subscriber.queue.poll()) != null && subscriber.beginSend()) {
+                try {
+                    if (frame == HEARTBEAT) {
+                        subscriber.emitter.send(SseEmitter.event().reconnectTime(reconnectMillis).comment("keepalive"));
+                    } else {
+                        subscriber.emitter.send(SseEmitter.event().name(frame.name).data(frame.data, MediaType.APPLICATION_JSON));
+                    }
+                } finally {
+                    closeAfterSend = subscriber.endSend();
+                }
+                if (closeAfterSend) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            // 客戶端已斷線
+            remove(subscriber);
+        } finally {
+            subscriber.scheduled.set(false);
+        }
+        if (closeAfterSend) {
+            // 寫出期間已被移除，寫出結束後才能關閉連線，並歸還補上的寫出執行緒
+            if (subscriber.replacedSender) {
+                releaseStalledSender();
+            }
+            subscriber.emitter.complete();
+            return;
+        }
+        // 釋放旗標後若有新訊框進入，由本執行緒繼續處理，避免遺漏
+        if (!subscriber.queue.isEmpty()) {
+            schedule(subscriber);
+        }
+    }
+
+    // 單次寫出超過時間上限的連線視為已卡住：移除連線，並增加一個寫出執行緒取代被佔住的執行緒
+    private void removeStalledSubscribers() {
+        long now = System.nanoTime();
+        for (Subscriber subscriber : subscribers.values()) {
+            if (subscriber.sendingLongerThan(now, sendTimeoutNanos) && subscribers.remove(subscriber.id) != null) {
+                subscriber.queue.clear();
+                stalledCounter.increment();
+                if (subscriber.evict(this::acquireStalledSender)) {
+                    subscriber.emitter.complete();
+                }
+            }
+        }
+    }
+
+    private synchronized boolean acquireStalledSender() {
+        if (stalledSenders >= maxStalledSenders) {
+            return false;
+        }
+        stalledSenders++;
+        sender.setMaximumPoolSize(senderThreads + stalledSenders);
+        sender.setCorePoolSize(senderThreads + stalledSenders);
+        return true;
+    }
+
+    private synchronized void releaseStalledSender() {
+        stalledSenders--;
+        sender.setCorePoolSize(senderThreads + stalledSenders);
+        sender.setMaximumPoolSize(senderThreads + stalledSenders);
+    }
+
+    // SseEmitter 的寫出與關閉使用同一個鎖，寫出中的連線不在此關閉，以免呼叫端跟著被卡住
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber.id) != null) {
+            subscriber.queue.clear();
+            if (subscriber.evict(() -> false)) {
+                subscriber.emitter.complete();
+            }
+        }
+    }
+
+    private static ThreadFactory daemon(String name) {
+        AtomicInteger sequence = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static final class Frame {
+        private final String name;
+        private final String data;
+
+        private Frame(String name, String data) {
+            this.name = name;
+            this.data = data;
+        }
+    }
+
+    private static final class Subscriber {
+        private final Long id;
+        private final SseEmitter emitter;
+        private final BlockingQueue<Frame> queue;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        // 以下欄位以 this 同步
+        // 目前寫出開始的時間，未在寫出時為 0
+        private long sendingSince;
+        private boolean removed;
+        // 寫出期間被移除，由寫出的執行緒在寫出結束後關閉連線
+        private boolean closeAfterSend;
+        // 已為此連線補上一個寫出執行緒
+        private boolean replacedSender;
+
+        private Subscriber(Long id, SseEmitter emitter, int bufferSize) {
+            this.id = id;
+            this.emitter = emitter;
+            this.queue = new ArrayBlockingQueue<>(bufferSize);
+        }
+
+        private boolean offer(Frame frame) {
+            return queue.offer(frame);
+        }
+
+        private synchronized boolean beginSend() {
+            if (removed) {
+                return false;
+            }
+            sendingSince = System.nanoTime();
+            return true;
+        }
+
+        /**
+         * @return 寫出期間已被移除，需由呼叫端關閉連線
+         */
+        private synchronized boolean endSend() {
+            sendingSince = 0;
+            return closeAfterSend;
+        }
+
+        private synchronized boolean sendingLongerThan(long now, long nanos) {
+            return sendingSince != 0 && now - sendingSince >= nanos;
+        }
+
+        /**
+         * @param replaceSender 寫出中時是否補上一個寫出執行緒
+         * @return 未在寫出中，由呼叫端立即關閉連線
+         */
+        private synchronized boolean evict(BooleanSupplier replaceSender) {
+            removed = true;
+            if (sendingSince == 0) {
+                return true;
+            }
+            closeAfterSend = true;
+            replacedSender = replaceSender.getAsBoolean();
+            return false;
+        }
+    }
+}
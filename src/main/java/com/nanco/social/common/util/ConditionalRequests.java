@@ -0,0 +1,76 @@
+package com.nanco.social.common.util;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.context.request.ServletWebRequest;
+
+import javax.servlet.http.HttpServletResponse;
+import java.util.List;
+
+/**
+ * 條件式 GET 請求處理
+ */
+public final class ConditionalRequests {
+
+    // 允許瀏覽器保存回應，但每次使用前都需以 If-None-Match 向伺服器確認
+    private static final String REVALIDATE = "private, no-cache";
+
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+    private static final MediaType CBOR = MediaType.valueOf("application/cbor");
+
+    private ConditionalRequests() {
+    }
+
+    /**
+     * 設定 ETag 並比對 If-None-Match，相符時回應已設為 304，呼叫端應直接返回不再讀取資料
+     * 同一網址依 Accept 可能返回 JSON、Smile 或 CBOR，不同格式使用不同的 ETag
+     *
+     * @param webRequest 目前的請求
+     * @param etag 讀取資料前取得的弱 ETag，null 代表內容無法以版本號辨識，回應不可由瀏覽器保存
+     * @return 客戶端的資料是否仍為最新
+     */
+    public static boolean notModified(ServletWebRequest webRequest, String etag) {
+        HttpServletResponse response = webRequest.getResponse();
+        if (etag == null) {
+            if (response != null) {
+                response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+            }
+            return false;
+        }
+        if (response != null) {
+            response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE);
+            response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        }
+        String format = format(webRequest.getHeader(HttpHeaders.ACCEPT));
+        String representationETag = format.isEmpty()
+                ? etag
+                : etag.substring(0, etag.length() - 1) + "-" + format + "\"";
+        return webRequest.checkNotModified(representationETag);
+    }
+
+    // 依 Accept 判斷回應格式，未明確要求二進位格式時皆為 JSON
+    private static String format(String accept) {
+        if (accept == null || accept.isEmpty()) {
+            return "";
+        }
+        List<MediaType> mediaTypes;
+        try {
+            mediaTypes = MediaType.parseMediaTypes(accept);
+        } catch (RuntimeException e) {
+            return "";
+        }
+        MediaType.sortBySpecificityAndQuality(mediaTypes);
+        for (MediaType mediaType : mediaTypes) {
+            if (mediaType.isCompatibleWith(MediaType.APPLICATION_JSON)) {
+                return "";
+            }
+            if (SMILE.equalsTypeAndSubtype(mediaType)) {
+                return "smile";
+            }
+            if (CBOR.equalsTypeAndSubtype(mediaType)) {
+                return "cbor";
+            }
+        }
+        return "";
+    }
+}
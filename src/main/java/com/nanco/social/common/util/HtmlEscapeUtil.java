@@ -1,7 +1,12 @@
 package com.nanco.social.common.util;
 
+import java.io.IOException;
+import java.io.Writer;
+
 /**
  * 要求：需防止SQL Injection 以及XSS 攻擊 - HTML轉義工具類，用於防止XSS攻擊
+ * 大多數內容不含需轉義的字元，先掃描一次，沒有特殊字元時直接返回原字串；
+ * 有特殊字元時整段複製其間不需轉義的片段，不逐字附加
  */
 public class HtmlEscapeUtil {
 
@@ -9,38 +14,97 @@ public class HtmlEscapeUtil {
      * 要求：需防止SQL Injection 以及XSS 攻擊 - 轉義HTML特殊字符
      * 
      * @param input 輸入字符串
-     * @return 轉義後的字符串
+     * @return 轉義後的字符串，不需轉義時返回同一個字串物件
      */
     public static String escape(String input) {
         if (input == null) {
             return null;
         }
 
-        StringBuilder escaped = new StringBuilder(input.length());
-
-        for (int i = 0; i < input.length(); i++) {
-            char c = input.charAt(i);
-            switch (c) {
-                case '<':
-                    escaped.append("&lt;");
-                    break;
-                case '>':
-                    escaped.append("&gt;");
-                    break;
-                case '"':
-                    escaped.append("&quot;");
-                    break;
-                case '\'':
-                    escaped.append("&#x27;");
-                    break;
-                case '&':
-                    escaped.append("&amp;");
-                    break;
-                default:
-                    escaped.append(c);
-            }
+        int first = indexOfSpecial(input, 0);
+        if (first < 0) {
+            return input;
         }
 
+        // 預留少量空間給轉義後增加的長度
+        StringBuilder escaped = new StringBuilder(input.length() + 16);
+        escaped.append(input, 0, first);
+        try {
+            appendEscaped(input, first, escaped);
+        } catch (IOException e) {
+            // StringBuilder 不會拋出 IOException
+            throw new IllegalStateException(e);
+        }
         return escaped.toString();
     }
+
+    /**
+     * 轉義後直接寫入呼叫端提供的緩衝區或 Writer，不建立中間字串，供序列化時邊輸出邊轉義
+     *
+     * @param input 輸入字符串，null 時不寫入任何內容
+     * @param out 輸出目標，例如 StringBuilder 或 Writer
+     * @throws IOException 寫入失敗
+     */
+    public static void escape(String input, Appendable out) throws IOException {
+        if (input == null) {
+            return;
+        }
+        appendEscaped(input, 0, out);
+    }
+
+    private static void appendEscaped(String input, int from, Appendable out) throws IOException {
+        int runStart = from;
+        int length = input.length();
+        for (int i = from; i < length; i++) {
+            String replacement = replacement(input.charAt(i));
+            if (replacement != null) {
+                appendRun(input, runStart, i, out);
+                out.append(replacement);
+                runStart = i + 1;
+            }
+        }
+        appendRun(input, runStart, length, out);
+    }
+
+    // Writer.append(CharSequence, int, int) 會先建立子字串，改用 write 直接複製
+    private static void appendRun(String input, int start, int end, Appendable out) throws IOException {
+        if (start >= end) {
+            return;
+        }
+        if (out instanceof Writer) {
+            ((Writer) out).write(input, start, end - start);
+        } else {
+            out.append(input, start, end);
+        }
+    }
+
+    private static int indexOfSpecial(String input, int from) {
+        for (int i = from; i < input.length(); i++) {
+            if (replacement(input.charAt(i)) != null) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String replacement(char c) {
+        // 需轉義的字元都不大於 '>'，中文等字元只需一次比較
+        if (c > '>') {
+            return null;
+        }
+        switch (c) {
+            case '<':
+                return "&lt;";
+            case '>':
+                return "&gt;";
+            case '"':
+                return "&quot;";
+            case '\'':
+                return "&#x27;";
+            case '&':
+                return "&amp;";
+            default:
+                return null;
+        }
+    }
 }
@@ -0,0 +1,42 @@
+package com.nanco.social.common.util;
+
+import java.util.Date;
+
+/**
+ * JWT令牌驗證通過後的使用者身份（不可變）
+ */
+public final class JwtPrincipal {
+
+    private final Long userId;
+    private final String userName;
+    private final long expiresAtMillis;
+
+    public JwtPrincipal(Long userId, String userName, long expiresAtMillis) {
+        this.userId = userId;
+        this.userName = userName;
+        this.expiresAtMillis = expiresAtMillis;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public String getUserName() {
+        return userName;
+    }
+
+    public Date getExpiration() {
+        return new Date(expiresAtMillis);
+    }
+
+    public long getExpiresAtMillis() {
+        return expiresAtMillis;
+    }
+
+    /**
+     * 判斷令牌在指定時間是否已過期
+     */
+    public boolean isExpiredAt(long nowMillis) {
+        return expiresAtMillis <= nowMillis;
+    }
+}
@@ -1,6 +1,7 @@
 package com.nanco.social.common.util;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -19,29 +20,72 @@ public class JwtUtil {
     // 使用安全的密鑰生成方式
     private static final Key SECRET_KEY = Keys.secretKeyFor(SignatureAlgorithm.HS256);
 
-    @Value("${jwt.expiration:86400000}")
-    private long jwtExpiration; // 默認24小時
+    // 解析器不可變且執行緒安全，所有請求共用同一個實例
+    private static final JwtParser PARSER = Jwts.parserBuilder()
+            .setSigningKey(SECRET_KEY)
+            .build();
+
+    private final long jwtExpiration;
+
+    private final VerifiedTokenCache tokenCache;
+
+    public JwtUtil(@Value("${jwt.expiration:86400000}") long jwtExpiration, // 默認24小時
+                   @Value("${jwt.cache.max-size:10000}") int tokenCacheMaxSize) {
+        this.jwtExpiration = jwtExpiration;
+        this.tokenCache = new VerifiedTokenCache(tokenCacheMaxSize);
+    }
+
+    /**
+     * 驗證JWT令牌並一次取得使用者身份，已驗證過且未過期的令牌直接由快取返回
+     *
+     * @param token JWT令牌
+     * @return 使用者身份
+     * @throws io.jsonwebtoken.JwtException 令牌無效或已過期
+     */
+    public JwtPrincipal verify(String token) {
+        long now = System.currentTimeMillis();
+        JwtPrincipal cached = tokenCache.get(token, now);
+        if (cached != null) {
+            return cached;
+        }
+
+        // 解析時即驗證簽章與到期時間
+        Claims claims = extractAllClaims(token);
+        JwtPrincipal principal = new JwtPrincipal(
+                Long.valueOf(claims.get("userId").toString()),
+                claims.get("userName", String.class),
+                claims.getExpiration().getTime()
+        );
+        tokenCache.put(token, principal, now);
+        return principal;
+    }
+
+    /**
+     * 已驗證令牌快取，用於統計命中率
+     */
+    public VerifiedTokenCache getTokenCache() {
+        return tokenCache;
+    }
 
     /**
      * 從JWT令牌中提取用戶ID
      */
     public Long extractUserId(String token) {
-        final Claims claims = extractAllClaims(token);
-        return Long.valueOf(claims.get("userId").toString());
+        return verify(token).getUserId();
     }
 
     /**
      * 從JWT令牌中提取用戶名
      */
     public String extractUserName(String token) {
-        return extractClaim(token, claims -> claims.get("userName", String.class));
+        return verify(token).getUserName();
     }
 
     /**
      * 從JWT令牌中提取到期時間
      */
     public Date extractExpiration(String token) {
-        return extractClaim(token, Claims::getExpiration);
+        return verify(token).getExpiration();
     }
 
     /**
@@ -56,18 +100,7 @@ public class JwtUtil {
      * 提取JWT令牌中的所有聲明
      */
     private Claims extractAllClaims(String token) {
-        return Jwts.parserBuilder()
-                .setSigningKey(SECRET_KEY)
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-    }
-
-    /**
-     * 檢查JWT令牌是否過期
-     */
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+        return PARSER.parseClaimsJws(token).getBody();
     }
 
     /**
@@ -97,7 +130,8 @@ public class JwtUtil {
      */
     public Boolean validateToken(String token) {
         try {
-            return !isTokenExpired(token);
+            verify(token);
+            return true;
         } catch (Exception e) {
             return false;
         }
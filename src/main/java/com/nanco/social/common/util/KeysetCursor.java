@@ -0,0 +1,59 @@
+package com.nanco.social.common.util;
+
+import com.nanco.social.common.exception.BusinessException;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+/**
+ * Keyset 分頁游標，記錄上一頁最後一筆資料的 (createdAt, id)
+ * 對外以不透明的 Base64URL 字串傳遞，客戶端不需解析內容
+ */
+public final class KeysetCursor {
+
+    private final Timestamp createdAt;
+    private final Long id;
+
+    public KeysetCursor(Timestamp createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public Timestamp getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    /**
+     * 編碼為不透明的游標字串
+     */
+    public String encode() {
+        String raw = createdAt.getTime() + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * 解析游標字串，空值代表第一頁
+     *
+     * @param cursor 游標字串
+     * @return 游標，第一頁返回null
+     */
+    public static KeysetCursor decode(String cursor) {
+        if (cursor == null || cursor.isEmpty()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            long createdAt = Long.parseLong(raw.substring(0, separator));
+            long id = Long.parseLong(raw.substring(separator + 1));
+            return new KeysetCursor(new Timestamp(createdAt), id);
+        } catch (RuntimeException e) {
+            throw new BusinessException("分頁游標格式錯誤", e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.nanco.social.common.util;
+
+import com.nanco.social.common.async.RequestSnapshot;
+import org.springframework.http.HttpHeaders;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 標記目前請求返回的是過期資料
+ * 資料存取層在資料庫故障或過慢而改用上次成功的結果時標記，回應前由 StaleResponseAdvice 加上標頭
+ * 標記寫入請求快照而非請求物件，執行緒池中的工作在請求結束後才標記也不會影響其他請求
+ */
+public final class StaleResponses {
+
+    public static final String STALE_HEADER = "X-Data-Stale";
+
+    private StaleResponses() {
+    }
+
+    /**
+     * 標記目前請求使用了過期資料，同一請求多次標記時保留最舊的資料年齡；不在請求中時忽略
+     *
+     * @param ageMillis 資料取得至今的毫秒數
+     */
+    public static void mark(long ageMillis) {
+        RequestSnapshot snapshot = RequestSnapshot.current();
+        if (snapshot != null) {
+            snapshot.markStale(ageMillis);
+        }
+    }
+
+    /**
+     * 目前請求使用的過期資料年齡（毫秒），未使用過期資料時為 null
+     */
+    public static Long currentAgeMillis() {
+        RequestSnapshot snapshot = RequestSnapshot.current();
+        return snapshot == null ? null : snapshot.getStaleAgeMillis();
+    }
+
+    /**
+     * 請求使用了過期資料時加上標頭，並禁止瀏覽器保存，避免以目前的 ETag 保存過期內容；需在請求執行緒上呼叫
+     */
+    public static void applyHeaders(HttpServletRequest request, HttpServletResponse response) {
+        RequestSnapshot snapshot = RequestSnapshot.find(request);
+        Long ageMillis = snapshot == null ? null : snapshot.getStaleAgeMillis();
+        if (ageMillis == null) {
+            return;
+        }
+        response.setHeader(STALE_HEADER, "true");
+        response.setHeader(HttpHeaders.AGE, String.valueOf(TimeUnit.MILLISECONDS.toSeconds(ageMillis)));
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+    }
+}
@@ -0,0 +1,120 @@
+package com.nanco.social.common.util;
+
+import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 已驗證JWT令牌的快取，避免同一令牌重複進行簽章驗證
+ * 以令牌字串（依其雜湊值分桶並比對完整內容）為鍵，項目在令牌的 exp 時間到期後失效，容量有上限
+ * 另以到期時間排序保存所有項目：加入時先移除已過期的項目，超過容量時淘汰最早到期的項目，
+ * 每次加入只需 O(log n)，不需掃描整個快取
+ */
+public class VerifiedTokenCache {
+
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    // 依到期時間由早到晚排序，與 entries 保存相同的項目
+    private final ConcurrentSkipListSet<Entry> expiryOrder = new ConcurrentSkipListSet<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final int maxSize;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public VerifiedTokenCache(int maxSize) {
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * 取得尚未過期的快取項目
+     *
+     * @param token JWT令牌
+     * @param nowMillis 目前時間
+     * @return 快取的使用者身份，不存在或已過期返回null
+     */
+    public JwtPrincipal get(String token, long nowMillis) {
+        if (maxSize <= 0) {
+            return null;
+        }
+        Entry entry = entries.get(token);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.principal.isExpiredAt(nowMillis)) {
+            remove(entry);
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.principal;
+    }
+
+    /**
+     * 加入已驗證的令牌，先移除已過期的項目，超過容量時淘汰最早到期的項目
+     */
+    public void put(String token, JwtPrincipal principal, long nowMillis) {
+        if (maxSize <= 0) {
+            return;
+        }
+        Entry entry = new Entry(token, principal, sequence.incrementAndGet());
+        Entry previous = entries.put(token, entry);
+        if (previous != null) {
+            expiryOrder.remove(previous);
+        }
+        expiryOrder.add(entry);
+
+        Entry eldest;
+        while ((eldest = firstOrNull()) != null
+                && (eldest.principal.isExpiredAt(nowMillis) || entries.size() > maxSize)) {
+            remove(eldest);
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    private Entry firstOrNull() {
+        try {
+            return expiryOrder.first();
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    private void remove(Entry entry) {
+        expiryOrder.remove(entry);
+        entries.remove(entry.token, entry);
+    }
+
+    private static final class Entry implements Comparable<Entry> {
+
+        private final String token;
+        private final JwtPrincipal principal;
+        // 到期時間相同時依加入順序排序
+        private final long sequence;
+
+        private Entry(String token, JwtPrincipal principal, long sequence) {
+            this.token = token;
+            this.principal = principal;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public int compareTo(Entry other) {
+            int byExpiry = Long.compare(principal.getExpiresAtMillis(), other.principal.getExpiresAtMillis());
+            return byExpiry != 0 ? byExpiry : Long.compare(sequence, other.sequence);
+        }
+    }
+}
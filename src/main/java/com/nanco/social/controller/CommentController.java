@@ -1,13 +1,18 @@
 package com.nanco.social.controller;
 
+import com.nanco.social.common.async.Bulkheads;
+import com.nanco.social.common.util.ConditionalRequests;
 import com.nanco.social.model.Comment;
 import com.nanco.social.model.dto.ApiResponse;
+import com.nanco.social.model.dto.CommentPage;
 import com.nanco.social.service.CommentService;
+import com.nanco.social.service.cache.ContentVersions;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
 
 import javax.servlet.http.HttpServletRequest;
-import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 // 要求：使用RESTful API 風格建立後端服務
 @RestController
@@ -15,25 +20,45 @@ import java.util.List;
 public class CommentController {
 
     private final CommentService commentService;
+    private final ContentVersions contentVersions;
+    private final Bulkheads bulkheads;
 
     @Autowired
-    public CommentController(CommentService commentService) {
+    public CommentController(CommentService commentService, ContentVersions contentVersions, Bulkheads bulkheads) {
         this.commentService = commentService;
+        this.contentVersions = contentVersions;
+        this.bulkheads = bulkheads;
     }
 
     // 要求：使用RESTful API 風格建立後端服務 - 新增留言
     @PostMapping("/create")
-    public ApiResponse<Boolean> createComment(@RequestBody Comment comment, HttpServletRequest request) {
+    public CompletableFuture<ApiResponse<Boolean>> createComment(@RequestBody Comment comment, HttpServletRequest request) {
         Long userId = (Long) request.getAttribute("userId");
-        comment.setUserId(userId);
-        
-        boolean result = commentService.createComment(comment);
-        return ApiResponse.success(result ? "留言成功" : "留言失敗", result);
+        // 留言者名稱以令牌中的身份為準，供即時推送事件使用
+        comment.setUserName((String) request.getAttribute("userName"));
+        return bulkheads.writes().submit(() -> commentService.createComment(comment, userId))
+                .thenApply(result -> ApiResponse.success(result ? "留言成功" : "留言失敗", result));
     }
 
+    // 要求：使用RESTful API 風格建立後端服務 - 刪除留言
+    @DeleteMapping("/delete/{commentId}")
+    public CompletableFuture<ApiResponse<Boolean>> deleteComment(@PathVariable Long commentId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        return bulkheads.writes().submit(() -> commentService.deleteComment(commentId, userId))
+                .thenApply(result -> ApiResponse.success(result ? "刪除成功" : "刪除失敗", result));
+    }
+
+    // 要求：使用RESTful API 風格建立後端服務 - 以游標分頁獲取完整留言
+    // 留言未變更時以 304 回應，不讀取資料庫也不序列化
     @GetMapping("/list/{postId}")
-    public ApiResponse<List<Comment>> getPostComments(@PathVariable Long postId) {
-        List<Comment> comments = commentService.getPostComments(postId);
-        return ApiResponse.success(comments);
+    public CompletableFuture<ApiResponse<CommentPage>> getPostComments(@PathVariable Long postId,
+                                                                       @RequestParam(required = false) String after,
+                                                                       @RequestParam(defaultValue = "20") int limit,
+                                                                       ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, contentVersions.threadETag(postId))) {
+            return null;
+        }
+        return bulkheads.commentReads().submit(() -> commentService.getPostComments(postId, after, limit))
+                .thenApply(ApiResponse::success);
     }
 }
@@ -1,54 +1,215 @@
 package com.nanco.social.controller;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nanco.social.common.async.Bulkheads;
+import com.nanco.social.common.exception.ServiceBusyException;
+import com.nanco.social.common.sse.FeedEventBroadcaster;
+import com.nanco.social.common.util.ConditionalRequests;
 import com.nanco.social.model.Post;
 import com.nanco.social.model.dto.ApiResponse;
+import com.nanco.social.model.dto.FeedPage;
 import com.nanco.social.service.PostService;
+import com.nanco.social.service.cache.ContentVersions;
+import com.nanco.social.service.cache.SerializedFeedPage;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 
 // 要求：使用RESTful API 風格建立後端服務
 @RestController
 @RequestMapping("/api/post")
 public class PostController {
 
+    private static final String SMILE_VALUE = "application/x-jackson-smile";
+
+    // 串流匯出時每寫出多少筆發文刷新一次，讓客戶端在查詢進行中即可收到資料
+    private static final int EXPORT_FLUSH_INTERVAL = 100;
+
+    private static final ObjectMapper EXPORT_MAPPER = Jackson2ObjectMapperBuilder.json().build();
+
     private final PostService postService;
+    private final ContentVersions contentVersions;
+    private final FeedEventBroadcaster feedEventBroadcaster;
+    private final Bulkheads bulkheads;
+    // 匯出在整個串流期間佔用一個資料庫連線，同時進行的匯出數有上限
+    private final Semaphore exportPermits;
+    private final long exportTimeoutNanos;
 
     @Autowired
-    public PostController(PostService postService) {
+    public PostController(PostService postService, ContentVersions contentVersions,
+                          FeedEventBroadcaster feedEventBroadcaster, Bulkheads bulkheads,
+                          @Value("${post.export.max-concurrent:2}") int maxConcurrentExports,
+                          @Value("${post.export.timeout-ms:120000}") long exportTimeoutMillis) {
         this.postService = postService;
+        this.contentVersions = contentVersions;
+        this.feedEventBroadcaster = feedEventBroadcaster;
+        this.bulkheads = bulkheads;
+        this.exportPermits = new Semaphore(maxConcurrentExports);
+        this.exportTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(exportTimeoutMillis);
     }
 
     // 要求：使用RESTful API 風格建立後端服務 - HTTP POST 創建資源
     @PostMapping("/create")
-    public ApiResponse<Boolean> createPost(@RequestBody Post post, HttpServletRequest request) {
+    public CompletableFuture<ApiResponse<Boolean>> createPost(@RequestBody Post post, HttpServletRequest request) {
         Long userId = (Long) request.getAttribute("userId");
-        boolean result = postService.createPost(post, userId);
-        return ApiResponse.success(result ? "發文成功" : "發文失敗", result);
+        return bulkheads.writes().submit(() -> postService.createPost(post, userId))
+                .thenApply(result -> ApiResponse.success(result ? "發文成功" : "發文失敗", result));
     }
 
     // 要求：使用RESTful API 風格建立後端服務 - HTTP GET 獲取資源列表
+    // 內容未變更時以 304 回應，不讀取資料庫也不序列化
     @GetMapping("/list")
-    public ApiResponse<List<Post>> getAllPosts() {
-        List<Post> posts = postService.getAllPosts();
-        return ApiResponse.success(posts);
+    public CompletableFuture<ApiResponse<List<Post>>> getAllPosts(ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, contentVersions.feedETag())) {
+            return null;
+        }
+        return bulkheads.feedReads().submit(postService::getAllPosts)
+                .thenApply(ApiResponse::success);
+    }
+
+    // 要求：使用RESTful API 風格建立後端服務 - HTTP GET 以游標分頁獲取資源列表
+    // 由 SerializedFeedPageConverter 將預先序列化的發文 JSON 直接寫入回應，不經過 ObjectMapper 與 GlobalResponseBodyAdvice
+    // 內容未變更時以 304 回應，不讀取資料庫也不序列化
+    @GetMapping("/feed")
+    public CompletableFuture<ResponseEntity<SerializedFeedPage>> getFeed(@RequestParam(required = false) String before,
+                                                                         @RequestParam(defaultValue = "20") int limit,
+                                                                         ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, contentVersions.feedETag())) {
+            return null;
+        }
+        return bulkheads.feedReads().submit(() -> postService.getFeedJson(before, limit))
+                .thenApply(page -> ResponseEntity.ok()
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .body(page));
+    }
+
+    // 要求：使用RESTful API 風格建立後端服務 - HTTP GET 以游標分頁獲取資源列表（二進位格式）
+    // 客戶端以 Accept 要求 Smile 或 CBOR 時由對應的訊息轉換器輸出，欄位與 JSON 版本相同
+    @GetMapping(value = "/feed", produces = {SMILE_VALUE, MediaType.APPLICATION_CBOR_VALUE})
+    public CompletableFuture<ApiResponse<FeedPage>> getFeedBinary(@RequestParam(required = false) String before,
+                                                                  @RequestParam(defaultValue = "20") int limit,
+                                                                  ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, contentVersions.feedETag())) {
+            return null;
+        }
+        return bulkheads.feedReads().submit(() -> postService.getFeed(before, limit))
+                .thenApply(ApiResponse::success);
+    }
+
+    // 要求：使用RESTful API 風格建立後端服務 - HTTP GET 以游標分頁獲取特定使用者的發文
+    // 內容未變更時以 304 回應
+    @GetMapping("/user/{userId}")
+    public CompletableFuture<ApiResponse<FeedPage>> getUserPosts(@PathVariable Long userId,
+                                                                 @RequestParam(required = false) String before,
+                                                                 @RequestParam(defaultValue = "20") int limit,
+                                                                 ServletWebRequest webRequest) {
+        if (ConditionalRequests.notModified(webRequest, contentVersions.feedETag())) {
+            return null;
+        }
+        return bulkheads.feedReads().submit(() -> postService.getUserPosts(userId, before, limit))
+                .thenApply(ApiResponse::success);
+    }
+
+    // 要求：使用RESTful API 風格建立後端服務 - HTTP GET 以游標分頁獲取首頁動態（本人及追蹤對象的發文）
+    @GetMapping("/home")
+    public CompletableFuture<ApiResponse<FeedPage>> getHomeFeed(@RequestParam(required = false) String before,
+                                                                @RequestParam(defaultValue = "20") int limit,
+                                                                HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        return bulkheads.feedReads().submit(() -> postService.getHomeFeed(userId, before, limit))
+                .thenApply(ApiResponse::success);
+    }
+
+    // 要求：使用RESTful API 風格建立後端服務 - HTTP GET 串流匯出所有發文
+    // 邊讀取資料庫邊寫出 JSON，記憶體用量固定，第一筆資料不需等待整個查詢完成
+    // 同時進行的匯出已達上限時以 503 回應；超過 post.export.timeout-ms 時中斷匯出並歸還資料庫連線
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> exportPosts() {
+        StreamingResponseBody body = out -> {
+            // 在串流執行緒上取得名額，開始寫出前拒絕仍可回應 503，且名額一定由同一個執行緒歸還
+            if (!exportPermits.tryAcquire()) {
+                throw new ServiceBusyException("匯出請求過多，請稍後再試");
+            }
+            try {
+                writeExport(out);
+            } finally {
+                exportPermits.release();
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(body);
+    }
+
+    private void writeExport(OutputStream out) throws IOException {
+        long deadline = System.nanoTime() + exportTimeoutNanos;
+        JsonGenerator generator = EXPORT_MAPPER.getFactory().createGenerator(out, JsonEncoding.UTF8);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.writeStartObject();
+        generator.writeBooleanField("success", true);
+        generator.writeStringField("message", "操作成功");
+        generator.writeArrayFieldStart("data");
+
+        int[] written = {0};
+        boolean completed = postService.streamAllPosts(post -> {
+            try {
+                if (System.nanoTime() - deadline > 0) {
+                    throw new IOException("發文匯出逾時");
+                }
+                generator.writeObject(post);
+                if (++written[0] % EXPORT_FLUSH_INTERVAL == 0) {
+                    generator.flush();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        if (!completed) {
+            // 回應已開始輸出，只能中斷連線讓客戶端得知資料不完整
+            throw new IOException("發文匯出未完成");
+        }
+
+        generator.writeEndArray();
+        generator.writeEndObject();
+        generator.close();
+    }
+
+    // 要求：使用RESTful API 風格建立後端服務 - HTTP GET 訂閱發文與留言的即時增量事件（Server-Sent Events）
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFeedEvents() {
+        return feedEventBroadcaster.subscribe();
     }
 
     // 要求：使用RESTful API 風格建立後端服務 - HTTP PUT 更新資源
     @PutMapping("/edit")
-    public ApiResponse<Boolean> editPost(@RequestBody Post post, HttpServletRequest request) {
+    public CompletableFuture<ApiResponse<Boolean>> editPost(@RequestBody Post post, HttpServletRequest request) {
         Long userId = (Long) request.getAttribute("userId");
-        boolean result = postService.editPost(post, userId);
-        return ApiResponse.success(result ? "編輯成功" : "編輯失敗", result);
+        return bulkheads.writes().submit(() -> postService.editPost(post, userId))
+                .thenApply(result -> ApiResponse.success(result ? "編輯成功" : "編輯失敗", result));
     }
 
     // 要求：使用RESTful API 風格建立後端服務 - HTTP DELETE 刪除資源
     @DeleteMapping("/delete/{postId}")
-    public ApiResponse<Boolean> deletePost(@PathVariable Long postId, HttpServletRequest request) {
+    public CompletableFuture<ApiResponse<Boolean>> deletePost(@PathVariable Long postId, HttpServletRequest request) {
         Long userId = (Long) request.getAttribute("userId");
-        boolean result = postService.deletePost(postId, userId);
-        return ApiResponse.success(result ? "刪除成功" : "刪除失敗", result);
+        return bulkheads.writes().submit(() -> postService.deletePost(postId, userId))
+                .thenApply(result -> ApiResponse.success(result ? "刪除成功" : "刪除失敗", result));
     }
 }
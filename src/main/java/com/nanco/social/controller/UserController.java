@@ -1,5 +1,6 @@
 package com.nanco.social.controller;
 
+import com.nanco.social.common.async.Bulkheads;
 import com.nanco.social.common.util.JwtUtil;
 import com.nanco.social.model.User;
 import com.nanco.social.model.dto.ApiResponse;
@@ -11,6 +12,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import javax.servlet.http.HttpServletRequest;
+import java.util.concurrent.CompletableFuture;
 
 // 要求：使用RESTful API 風格建立後端服務
 @RestController
@@ -21,45 +23,65 @@ public class UserController {
 
     private final JwtUtil jwtUtil;
 
+    private final Bulkheads bulkheads;
+
     @Autowired
-    public UserController(UserService userService, JwtUtil jwtUtil) {
+    public UserController(UserService userService, JwtUtil jwtUtil, Bulkheads bulkheads) {
         this.userService = userService;
         this.jwtUtil = jwtUtil;
+        this.bulkheads = bulkheads;
     }
 
     // 要求：使用RESTful API 風格建立後端服務 - 用戶註冊
+    // 查詢資料庫與等待密碼雜湊時不佔用請求執行緒
     @PostMapping("/register")
-    public ApiResponse<JwtResponse> register(@RequestBody UserRegisterRequest request) {
-        User user = userService.register(request);
-        String token = jwtUtil.generateToken(user.getUserId(), user.getUserName());
-        JwtResponse response = new JwtResponse(token, user.getUserId(), user.getUserName(), user.getEmail(), user.getBiography());
-        return ApiResponse.success("註冊成功", response);
+    public CompletableFuture<ApiResponse<JwtResponse>> register(@RequestBody UserRegisterRequest request) {
+        return bulkheads.auth().submit(() -> userService.register(request))
+                .thenCompose(registered -> registered)
+                .thenApply(user -> ApiResponse.success("註冊成功", toJwtResponse(user)));
     }
 
     // 要求：使用RESTful API 風格建立後端服務 - 用戶登入
     @PostMapping("/login")
-    public ApiResponse<JwtResponse> login(@RequestBody LoginRequest request) {
-        User user = userService.login(request);
-
-        // 生成JWT令牌
-        String token = jwtUtil.generateToken(user.getUserId(), user.getUserName());
-
-        // 創建JWT響應
-        JwtResponse response = new JwtResponse(token, user.getUserId(), user.getUserName(), user.getEmail(), user.getBiography());
-        return ApiResponse.success("登入成功", response);
+    public CompletableFuture<ApiResponse<JwtResponse>> login(@RequestBody LoginRequest request) {
+        return bulkheads.auth().submit(() -> userService.login(request))
+                .thenCompose(loggedIn -> loggedIn)
+                .thenApply(user -> ApiResponse.success("登入成功", toJwtResponse(user)));
     }
 
     // 使用JWT不需要伺服器端登出方法
 
     // 要求：使用RESTful API 風格建立後端服務 - 更新用戶資料
     @PutMapping("/update")
-    public ApiResponse<Boolean> updateUser(@RequestBody User user, HttpServletRequest request) {
+    public CompletableFuture<ApiResponse<Boolean>> updateUser(@RequestBody User user, HttpServletRequest request) {
         Long userId = (Long) request.getAttribute("userId");
 
         // 確保只能更新自己的信息
         user.setUserId(userId);
 
-        boolean result = userService.updateUser(user);
-        return ApiResponse.success(result ? "更新成功" : "更新失敗", result);
+        return bulkheads.writes().submit(() -> userService.updateUser(user))
+                .thenApply(result -> ApiResponse.success(result ? "更新成功" : "更新失敗", result));
+    }
+
+    // 要求：使用RESTful API 風格建立後端服務 - 追蹤使用者
+    @PostMapping("/follow/{followeeId}")
+    public CompletableFuture<ApiResponse<Boolean>> follow(@PathVariable Long followeeId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        return bulkheads.writes().submit(() -> userService.follow(userId, followeeId))
+                .thenApply(result -> ApiResponse.success(result ? "追蹤成功" : "已追蹤", result));
+    }
+
+    // 要求：使用RESTful API 風格建立後端服務 - 取消追蹤使用者
+    @DeleteMapping("/follow/{followeeId}")
+    public CompletableFuture<ApiResponse<Boolean>> unfollow(@PathVariable Long followeeId, HttpServletRequest request) {
+        Long userId = (Long) request.getAttribute("userId");
+        return bulkheads.writes().submit(() -> userService.unfollow(userId, followeeId))
+                .thenApply(result -> ApiResponse.success(result ? "取消追蹤成功" : "尚未追蹤", result));
+    }
+
+    // 生成JWT令牌並創建JWT響應
+    private JwtResponse toJwtResponse(User user) {
+        String token = jwtUtil.generateToken(user.getUserId(), user.getUserName());
+        return new JwtResponse(token, user.getUserId(), user.getUserName(), user.getEmail(), user.getBiography());
     }
 }
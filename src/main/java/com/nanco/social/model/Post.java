@@ -9,14 +9,27 @@ public class Post implements Serializable {
     private Long userId;
     private String content;
     private Timestamp createdAt;
+    private Integer commentCount;
 
     // 非資料庫欄位，用於顯示關聯資訊
     private String userName;
+    // 最新數筆留言預覽，完整留言需另行分頁獲取
     private List<Comment> comments;
 
     public Post() {
     }
 
+    // 複製所有欄位，快取中的發文不可修改，需附加資料時改用複本
+    public Post(Post other) {
+        this.postId = other.postId;
+        this.userId = other.userId;
+        this.content = other.content;
+        this.createdAt = other.createdAt;
+        this.commentCount = other.commentCount;
+        this.userName = other.userName;
+        this.comments = other.comments;
+    }
+
     public Long getPostId() {
         return postId;
     }
@@ -49,6 +62,14 @@ public class Post implements Serializable {
         this.createdAt = createdAt;
     }
 
+    public Integer getCommentCount() {
+        return commentCount;
+    }
+
+    public void setCommentCount(Integer commentCount) {
+        this.commentCount = commentCount;
+    }
+
     public String getUserName() {
         return userName;
     }
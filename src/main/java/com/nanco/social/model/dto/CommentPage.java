@@ -0,0 +1,36 @@
+package com.nanco.social.model.dto;
+
+import com.nanco.social.model.Comment;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class CommentPage implements Serializable {
+    private List<Comment> comments;
+    // 下一頁游標，沒有更多資料時為null
+    private String nextCursor;
+
+    public CommentPage() {
+    }
+
+    public CommentPage(List<Comment> comments, String nextCursor) {
+        this.comments = comments;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Comment> getComments() {
+        return comments;
+    }
+
+    public void setComments(List<Comment> comments) {
+        this.comments = comments;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -0,0 +1,116 @@
+package com.nanco.social.model.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.nanco.social.model.Comment;
+import com.nanco.social.model.Post;
+
+import java.io.Serializable;
+
+/**
+ * 發文動態的增量事件，由服務層寫入成功後發布，推送給即時連線的客戶端
+ * 只帶有變動的部分，客戶端據此更新本地資料而不需重新下載整個列表
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class FeedEvent implements Serializable {
+
+    public static final String POST_CREATED = "POST_CREATED";
+    public static final String POST_UPDATED = "POST_UPDATED";
+    public static final String POST_DELETED = "POST_DELETED";
+    public static final String COMMENT_CREATED = "COMMENT_CREATED";
+    public static final String COMMENT_DELETED = "COMMENT_DELETED";
+
+    private String type;
+    private Long postId;
+    // 新建立的發文（POST_CREATED）
+    private Post post;
+    // 編輯後的內容（POST_UPDATED）
+    private String content;
+    // 新建立的留言（COMMENT_CREATED）
+    private Comment comment;
+    // 被刪除的留言ID（COMMENT_DELETED）
+    private Long commentId;
+
+    public FeedEvent() {
+    }
+
+    private FeedEvent(String type, Long postId) {
+        this.type = type;
+        this.postId = postId;
+    }
+
+    public static FeedEvent postCreated(Post post) {
+        FeedEvent event = new FeedEvent(POST_CREATED, post.getPostId());
+        event.post = post;
+        return event;
+    }
+
+    public static FeedEvent postUpdated(Long postId, String content) {
+        FeedEvent event = new FeedEvent(POST_UPDATED, postId);
+        event.content = content;
+        return event;
+    }
+
+    public static FeedEvent postDeleted(Long postId) {
+        return new FeedEvent(POST_DELETED, postId);
+    }
+
+    public static FeedEvent commentCreated(Comment comment) {
+        FeedEvent event = new FeedEvent(COMMENT_CREATED, comment.getPostId());
+        event.comment = comment;
+        return event;
+    }
+
+    public static FeedEvent commentDeleted(Long postId, Long commentId) {
+        FeedEvent event = new FeedEvent(COMMENT_DELETED, postId);
+        event.commentId = commentId;
+        return event;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public void setType(String type) {
+        this.type = type;
+    }
+
+    public Long getPostId() {
+        return postId;
+    }
+
+    public void setPostId(Long postId) {
+        this.postId = postId;
+    }
+
+    public Post getPost() {
+        return post;
+    }
+
+    public void setPost(Post post) {
+        this.post = post;
+    }
+
+    public String getContent() {
+        return content;
+    }
+
+    public void setContent(String content) {
+        this.content = content;
+    }
+
+    public Comment getComment() {
+        return comment;
+    }
+
+    public void setComment(Comment comment) {
+        this.comment = comment;
+    }
+
+    public Long getCommentId() {
+        return commentId;
+    }
+
+    public void setCommentId(Long commentId) {
+        this.commentId = commentId;
+    }
+}
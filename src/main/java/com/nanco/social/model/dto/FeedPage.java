@@ -0,0 +1,36 @@
+package com.nanco.social.model.dto;
+
+import com.nanco.social.model.Post;
+
+import java.io.Serializable;
+import java.util.List;
+
+public class FeedPage implements Serializable {
+    private List<Post> posts;
+    // 下一頁游標，沒有更多資料時為null
+    private String nextCursor;
+
+    public FeedPage() {
+    }
+
+    public FeedPage(List<Post> posts, String nextCursor) {
+        this.posts = posts;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<Post> getPosts() {
+        return posts;
+    }
+
+    public void setPosts(List<Post> posts) {
+        this.posts = posts;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+}
@@ -2,12 +2,15 @@ package com.nanco.social.repository;
 
 import com.nanco.social.model.Comment;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface CommentRepository {
 
     /**
-     * 創建新留言
+     * 創建新留言，成功後回填留言ID、建立時間與留言者名稱
      * 
      * @param comment 留言信息
      * @return 是否創建成功
@@ -15,10 +18,41 @@ public interface CommentRepository {
     boolean createComment(Comment comment);
 
     /**
-     * 獲取特定發文的所有留言
+     * 在同一個交易中批次創建多筆留言，整批只提交一次
+     * 任一筆失敗時整批回滾並拋出例外，由呼叫端決定是否逐筆重試
+     * 
+     * @param comments 留言列表
+     * @return 是否全部創建成功
+     * @throws org.springframework.dao.DataAccessException 寫入失敗，整批皆未寫入
+     */
+    boolean createComments(List<Comment> comments);
+
+    /**
+     * 刪除留言（僅限留言者本人）
+     * 
+     * @param commentId 留言ID
+     * @param userId 使用者ID
+     * @return 被刪除留言所屬的發文ID，未刪除返回null
+     */
+    Long deleteComment(Long commentId, Long userId);
+
+    /**
+     * 以 Keyset 分頁獲取特定發文的留言，依 (created_at, comment_id) 由舊到新排序
      * 
      * @param postId 發文ID
+     * @param afterCreatedAt 上一頁最後一筆的留言時間，第一頁為null
+     * @param afterCommentId 上一頁最後一筆的留言ID，第一頁為null
+     * @param limit 最多返回筆數
      * @return 留言列表
      */
-    List<Comment> getPostComments(Long postId);
+    List<Comment> getPostComments(Long postId, Timestamp afterCreatedAt, Long afterCommentId, int limit);
+
+    /**
+     * 一次取得多篇發文各自最新的數筆留言，並依發文ID分組（每組由舊到新排序）
+     * 
+     * @param postIds 發文ID集合
+     * @param limitPerPost 每篇發文最多返回筆數
+     * @return 發文ID對應的留言列表，沒有留言的發文不會出現在結果中
+     */
+    Map<Long, List<Comment>> getCommentPreviews(Collection<Long> postIds, int limitPerPost);
 }
@@ -0,0 +1,50 @@
+package com.nanco.social.repository;
+
+import java.util.List;
+import java.util.Map;
+
+public interface FollowRepository {
+
+    /**
+     * 追蹤使用者，同時更新被追蹤者的追蹤者數
+     * 
+     * @param followerId 追蹤者ID
+     * @param followeeId 被追蹤者ID
+     * @return 是否新建立追蹤關係，已追蹤時返回false
+     */
+    boolean follow(Long followerId, Long followeeId);
+
+    /**
+     * 取消追蹤使用者，同時更新被追蹤者的追蹤者數
+     * 
+     * @param followerId 追蹤者ID
+     * @param followeeId 被追蹤者ID
+     * @return 是否刪除了追蹤關係，原本未追蹤時返回false
+     */
+    boolean unfollow(Long followerId, Long followeeId);
+
+    /**
+     * 獲取追蹤者ID
+     * 
+     * @param followeeId 被追蹤者ID
+     * @param limit 最多返回筆數
+     * @return 追蹤者ID列表
+     */
+    List<Long> getFollowerIds(Long followeeId, int limit);
+
+    /**
+     * 獲取使用者的追蹤者數（user.follower_count）
+     * 
+     * @param userId 使用者ID
+     * @return 追蹤者數，使用者不存在或查詢失敗時返回-1
+     */
+    int getFollowerCount(Long userId);
+
+    /**
+     * 獲取使用者追蹤的對象
+     * 
+     * @param followerId 追蹤者ID
+     * @return 被追蹤者ID對應其追蹤者數
+     */
+    Map<Long, Integer> getFollowees(Long followerId);
+}
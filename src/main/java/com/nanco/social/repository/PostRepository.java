@@ -2,12 +2,15 @@ package com.nanco.social.repository;
 
 import com.nanco.social.model.Post;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface PostRepository {
 
     /**
-     * 創建新發文
+     * 創建新發文，成功後回填發文ID、建立時間與發文者名稱
      * 
      * @param post 發文信息
      * @return 是否創建成功
@@ -21,6 +24,53 @@ public interface PostRepository {
      */
     List<Post> getAllPosts();
 
+    /**
+     * 以串流方式逐筆讀取所有發文，讀取到一筆即交給 consumer 處理，不在記憶體中保留整個列表
+     * 
+     * @param consumer 發文處理器
+     * @return 是否完整讀取
+     */
+    boolean streamAllPosts(Consumer<Post> consumer);
+
+    /**
+     * 以 Keyset 分頁獲取發文，依 (created_at, post_id) 由新到舊排序
+     * 
+     * @param beforeCreatedAt 上一頁最後一筆的發文時間，第一頁為null
+     * @param beforePostId 上一頁最後一筆的發文ID，第一頁為null
+     * @param limit 最多返回筆數
+     * @return 發文列表
+     */
+    List<Post> getFeedPage(Timestamp beforeCreatedAt, Long beforePostId, int limit);
+
+    /**
+     * 以 Keyset 分頁獲取特定使用者的發文，依 (created_at, post_id) 由新到舊排序
+     * 
+     * @param userId 使用者ID
+     * @param beforeCreatedAt 上一頁最後一筆的建立時間，第一頁為null
+     * @param beforePostId 上一頁最後一筆的發文ID，第一頁為null
+     * @param limit 最多返回筆數
+     * @return 發文列表
+     */
+    List<Post> getUserPostsPage(Long userId, Timestamp beforeCreatedAt, Long beforePostId, int limit);
+
+    /**
+     * 獲取多位使用者發文ID小於 beforePostId 的最新發文ID，依發文ID由新到舊排序
+     * 
+     * @param userIds 使用者ID
+     * @param beforePostId 只返回小於此ID的發文，null代表從最新開始
+     * @param limit 最多返回筆數
+     * @return 發文ID列表
+     */
+    List<Long> getPostIdsByUsers(Collection<Long> userIds, Long beforePostId, int limit);
+
+    /**
+     * 依發文ID批次獲取發文，依發文ID由新到舊排序，已刪除的發文不會返回
+     * 
+     * @param postIds 發文ID
+     * @return 發文列表
+     */
+    List<Post> getPostsByIds(Collection<Long> postIds);
+
     /**
      * 編輯發文
      * 
@@ -7,19 +7,27 @@ public interface UserRepository {
     /**
      * 創建新使用者
      * 
-     * @param user 使用者信息
-     * @return 是否創建成功
+     * @param user 使用者信息，密碼欄位為已雜湊的密碼
+     * @return 創建成功返回新使用者信息，失敗返回null
      */
-    boolean createUser(User user);
+    User createUser(User user);
 
     /**
-     * 使用手機號碼和密碼進行登入驗證
+     * 依手機號碼獲取使用者信息與密碼雜湊，供登入比對
      * 
      * @param phoneNumber 手機號碼
-     * @param password 密碼
-     * @return 登入成功返回使用者信息，失敗返回null
+     * @return 使用者信息（含密碼雜湊），不存在時返回null
+     */
+    User getCredentials(String phoneNumber);
+
+    /**
+     * 更新密碼雜湊
+     * 
+     * @param userId 使用者ID
+     * @param passwordHash 新的密碼雜湊
+     * @return 是否更新成功
      */
-    User login(String phoneNumber, String password);
+    boolean updatePassword(Long userId, String passwordHash);
 
     /**
      * 更新使用者信息
@@ -1,37 +1,66 @@
 package com.nanco.social.repository.impl;
 
+import com.nanco.social.common.metrics.ProcedureMetrics;
+import com.nanco.social.common.resilience.StaleWhileRevalidate;
 import com.nanco.social.model.Comment;
 import com.nanco.social.repository.CommentRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 // 要求：透過 Stored Procedure 存取資料庫
 @Repository
 public class CommentRepositoryImpl implements CommentRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    // 唯讀查詢，可能由副本回應
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final ProcedureMetrics procedureMetrics;
+    private final StaleWhileRevalidate staleWhileRevalidate;
+    private final TransactionTemplate transactionTemplate;
 
     @Autowired
-    public CommentRepositoryImpl(JdbcTemplate jdbcTemplate) {
+    public CommentRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                 @Qualifier("replicaJdbcTemplate") JdbcTemplate replicaJdbcTemplate,
+                                 ProcedureMetrics procedureMetrics,
+                                 TransactionTemplate transactionTemplate,
+                                 StaleWhileRevalidate staleWhileRevalidate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.procedureMetrics = procedureMetrics;
+        this.staleWhileRevalidate = staleWhileRevalidate;
+        this.transactionTemplate = transactionTemplate;
     }
 
     // 要求：透過 Stored Procedure 存取資料庫 - 創建留言
+    // 存儲過程會返回新建立的留言，將資料庫產生的欄位回填至傳入的物件
     @Override
     public boolean createComment(Comment comment) {
         try {
-            jdbcTemplate.update(
+            List<Comment> created = procedureMetrics.record("sp_create_comment", () -> jdbcTemplate.query(
                     "CALL sp_create_comment(?, ?, ?)",
-                    comment.getUserId(),
-                    comment.getPostId(),
-                    comment.getContent()
-            );
+                    new Object[]{comment.getUserId(), comment.getPostId(), comment.getContent()},
+                    new CommentRowMapper()
+            ));
+            if (!created.isEmpty()) {
+                Comment row = created.get(0);
+                comment.setCommentId(row.getCommentId());
+                comment.setCreatedAt(row.getCreatedAt());
+                comment.setUserName(row.getUserName());
+            }
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -39,22 +68,88 @@ public class CommentRepositoryImpl implements CommentRepository {
         }
     }
 
-    // 要求：透過 Stored Procedure 存取資料庫 - 獲取發文留言
+    // 要求：透過 Stored Procedure 存取資料庫 - 批次創建留言
+    // 要求：需同時異動多個資料表時，請實作Transaction，避免資料錯亂 - 整批留言在同一個交易中提交，只需一次 fsync
+    // 失敗時不吞掉例外：呼叫端需區分整批回滾與寫入成功，才能逐筆重試並回應可重試的錯誤
+    @Override
+    public boolean createComments(List<Comment> comments) {
+        if (comments.isEmpty()) {
+            return true;
+        }
+        List<Object[]> batchArgs = comments.stream()
+                .map(comment -> new Object[]{comment.getUserId(), comment.getPostId(), comment.getContent()})
+                .collect(Collectors.toList());
+        // 計時包含交易提交，提交失敗同樣計入錯誤次數
+        procedureMetrics.run("sp_insert_comment", () -> transactionTemplate.executeWithoutResult(status ->
+                jdbcTemplate.batchUpdate(
+                        "CALL sp_insert_comment(?, ?, ?)",
+                        batchArgs
+                )
+        ));
+        return true;
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 刪除留言
     @Override
-    public List<Comment> getPostComments(Long postId) {
+    public Long deleteComment(Long commentId, Long userId) {
         try {
-            return jdbcTemplate.query(
-                    "CALL sp_get_post_comments(?)",
-                    new Object[]{postId},
-                    new CommentRowMapper()
-            );
+            List<Long> deletedPostIds = procedureMetrics.record("sp_delete_comment", () -> jdbcTemplate.query(
+                    "CALL sp_delete_comment(?, ?)",
+                    new Object[]{commentId, userId},
+                    (rs, rowNum) -> rs.getInt("deleted") > 0 ? rs.getLong("post_id") : null
+            ));
+            return deletedPostIds.isEmpty() ? null : deletedPostIds.get(0);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 以 Keyset 分頁獲取發文留言
+    // 資料庫失敗、斷路器開啟或超過等待時間時改返回上次成功的結果，並標記為過期資料
+    @Override
+    public List<Comment> getPostComments(Long postId, Timestamp afterCreatedAt, Long afterCommentId, int limit) {
+        try {
+            return staleWhileRevalidate.read("sp_get_post_comments", () -> procedureMetrics.record("sp_get_post_comments",
+                    () -> replicaJdbcTemplate.query(
+                            "CALL sp_get_post_comments(?, ?, ?, ?)",
+                            new Object[]{postId, afterCreatedAt, afterCommentId, limit},
+                            new CommentRowMapper()
+                    )), postId, afterCreatedAt, afterCommentId, limit);
         } catch (Exception e) {
             e.printStackTrace();
             return List.of();
         }
     }
 
-    private static class CommentRowMapper implements RowMapper<Comment> {
+    // 要求：透過 Stored Procedure 存取資料庫 - 批次獲取多篇發文的最新留言預覽
+    // 以 JSON 陣列傳入發文ID，一次查詢取代逐篇查詢，避免 N+1 問題
+    @Override
+    public Map<Long, List<Comment>> getCommentPreviews(Collection<Long> postIds, int limitPerPost) {
+        if (postIds == null || postIds.isEmpty() || limitPerPost <= 0) {
+            return Map.of();
+        }
+        try {
+            String postIdsJson = postIds.stream()
+                    .map(String::valueOf)
+                    .collect(Collectors.joining(",", "[", "]"));
+            List<Comment> comments = procedureMetrics.record("sp_get_comment_previews", () -> replicaJdbcTemplate.query(
+                    "CALL sp_get_comment_previews(?, ?)",
+                    new Object[]{postIdsJson, limitPerPost},
+                    new CommentRowMapper()
+            ));
+            Map<Long, List<Comment>> grouped = new LinkedHashMap<>();
+            for (Comment comment : comments) {
+                grouped.computeIfAbsent(comment.getPostId(), key -> new ArrayList<>()).add(comment);
+            }
+            return grouped;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Map.of();
+        }
+    }
+
+    static class CommentRowMapper implements RowMapper<Comment> {
         @Override
         public Comment mapRow(ResultSet rs, int rowNum) throws SQLException {
             Comment comment = new Comment();
@@ -0,0 +1,113 @@
+package com.nanco.social.repository.impl;
+
+import com.nanco.social.common.metrics.ProcedureMetrics;
+import com.nanco.social.repository.FollowRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// 要求：透過 Stored Procedure 存取資料庫
+@Repository
+public class FollowRepositoryImpl implements FollowRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    // 唯讀查詢，可能由副本回應
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final ProcedureMetrics procedureMetrics;
+
+    @Autowired
+    public FollowRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                @Qualifier("replicaJdbcTemplate") JdbcTemplate replicaJdbcTemplate,
+                                ProcedureMetrics procedureMetrics) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.procedureMetrics = procedureMetrics;
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 追蹤使用者
+    @Override
+    public boolean follow(Long followerId, Long followeeId) {
+        try {
+            List<Integer> followed = procedureMetrics.record("sp_follow_user", () -> jdbcTemplate.query(
+                    "CALL sp_follow_user(?, ?)",
+                    new Object[]{followerId, followeeId},
+                    (rs, rowNum) -> rs.getInt("followed")
+            ));
+            return !followed.isEmpty() && followed.get(0) > 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 取消追蹤使用者
+    @Override
+    public boolean unfollow(Long followerId, Long followeeId) {
+        try {
+            List<Integer> unfollowed = procedureMetrics.record("sp_unfollow_user", () -> jdbcTemplate.query(
+                    "CALL sp_unfollow_user(?, ?)",
+                    new Object[]{followerId, followeeId},
+                    (rs, rowNum) -> rs.getInt("unfollowed")
+            ));
+            return !unfollowed.isEmpty() && unfollowed.get(0) > 0;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 獲取追蹤者
+    @Override
+    public List<Long> getFollowerIds(Long followeeId, int limit) {
+        try {
+            return procedureMetrics.record("sp_get_follower_ids", () -> replicaJdbcTemplate.query(
+                    "CALL sp_get_follower_ids(?, ?)",
+                    new Object[]{followeeId, limit},
+                    (rs, rowNum) -> rs.getLong("follower_id")
+            ));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 獲取追蹤者數
+    @Override
+    public int getFollowerCount(Long userId) {
+        try {
+            List<Integer> counts = procedureMetrics.record("sp_get_follower_count", () -> replicaJdbcTemplate.query(
+                    "CALL sp_get_follower_count(?)",
+                    new Object[]{userId},
+                    (rs, rowNum) -> rs.getInt("follower_count")
+            ));
+            return counts.isEmpty() ? -1 : counts.get(0);
+        } catch (Exception e) {
+            e.printStackTrace();
+            return -1;
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 獲取追蹤對象
+    @Override
+    public Map<Long, Integer> getFollowees(Long followerId) {
+        try {
+            Map<Long, Integer> followees = new LinkedHashMap<>();
+            procedureMetrics.run("sp_get_followees", () -> replicaJdbcTemplate.query(
+                    "CALL sp_get_followees(?)",
+                    new Object[]{followerId},
+                    rs -> {
+                        followees.put(rs.getLong("followee_id"), rs.getInt("follower_count"));
+                    }
+            ));
+            return followees;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return Map.of();
+        }
+    }
+}
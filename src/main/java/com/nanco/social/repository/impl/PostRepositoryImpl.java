@@ -1,36 +1,62 @@
 package com.nanco.social.repository.impl;
 
+import com.nanco.social.common.metrics.ProcedureMetrics;
+import com.nanco.social.common.resilience.StaleWhileRevalidate;
 import com.nanco.social.model.Post;
 import com.nanco.social.repository.PostRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 // 要求：透過 Stored Procedure 存取資料庫
 @Repository
 public class PostRepositoryImpl implements PostRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    // 唯讀查詢，可能由副本回應
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final ProcedureMetrics procedureMetrics;
+    private final StaleWhileRevalidate staleWhileRevalidate;
 
     @Autowired
-    public PostRepositoryImpl(JdbcTemplate jdbcTemplate) {
+    public PostRepositoryImpl(JdbcTemplate jdbcTemplate,
+                              @Qualifier("replicaJdbcTemplate") JdbcTemplate replicaJdbcTemplate,
+                              ProcedureMetrics procedureMetrics,
+                              StaleWhileRevalidate staleWhileRevalidate) {
         this.jdbcTemplate = jdbcTemplate;
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.procedureMetrics = procedureMetrics;
+        this.staleWhileRevalidate = staleWhileRevalidate;
     }
 
     // 要求：透過 Stored Procedure 存取資料庫 - 創建發文
+    // 存儲過程會返回新建立的發文，將資料庫產生的欄位回填至傳入的物件
     @Override
     public boolean createPost(Post post) {
         try {
-            jdbcTemplate.update(
+            List<Post> created = procedureMetrics.record("sp_create_post", () -> jdbcTemplate.query(
                     "CALL sp_create_post(?, ?)",
-                    post.getUserId(),
-                    post.getContent()
-            );
+                    new Object[]{post.getUserId(), post.getContent()},
+                    new PostRowMapper()
+            ));
+            if (!created.isEmpty()) {
+                Post row = created.get(0);
+                post.setPostId(row.getPostId());
+                post.setCreatedAt(row.getCreatedAt());
+                post.setCommentCount(row.getCommentCount());
+                post.setUserName(row.getUserName());
+            }
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -39,13 +65,111 @@ public class PostRepositoryImpl implements PostRepository {
     }
 
     // 要求：透過 Stored Procedure 存取資料庫 - 獲取所有發文
+    // 資料庫失敗、斷路器開啟或超過等待時間時改返回上次成功的結果，並標記為過期資料
     @Override
     public List<Post> getAllPosts() {
         try {
-            return jdbcTemplate.query(
-                    "CALL sp_get_all_posts()",
+            return staleWhileRevalidate.read("sp_get_all_posts", () -> procedureMetrics.record("sp_get_all_posts",
+                    () -> replicaJdbcTemplate.query(
+                            "CALL sp_get_all_posts()",
+                            new PostRowMapper()
+                    )));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 串流獲取所有發文
+    // fetch size 設為 Integer.MIN_VALUE 時 MySQL Connector/J 會逐列串流，不會一次載入整個結果集
+    // 耗時包含寫出給客戶端的時間，使用獨立的統計與斷路器，慢速或中斷的下載不影響發文列表的斷路器
+    @Override
+    public boolean streamAllPosts(Consumer<Post> consumer) {
+        PostRowMapper rowMapper = new PostRowMapper();
+        try {
+            procedureMetrics.run("sp_get_all_posts.export", () -> replicaJdbcTemplate.query(
+                    con -> {
+                        PreparedStatement ps = con.prepareStatement(
+                                "CALL sp_get_all_posts()",
+                                ResultSet.TYPE_FORWARD_ONLY,
+                                ResultSet.CONCUR_READ_ONLY
+                        );
+                        ps.setFetchSize(Integer.MIN_VALUE);
+                        return ps;
+                    },
+                    rs -> {
+                        consumer.accept(rowMapper.mapRow(rs, rs.getRow()));
+                    }
+            ));
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - Keyset 分頁獲取發文
+    @Override
+    public List<Post> getFeedPage(Timestamp beforeCreatedAt, Long beforePostId, int limit) {
+        try {
+            return procedureMetrics.record("sp_get_feed_page", () -> replicaJdbcTemplate.query(
+                    "CALL sp_get_feed_page(?, ?, ?)",
+                    new Object[]{beforeCreatedAt, beforePostId, limit},
                     new PostRowMapper()
-            );
+            ));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - Keyset 分頁獲取特定使用者的發文
+    @Override
+    public List<Post> getUserPostsPage(Long userId, Timestamp beforeCreatedAt, Long beforePostId, int limit) {
+        try {
+            return procedureMetrics.record("sp_get_user_posts_page", () -> replicaJdbcTemplate.query(
+                    "CALL sp_get_user_posts_page(?, ?, ?, ?)",
+                    new Object[]{userId, beforeCreatedAt, beforePostId, limit},
+                    new PostRowMapper()
+            ));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 獲取多位使用者的最新發文ID
+    @Override
+    public List<Long> getPostIdsByUsers(Collection<Long> userIds, Long beforePostId, int limit) {
+        if (userIds == null || userIds.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        try {
+            String userIdsJson = toJsonArray(userIds);
+            return procedureMetrics.record("sp_get_users_post_ids", () -> replicaJdbcTemplate.query(
+                    "CALL sp_get_users_post_ids(?, ?, ?)",
+                    new Object[]{userIdsJson, beforePostId, limit},
+                    (rs, rowNum) -> rs.getLong("post_id")
+            ));
+        } catch (Exception e) {
+            e.printStackTrace();
+            return List.of();
+        }
+    }
+
+    // 要求：透過 Stored Procedure 存取資料庫 - 依發文ID批次獲取發文
+    @Override
+    public List<Post> getPostsByIds(Collection<Long> postIds) {
+        if (postIds == null || postIds.isEmpty()) {
+            return List.of();
+        }
+        try {
+            String postIdsJson = toJsonArray(postIds);
+            return procedureMetrics.record("sp_get_posts_by_ids", () -> replicaJdbcTemplate.query(
+                    "CALL sp_get_posts_by_ids(?)",
+                    new Object[]{postIdsJson},
+                    new PostRowMapper()
+            ));
         } catch (Exception e) {
             e.printStackTrace();
             return List.of();
@@ -56,11 +180,11 @@ public class PostRepositoryImpl implements PostRepository {
     @Override
     public boolean editPost(Post post) {
         try {
-            jdbcTemplate.update(
+            procedureMetrics.record("sp_edit_post", () -> jdbcTemplate.update(
                     "CALL sp_edit_post(?, ?)",
                     post.getPostId(),
                     post.getContent()
-            );
+            ));
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -72,10 +196,10 @@ public class PostRepositoryImpl implements PostRepository {
     @Override
     public boolean deletePost(Long postId) {
         try {
-            jdbcTemplate.update(
+            procedureMetrics.record("sp_delete_post", () -> jdbcTemplate.update(
                     "CALL sp_delete_post(?)",
                     postId
-            );
+            ));
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -83,7 +207,13 @@ public class PostRepositoryImpl implements PostRepository {
         }
     }
 
-    private static class PostRowMapper implements RowMapper<Post> {
+    private static String toJsonArray(Collection<Long> ids) {
+        return ids.stream()
+                .map(String::valueOf)
+                .collect(Collectors.joining(",", "[", "]"));
+    }
+
+    static class PostRowMapper implements RowMapper<Post> {
         @Override
         public Post mapRow(ResultSet rs, int rowNum) throws SQLException {
             Post post = new Post();
@@ -91,6 +221,7 @@ public class PostRepositoryImpl implements PostRepository {
             post.setUserId(rs.getLong("user_id"));
             post.setContent(rs.getString("content"));
             post.setCreatedAt(rs.getTimestamp("created_at"));
+            post.setCommentCount(rs.getInt("comment_count"));
             post.setUserName(rs.getString("user_name"));
             return post;
         }
@@ -1,5 +1,6 @@
 package com.nanco.social.repository.impl;
 
+import com.nanco.social.common.metrics.ProcedureMetrics;
 import com.nanco.social.model.User;
 import com.nanco.social.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,40 +17,44 @@ import java.util.List;
 public class UserRepositoryImpl implements UserRepository {
 
     private final JdbcTemplate jdbcTemplate;
+    private final ProcedureMetrics procedureMetrics;
 
     @Autowired
-    public UserRepositoryImpl(JdbcTemplate jdbcTemplate) {
+    public UserRepositoryImpl(JdbcTemplate jdbcTemplate, ProcedureMetrics procedureMetrics) {
         this.jdbcTemplate = jdbcTemplate;
+        this.procedureMetrics = procedureMetrics;
     }
 
     // 要求：透過 Stored Procedure 存取資料庫 - 創建用戶
     @Override
-    public boolean createUser(User user) {
+    public User createUser(User user) {
         try {
-            jdbcTemplate.update(
-                    "CALL sp_create_user(?, ?, ?, ?)",
-                    user.getUserName(),
-                    user.getEmail(),
-                    user.getPassword(),
-                    user.getPhoneNumber()
-            );
-            return true;
+            List<User> users = procedureMetrics.record("sp_create_user", () -> jdbcTemplate.query(
+                    "CALL sp_create_user(?, ?, ?, ?, ?)",
+                    new Object[]{user.getUserName(), user.getEmail(), user.getPassword(), user.getPhoneNumber(), user.getBiography()},
+                    new UserRowMapper()
+            ));
+            return users.isEmpty() ? null : users.get(0);
         } catch (Exception e) {
             e.printStackTrace();
-            return false;
+            return null;
         }
     }
 
-    // 要求：透過 Stored Procedure 存取資料庫 - 用戶登入
+    // 要求：透過 Stored Procedure 存取資料庫 - 獲取登入資料
     // 要求：需防止SQL Injection 以及XSS 攻擊 - 使用參數化查詢防止SQL Injection
     @Override
-    public User login(String phoneNumber, String password) {
+    public User getCredentials(String phoneNumber) {
         try {
-            List<User> users = jdbcTemplate.query(
-                    "CALL sp_user_login(?, ?)",
-                    new Object[]{phoneNumber, password},
-                    new UserRowMapper()
-            );
+            List<User> users = procedureMetrics.record("sp_get_user_credentials", () -> jdbcTemplate.query(
+                    "CALL sp_get_user_credentials(?)",
+                    new Object[]{phoneNumber},
+                    (rs, rowNum) -> {
+                        User user = new UserRowMapper().mapRow(rs, rowNum);
+                        user.setPassword(rs.getString("password"));
+                        return user;
+                    }
+            ));
             return users.isEmpty() ? null : users.get(0);
         } catch (Exception e) {
             e.printStackTrace();
@@ -57,15 +62,31 @@ public class UserRepositoryImpl implements UserRepository {
         }
     }
 
+    // 要求：Password 密碼請加鹽(salt)並經雜湊(Hash)後儲存，避免明碼外洩 - 更新密碼雜湊
+    @Override
+    public boolean updatePassword(Long userId, String passwordHash) {
+        try {
+            procedureMetrics.record("sp_update_user_password", () -> jdbcTemplate.update(
+                    "CALL sp_update_user_password(?, ?)",
+                    userId,
+                    passwordHash
+            ));
+            return true;
+        } catch (Exception e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
     // 要求：透過 Stored Procedure 存取資料庫 - 更新用戶
     @Override
     public boolean updateUser(User user) {
         try {
-            jdbcTemplate.update(
+            procedureMetrics.record("sp_update_user_biography", () -> jdbcTemplate.update(
                     "CALL sp_update_user_biography(?, ?)",
                     user.getUserId(),
                     user.getBiography()
-            );
+            ));
             return true;
         } catch (Exception e) {
             e.printStackTrace();
@@ -1,8 +1,7 @@
 package com.nanco.social.service;
 
 import com.nanco.social.model.Comment;
-
-import java.util.List;
+import com.nanco.social.model.dto.CommentPage;
 
 public interface CommentService {
 
@@ -16,10 +15,21 @@ public interface CommentService {
     boolean createComment(Comment comment, Long userId);
 
     /**
-     * 獲取特定發文的所有留言
+     * 刪除留言
+     * 
+     * @param commentId 留言ID
+     * @param userId 使用者ID
+     * @return 是否刪除成功
+     */
+    boolean deleteComment(Long commentId, Long userId);
+
+    /**
+     * 以游標分頁獲取特定發文的留言
      * 
      * @param postId 發文ID
-     * @return 留言列表
+     * @param cursor 上一頁返回的游標，第一頁為null
+     * @param limit 每頁筆數
+     * @return 留言分頁
      */
-    List<Comment> getPostComments(Long postId);
+    CommentPage getPostComments(Long postId, String cursor, int limit);
 }
@@ -1,8 +1,11 @@
 package com.nanco.social.service;
 
 import com.nanco.social.model.Post;
+import com.nanco.social.model.dto.FeedPage;
+import com.nanco.social.service.cache.SerializedFeedPage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface PostService {
 
@@ -22,6 +25,52 @@ public interface PostService {
      */
     List<Post> getAllPosts();
 
+    /**
+     * 以串流方式逐筆輸出所有發文（不含留言），用於匯出及完整時間軸
+     * 
+     * @param consumer 發文處理器
+     * @return 是否完整輸出
+     */
+    boolean streamAllPosts(Consumer<Post> consumer);
+
+    /**
+     * 以游標分頁獲取發文
+     * 
+     * @param cursor 上一頁返回的游標，第一頁為null
+     * @param limit 每頁筆數
+     * @return 發文分頁
+     */
+    FeedPage getFeed(String cursor, int limit);
+
+    /**
+     * 以游標分頁獲取已序列化為 JSON 的發文，序列化結果隨分頁快取重複使用
+     * 
+     * @param cursor 上一頁返回的游標，第一頁為null
+     * @param limit 每頁筆數
+     * @return 已序列化的發文分頁
+     */
+    SerializedFeedPage getFeedJson(String cursor, int limit);
+
+    /**
+     * 以游標分頁獲取特定使用者的發文，只附帶留言數不附帶留言內容
+     * 
+     * @param userId 使用者ID
+     * @param cursor 上一頁返回的游標，第一頁為null
+     * @param limit 每頁筆數
+     * @return 發文分頁
+     */
+    FeedPage getUserPosts(Long userId, String cursor, int limit);
+
+    /**
+     * 以游標分頁獲取首頁動態（本人及追蹤對象的發文），依發文ID由新到舊排序
+     * 
+     * @param userId 使用者ID
+     * @param cursor 上一頁返回的游標，第一頁為null
+     * @param limit 每頁筆數
+     * @return 發文分頁
+     */
+    FeedPage getHomeFeed(Long userId, String cursor, int limit);
+
     /**
      * 編輯發文
      * 
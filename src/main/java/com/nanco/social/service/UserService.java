@@ -4,23 +4,25 @@ import com.nanco.social.model.User;
 import com.nanco.social.model.dto.LoginRequest;
 import com.nanco.social.model.dto.UserRegisterRequest;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface UserService {
 
     /**
-     * 使用者註冊
+     * 使用者註冊，密碼雜湊在專用執行緒池計算
      * 
      * @param request 註冊請求
-     * @return 註冊成功返回使用者信息，失敗返回null
+     * @return 註冊成功時完成為使用者信息，失敗時以 BusinessException 結束
      */
-    User register(UserRegisterRequest request);
+    CompletableFuture<User> register(UserRegisterRequest request);
 
     /**
-     * 使用者登入
+     * 使用者登入，密碼比對在專用執行緒池計算
      * 
      * @param request 登入請求
-     * @return 登入成功返回使用者信息，失敗返回null
+     * @return 登入成功時完成為使用者信息，失敗時以 BusinessException 結束
      */
-    User login(LoginRequest request);
+    CompletableFuture<User> login(LoginRequest request);
 
     /**
      * 更新使用者信息
@@ -29,4 +31,22 @@ public interface UserService {
      * @return 更新成功返回true，失敗返回false
      */
     boolean updateUser(User user);
+
+    /**
+     * 追蹤使用者
+     * 
+     * @param followerId 追蹤者ID
+     * @param followeeId 被追蹤者ID
+     * @return 是否新建立追蹤關係，已追蹤時返回false
+     */
+    boolean follow(Long followerId, Long followeeId);
+
+    /**
+     * 取消追蹤使用者
+     * 
+     * @param followerId 追蹤者ID
+     * @param followeeId 被追蹤者ID
+     * @return 是否刪除了追蹤關係，原本未追蹤時返回false
+     */
+    boolean unfollow(Long followerId, Long followeeId);
 }
@@ -0,0 +1,259 @@
+package com.nanco.social.service.batch;
+
+import com.nanco.social.common.exception.ServiceBusyException;
+import com.nanco.social.model.Comment;
+import com.nanco.social.repository.CommentRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 留言批次寫入（write-behind）
+ * 留言先進入有界佇列，由背景執行緒以小批次在同一個交易中寫入，整批只需一次提交；
+ * 呼叫端的 Future 在所屬批次提交後才完成，佇列已滿時拒絕寫入以形成背壓
+ * 等待逾時或被中斷時，仍在佇列中的留言會被取消、不再寫入，呼叫端收到 ServiceBusyException 後可安全重試；
+ * 已被取出寫入的留言則等待該批次完成，不會在呼叫端放棄後才提交而造成重試時重複寫入
+ * 整批寫入失敗時逐筆重新寫入，單一無效的留言（例如發文已刪除）只讓該筆失敗，不影響同批的其他留言
+ */
+@Component
+public class CommentBatchWriter {
+
+    private static final Logger log = LoggerFactory.getLogger(CommentBatchWriter.class);
+
+    private final CommentRepository commentRepository;
+    private final boolean enabled;
+    private final int batchSize;
+    private final long lingerMillis;
+    private final long offerTimeoutMillis;
+    private final long commitTimeoutMillis;
+
+    private final BlockingQueue<PendingComment> queue;
+
+    private volatile boolean running;
+    private Thread flusher;
+
+    @Autowired
+    public CommentBatchWriter(CommentRepository commentRepository,
+                              @Value("${comment.write-behind.enabled:false}") boolean enabled,
+                              @Value("${comment.write-behind.batch-size:100}") int batchSize,
+                              @Value("${comment.write-behind.linger-ms:5}") long lingerMillis,
+                              @Value("${comment.write-behind.queue-capacity:10000}") int queueCapacity,
+                              @Value("${comment.write-behind.offer-timeout-ms:100}") long offerTimeoutMillis,
+                              @Value("${comment.write-behind.commit-timeout-ms:5000}") long commitTimeoutMillis) {
+        this.commentRepository = commentRepository;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.lingerMillis = lingerMillis;
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.commitTimeoutMillis = commitTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::flushLoop, "comment-batch-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (flusher == null) {
+            return;
+        }
+        running = false;
+        flusher.interrupt();
+        flusher.join(commitTimeoutMillis);
+        // 關閉時寫入剩餘的留言
+        List<PendingComment> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        while (!remaining.isEmpty()) {
+            List<PendingComment> batch = new ArrayList<>(remaining.subList(0, Math.min(batchSize, remaining.size())));
+            remaining.subList(0, batch.size()).clear();
+            flush(batch);
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 將留言加入佇列，返回的 Future 在所屬批次提交後完成
+     *
+     * @param comment 留言
+     * @return 寫入結果
+     * @throws ServiceBusyException 佇列已滿或被中斷，留言未加入佇列
+     */
+    public CompletableFuture<Boolean> submit(Comment comment) {
+        return enqueue(comment).future;
+    }
+
+    /**
+     * 將留言加入佇列並等待所屬批次提交
+     * 超過 commit-timeout-ms 時若留言仍在佇列中即取消，已開始寫入則等待寫入完成
+     *
+     * @param comment 留言
+     * @return 是否寫入成功
+     * @throws ServiceBusyException 佇列已滿、逾時或被中斷，留言未寫入
+     */
+    public boolean write(Comment comment) {
+        PendingComment pending = enqueue(comment);
+        try {
+            return pending.future.get(commitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            if (pending.cancel()) {
+                throw new ServiceBusyException("留言寫入逾時，請稍後再試", e);
+            }
+            return awaitCommit(pending);
+        } catch (ExecutionException e) {
+            // 逐筆重試後仍失敗，留言未寫入
+            throw new ServiceBusyException("留言寫入失敗，請稍後再試", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            if (pending.cancel()) {
+                throw new ServiceBusyException("留言寫入被中斷", e);
+            }
+            return awaitCommit(pending);
+        }
+    }
+
+    private PendingComment enqueue(Comment comment) {
+        PendingComment pending = new PendingComment(comment);
+        try {
+            if (!running || !queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new ServiceBusyException("留言寫入繁忙，請稍後再試");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceBusyException("留言寫入被中斷", e);
+        }
+        return pending;
+    }
+
+    // 留言已在寫入中的批次，等待交易結束以返回確定的結果
+    private boolean awaitCommit(PendingComment pending) {
+        try {
+            return pending.future.join();
+        } catch (RuntimeException e) {
+            throw new ServiceBusyException("留言寫入失敗，請稍後再試", e.getCause() != null ? e.getCause() : e);
+        }
+    }
+
+    private void flushLoop() {
+        List<PendingComment> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingComment first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                // 在等待時間內盡量湊滿一批
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(lingerMillis);
+                while (batch.size() < batchSize) {
+                    queue.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    PendingComment next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch = new ArrayList<>(batchSize);
+            } catch (InterruptedException e) {
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+    }
+
+    private void flush(List<PendingComment> candidates) {
+        // 只寫入呼叫端尚未取消的留言，取得後呼叫端不可再取消
+        List<PendingComment> batch = new ArrayList<>(candidates.size());
+        List<Comment> comments = new ArrayList<>(candidates.size());
+        for (PendingComment pending : candidates) {
+            if (pending.claim()) {
+                batch.add(pending);
+                comments.add(pending.comment);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            boolean result = commentRepository.createComments(comments);
+            for (PendingComment pending : batch) {
+                pending.future.complete(result);
+            }
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                log.error("留言寫入失敗", e);
+                batch.get(0).future.completeExceptionally(e);
+                return;
+            }
+            // 整批交易已回滾，逐筆重新寫入找出失敗的留言
+            log.warn("留言批次寫入失敗，改為逐筆寫入，批次大小 {}", batch.size(), e);
+            for (PendingComment pending : batch) {
+                writeAlone(pending);
+            }
+        }
+    }
+
+    private void writeAlone(PendingComment pending) {
+        try {
+            pending.future.complete(commentRepository.createComments(List.of(pending.comment)));
+        } catch (RuntimeException e) {
+            log.error("留言寫入失敗", e);
+            pending.future.completeExceptionally(e);
+        }
+    }
+
+    private static final class PendingComment {
+        private static final int QUEUED = 0;
+        private static final int WRITING = 1;
+        private static final int CANCELLED = 2;
+
+        private final Comment comment;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        private PendingComment(Comment comment) {
+            this.comment = comment;
+        }
+
+        // 背景執行緒取出寫入，已被取消時返回 false
+        private boolean claim() {
+            return state.compareAndSet(QUEUED, WRITING);
+        }
+
+        // 呼叫端放棄等待，已開始寫入時返回 false
+        private boolean cancel() {
+            return state.compareAndSet(QUEUED, CANCELLED);
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.nanco.social.service.cache;
+
+import com.nanco.social.common.datasource.ReplicaRouter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * 內容版本號，供條件式請求（If-None-Match）判斷客戶端的資料是否仍為最新
+ * 發文列表共用一個版本，留言則依發文ID分散到固定數量的版本槽，避免為每篇發文保存狀態；
+ * 不同發文共用同一槽時只會讓客戶端多下載一次，不會返回過期資料
+ * 版本號只存在記憶體中，ETag 帶有啟動時間，重新啟動後舊的 ETag 一律視為過期
+ * 使用副本時，內容可能落後於版本號：寫入後副本延遲上限內的讀取，以及讀取主庫的使用者（剛寫入者），
+ * 不使用共用快取也不產生 ETag，避免副本的舊內容以新版本保存，或剛寫入者讀到其他人由副本載入的快取
+ */
+@Component
+public class ContentVersions {
+
+    private static final int THREAD_STRIPES = 4096;
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicLong feedVersion = new AtomicLong();
+    private final AtomicLongArray threadVersions = new AtomicLongArray(THREAD_STRIPES);
+
+    private final ReplicaRouter replicaRouter;
+    // 最近一次遞增版本的時間，尚未遞增時為 Long.MIN_VALUE
+    private volatile long lastBumpNanos = Long.MIN_VALUE;
+
+    private final LongSupplier nanoTime;
+
+    @Autowired
+    public ContentVersions(ReplicaRouter replicaRouter) {
+        this(replicaRouter, System::nanoTime);
+    }
+
+    ContentVersions(ReplicaRouter replicaRouter, LongSupplier nanoTime) {
+        this.replicaRouter = replicaRouter;
+        this.nanoTime = nanoTime;
+    }
+
+    /**
+     * 不使用副本
+     */
+    public ContentVersions() {
+        this(null);
+    }
+
+    /**
+     * 發文新增、編輯、刪除或留言數改變後呼叫
+     */
+    public void bumpFeed() {
+        lastBumpNanos = nanoTime.getAsLong();
+        feedVersion.incrementAndGet();
+    }
+
+    /**
+     * 發文的留言新增、刪除或發文刪除後呼叫
+     */
+    public void bumpThread(Long postId) {
+        lastBumpNanos = nanoTime.getAsLong();
+        threadVersions.incrementAndGet(stripe(postId));
+    }
+
+    /**
+     * 目前執行緒讀到的內容是否與版本號一致，可放入共用快取並以版本號產生 ETag
+     * 讀取主庫的請求（剛寫入的使用者）及最近一次寫入後副本延遲上限內的讀取皆不可
+     */
+    public boolean isSharedCacheable() {
+        if (replicaRouter == null || !replicaRouter.hasReplicas()) {
+            return true;
+        }
+        if (replicaRouter.readsPrimary()) {
+            return false;
+        }
+        long lastBump = lastBumpNanos;
+        return lastBump == Long.MIN_VALUE || nanoTime.getAsLong() - lastBump >= replicaRouter.getMaxLagNanos();
+    }
+
+    public long getFeedVersion() {
+        return feedVersion.get();
+    }
+
+    public long getThreadVersion(Long postId) {
+        return threadVersions.get(stripe(postId));
+    }
+
+    /**
+     * 發文列表的弱 ETag，需在讀取資料之前取得，確保 ETag 不會比內容新
+     * 使用弱 ETag：Tomcat 不壓縮帶有強 ETag 的回應（同一內容壓縮前後位元組不同），If-None-Match 本就以弱比較判斷
+     *
+     * @return 內容可能與版本號不一致時（見 isSharedCacheable）為 null
+     */
+    public String feedETag() {
+        if (!isSharedCacheable()) {
+            return null;
+        }
+        return "W/\"f" + epoch + "-" + feedVersion.get() + "\"";
+    }
+
+    /**
+     * 發文留言的弱 ETag，需在讀取資料之前取得，確保 ETag 不會比內容新
+     *
+     * @return 內容可能與版本號不一致時（見 isSharedCacheable）為 null
+     */
+    public String threadETag(Long postId) {
+        if (!isSharedCacheable()) {
+            return null;
+        }
+        return "W/\"c" + epoch + "-" + getThreadVersion(postId) + "\"";
+    }
+
+    private static int stripe(Long postId) {
+        long id = postId == null ? 0 : postId;
+        return (int) (id ^ (id >>> 32)) & (THREAD_STRIPES - 1);
+    }
+}
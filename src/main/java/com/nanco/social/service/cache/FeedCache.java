@@ -0,0 +1,175 @@
+package com.nanco.social.service.cache;
+
+import com.nanco.social.model.Post;
+import com.nanco.social.model.dto.FeedPage;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * 發文列表快取，保存已組裝好（含留言）的分頁快照
+ * 容量與存活時間皆有上限，由服務層的寫入方法精準失效：
+ * 新增發文只影響第一頁，編輯、刪除發文及新增留言只影響包含該發文的分頁
+ * 每個分頁另可附帶序列化後的 JSON，與分頁一同失效，避免每次請求重新序列化
+ */
+@Component
+public class FeedCache {
+
+    private final int maxEntries;
+    private final long ttlMillis;
+
+    private final LinkedHashMap<String, Entry> entries;
+
+    // 每次寫入都會遞增，讀取期間若有寫入則不寫入快取，避免存入過期資料
+    private final AtomicLong generation = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @Autowired
+    public FeedCache(@Value("${feed.cache.max-entries:50}") int maxEntries,
+                     @Value("${feed.cache.ttl-ms:30000}") long ttlMillis) {
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                if (size() > FeedCache.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * 讀取資料庫前取得目前的版本，寫入快取時需傳回
+     */
+    public long currentGeneration() {
+        return generation.get();
+    }
+
+    /**
+     * 取得快取的分頁
+     *
+     * @param key 快取鍵
+     * @return 分頁快照，不存在或已過期返回null
+     */
+    public synchronized FeedPage get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        if (entry.expiresAt <= System.currentTimeMillis()) {
+            entries.remove(key);
+            evictions.increment();
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.page;
+    }
+
+    /**
+     * 寫入分頁快照，若讀取期間已有寫入則略過
+     *
+     * @param key 快取鍵
+     * @param firstPage 是否為第一頁（新增發文時需失效）
+     * @param page 分頁快照
+     * @param readGeneration 讀取資料庫前取得的版本
+     */
+    public synchronized void put(String key, boolean firstPage, FeedPage page, long readGeneration) {
+        if (maxEntries <= 0 || readGeneration != generation.get()) {
+            return;
+        }
+        Set<Long> postIds = page.getPosts().stream()
+                .map(Post::getPostId)
+                .collect(Collectors.toSet());
+        entries.put(key, new Entry(page, firstPage, postIds, System.currentTimeMillis() + ttlMillis));
+    }
+
+    /**
+     * 取得分頁已序列化的發文 JSON，僅在快取中仍為同一份分頁快照時返回
+     *
+     * @param key 快取鍵
+     * @param page 分頁快照
+     * @return 發文 JSON 陣列，尚未序列化返回null
+     */
+    public synchronized byte[] getPostsJson(String key, FeedPage page) {
+        Entry entry = entries.get(key);
+        return entry != null && entry.page == page ? entry.postsJson : null;
+    }
+
+    /**
+     * 為快取中的分頁附加序列化後的發文 JSON
+     */
+    public synchronized void putPostsJson(String key, FeedPage page, byte[] postsJson) {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.page == page) {
+            entry.postsJson = postsJson;
+        }
+    }
+
+    /**
+     * 新增發文後失效所有第一頁
+     */
+    public synchronized void invalidateFirstPages() {
+        generation.incrementAndGet();
+        entries.values().removeIf(entry -> entry.firstPage);
+    }
+
+    /**
+     * 發文被編輯、刪除或新增留言後，失效包含該發文的分頁
+     */
+    public synchronized void invalidatePost(Long postId) {
+        generation.incrementAndGet();
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (iterator.hasNext()) {
+            if (iterator.next().postIds.contains(postId)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    private static final class Entry {
+        private final FeedPage page;
+        private final boolean firstPage;
+        private final Set<Long> postIds;
+        private final long expiresAt;
+        private byte[] postsJson;
+
+        private Entry(FeedPage page, boolean firstPage, Set<Long> postIds, long expiresAt) {
+            this.page = page;
+            this.firstPage = firstPage;
+            this.postIds = postIds;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.nanco.social.service.cache;
+
+import com.nanco.social.common.datasource.ReplicaRouter;
+import com.nanco.social.common.util.StaleResponses;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * 相同查詢的合併（single-flight）：同一時間對相同參數的多個請求只執行一次資料庫查詢，其餘請求等待並共用結果
+ * 只合併正在執行中的查詢，查詢結束後即移除，不保存結果；以 ConcurrentHashMap.putIfAbsent 決定由誰執行，不使用鎖
+ * 等待超過上限時改為自行查詢，避免執行中的查詢過慢時拖累所有等待者
+ * 呼叫端應將內容版本號放入參數，寫入後的新請求會使用新的鍵，不會取得寫入前開始的查詢結果；
+ * 鍵另包含該請求是否讀取主庫，剛寫入的使用者不會共用由副本回應的查詢
+ * 執行者取得的是過期資料時，共用結果的請求同樣標記為過期資料
+ */
+@Component
+public class RequestCoalescer {
+
+    private final long maxWaitMillis;
+    private final MeterRegistry registry;
+    private final ReplicaRouter replicaRouter;
+
+    private final ConcurrentHashMap<List<Object>, CompletableFuture<Flight>> inFlight = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RequestCoalescer(MeterRegistry registry, ReplicaRouter replicaRouter,
+                            @Value("${coalescing.max-wait-ms:2000}") long maxWaitMillis) {
+        this.registry = registry;
+        this.replicaRouter = replicaRouter;
+        this.maxWaitMillis = maxWaitMillis;
+    }
+
+    /**
+     * 執行查詢，相同名稱與參數的查詢正在執行時等待其結果
+     *
+     * @param name 查詢名稱，用於區分不同查詢及統計
+     * @param loader 實際查詢
+     * @param args 查詢參數，可包含 null
+     * @return 查詢結果，可能與其他請求共用同一個物件，呼叫端不可修改
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String name, Supplier<T> loader, Object... args) {
+        List<Object> key = new ArrayList<>(args.length + 2);
+        key.add(name);
+        key.add(replicaRouter.readsPrimary());
+        key.addAll(Arrays.asList(args));
+
+        CompletableFuture<Flight> flight = new CompletableFuture<>();
+        CompletableFuture<Flight> existing = inFlight.putIfAbsent(key, flight);
+        if (existing == null) {
+            counter(name, "leader").increment();
+            try {
+                Long staleBefore = StaleResponses.currentAgeMillis();
+                T result = loader.get();
+                Long staleAfter = StaleResponses.currentAgeMillis();
+                flight.complete(new Flight(result, Objects.equals(staleBefore, staleAfter) ? null : staleAfter));
+                return result;
+            } catch (RuntimeException | Error e) {
+                flight.completeExceptionally(e);
+                throw e;
+            } finally {
+                inFlight.remove(key, flight);
+            }
+        }
+
+        try {
+            Flight shared = existing.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+            counter(name, "collapsed").increment();
+            if (shared.staleAgeMillis != null) {
+                StaleResponses.mark(shared.staleAgeMillis);
+            }
+            return (T) shared.result;
+        } catch (TimeoutException e) {
+            counter(name, "timeout").increment();
+            return loader.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            counter(name, "timeout").increment();
+            return loader.get();
+        } catch (ExecutionException e) {
+            // 共用執行者的失敗，與自行查詢失敗的處理相同
+            counter(name, "collapsed").increment();
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    /**
+     * 目前正在執行的查詢數
+     */
+    public int getInFlightCount() {
+        return inFlight.size();
+    }
+
+    // leader：實際執行查詢；collapsed：共用其他請求的結果；timeout：等待逾時後自行查詢
+    private Counter counter(String name, String result) {
+        return counters.computeIfAbsent(name + ':' + result, key -> Counter.builder("coalescing.calls")
+                .description("相同查詢合併的呼叫次數")
+                .tag("query", name)
+                .tag("result", result)
+                .register(registry));
+    }
+
+    private static final class Flight {
+
+        private final Object result;
+        // 執行者查詢期間標記的過期資料年齡，未使用過期資料時為 null
+        private final Long staleAgeMillis;
+
+        private Flight(Object result, Long staleAgeMillis) {
+            this.result = result;
+            this.staleAgeMillis = staleAgeMillis;
+        }
+    }
+}
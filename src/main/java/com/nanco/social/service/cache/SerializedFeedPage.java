@@ -0,0 +1,23 @@
+package com.nanco.social.service.cache;
+
+/**
+ * 已序列化的發文分頁，posts 為 UTF-8 編碼的 JSON 陣列
+ */
+public final class SerializedFeedPage {
+
+    private final byte[] postsJson;
+    private final String nextCursor;
+
+    public SerializedFeedPage(byte[] postsJson, String nextCursor) {
+        this.postsJson = postsJson;
+        this.nextCursor = nextCursor;
+    }
+
+    public byte[] getPostsJson() {
+        return postsJson;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
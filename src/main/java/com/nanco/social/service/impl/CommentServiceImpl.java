@@ -2,22 +2,45 @@ package com.nanco.social.service.impl;
 
 import com.nanco.social.common.exception.BusinessException;
 import com.nanco.social.common.util.HtmlEscapeUtil;
+import com.nanco.social.common.util.KeysetCursor;
 import com.nanco.social.model.Comment;
+import com.nanco.social.model.dto.CommentPage;
+import com.nanco.social.model.dto.FeedEvent;
 import com.nanco.social.repository.CommentRepository;
 import com.nanco.social.service.CommentService;
+import com.nanco.social.service.batch.CommentBatchWriter;
+import com.nanco.social.service.cache.ContentVersions;
+import com.nanco.social.service.cache.FeedCache;
+import com.nanco.social.service.cache.RequestCoalescer;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class CommentServiceImpl implements CommentService {
 
+    private static final int MAX_PAGE_LIMIT = 100;
+
     private final CommentRepository commentRepository;
+    private final FeedCache feedCache;
+    private final ContentVersions contentVersions;
+    private final RequestCoalescer requestCoalescer;
+    private final CommentBatchWriter commentBatchWriter;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Autowired
-    public CommentServiceImpl(CommentRepository commentRepository) {
+    public CommentServiceImpl(CommentRepository commentRepository, FeedCache feedCache,
+                              ContentVersions contentVersions, RequestCoalescer requestCoalescer,
+                              CommentBatchWriter commentBatchWriter, ApplicationEventPublisher eventPublisher) {
         this.commentRepository = commentRepository;
+        this.feedCache = feedCache;
+        this.contentVersions = contentVersions;
+        this.requestCoalescer = requestCoalescer;
+        this.commentBatchWriter = commentBatchWriter;
+        this.eventPublisher = eventPublisher;
     }
 
     @Override
@@ -35,22 +58,75 @@ public class CommentServiceImpl implements CommentService {
             throw new BusinessException("留言內容不能為空");
         }
 
-        // 設置使用者ID
+        // 設置使用者ID，留言ID與建立時間由資料庫產生，忽略客戶端傳入的值
         comment.setUserId(userId);
+        comment.setCommentId(null);
+        comment.setCreatedAt(null);
 
         // 要求：需防止SQL Injection 以及XSS 攻擊 - XSS防護
         comment.setContent(HtmlEscapeUtil.escape(comment.getContent()));
 
-        // 創建留言
-        return commentRepository.createComment(comment);
+        // 創建留言，啟用批次寫入時等待所屬批次提交後才返回
+        boolean result = commentBatchWriter.isEnabled()
+                ? commentBatchWriter.write(comment)
+                : commentRepository.createComment(comment);
+        if (result) {
+            feedCache.invalidatePost(comment.getPostId());
+            // 發文列表包含留言數與留言預覽，兩者的版本都需要更新
+            contentVersions.bumpFeed();
+            contentVersions.bumpThread(comment.getPostId());
+            // 批次寫入不會回填留言ID與建立時間，客戶端以收到事件的時間顯示
+            eventPublisher.publishEvent(FeedEvent.commentCreated(comment));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean deleteComment(Long commentId, Long userId) {
+        if (commentId == null) {
+            throw new BusinessException("留言ID不能為空");
+        }
+        if (userId == null) {
+            throw new BusinessException("使用者ID不能為空");
+        }
+
+        // 只能刪除自己的留言，存儲過程會同時更新發文的留言數
+        Long postId = commentRepository.deleteComment(commentId, userId);
+        if (postId == null) {
+            return false;
+        }
+        feedCache.invalidatePost(postId);
+        contentVersions.bumpFeed();
+        contentVersions.bumpThread(postId);
+        eventPublisher.publishEvent(FeedEvent.commentDeleted(postId, commentId));
+        return true;
     }
 
     @Override
-    public List<Comment> getPostComments(Long postId) {
+    public CommentPage getPostComments(Long postId, String cursor, int limit) {
         if (postId == null) {
             throw new BusinessException("發文ID不能為空");
         }
+        if (limit <= 0) {
+            throw new BusinessException("每頁筆數必須大於0");
+        }
+        int pageSize = Math.min(limit, MAX_PAGE_LIMIT);
+        KeysetCursor after = KeysetCursor.decode(cursor);
+
+        // 熱門發文的留言同時被大量讀取時，相同頁面只查詢一次
+        return requestCoalescer.execute("comments.list", () -> {
+            // 多取一筆用於判斷是否還有下一頁
+            List<Comment> comments = after == null
+                    ? commentRepository.getPostComments(postId, null, null, pageSize + 1)
+                    : commentRepository.getPostComments(postId, after.getCreatedAt(), after.getId(), pageSize + 1);
 
-        return commentRepository.getPostComments(postId);
+            String nextCursor = null;
+            if (comments.size() > pageSize) {
+                comments = new ArrayList<>(comments.subList(0, pageSize));
+                Comment last = comments.get(pageSize - 1);
+                nextCursor = new KeysetCursor(last.getCreatedAt(), last.getCommentId()).encode();
+            }
+            return new CommentPage(comments, nextCursor);
+        }, postId, cursor, pageSize, contentVersions.getThreadVersion(postId));
     }
 }
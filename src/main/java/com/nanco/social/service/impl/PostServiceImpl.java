@@ -1,27 +1,75 @@
 package com.nanco.social.service.impl;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.nanco.social.common.exception.BusinessException;
+import com.nanco.social.common.util.StaleResponses;
 import com.nanco.social.common.util.HtmlEscapeUtil;
+import com.nanco.social.common.util.KeysetCursor;
 import com.nanco.social.model.Comment;
 import com.nanco.social.model.Post;
+import com.nanco.social.model.dto.FeedEvent;
+import com.nanco.social.model.dto.FeedPage;
 import com.nanco.social.repository.CommentRepository;
 import com.nanco.social.repository.PostRepository;
 import com.nanco.social.service.PostService;
+import com.nanco.social.service.cache.ContentVersions;
+import com.nanco.social.service.cache.FeedCache;
+import com.nanco.social.service.cache.RequestCoalescer;
+import com.nanco.social.service.cache.SerializedFeedPage;
+import com.nanco.social.service.timeline.TimelineService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class PostServiceImpl implements PostService {
 
+    private static final int MAX_FEED_LIMIT = 100;
+
+    private static final String ALL_POSTS_CACHE_KEY = "all";
+
+    // 與 MVC 預設的 JSON 轉換器使用相同設定，確保輸出格式一致
+    private static final ObjectWriter POSTS_WRITER = Jackson2ObjectMapperBuilder.json().build()
+            .writerFor(new TypeReference<List<Post>>() {
+            });
+
     private final PostRepository postRepository;
     private final CommentRepository commentRepository;
+    private final FeedCache feedCache;
+    private final ContentVersions contentVersions;
+    private final RequestCoalescer requestCoalescer;
+    private final TimelineService timelineService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final int commentPreviewSize;
+
+    // 上次成功組裝的全部發文（含留言預覽），資料庫故障時返回，不會被修改
+    private volatile List<Post> lastAllPosts;
 
     @Autowired
-    public PostServiceImpl(PostRepository postRepository, CommentRepository commentRepository) {
+    public PostServiceImpl(PostRepository postRepository, CommentRepository commentRepository, FeedCache feedCache,
+                           ContentVersions contentVersions, RequestCoalescer requestCoalescer, TimelineService timelineService,
+                           ApplicationEventPublisher eventPublisher,
+                           @Value("${feed.comment-preview-size:3}") int commentPreviewSize) {
         this.postRepository = postRepository;
         this.commentRepository = commentRepository;
+        this.feedCache = feedCache;
+        this.contentVersions = contentVersions;
+        this.requestCoalescer = requestCoalescer;
+        this.timelineService = timelineService;
+        this.eventPublisher = eventPublisher;
+        this.commentPreviewSize = commentPreviewSize;
     }
 
     @Override
@@ -43,19 +91,162 @@ public class PostServiceImpl implements PostService {
         post.setContent(HtmlEscapeUtil.escape(post.getContent()));
 
         // 創建發文
-        return postRepository.createPost(post);
+        boolean result = postRepository.createPost(post);
+        if (result) {
+            feedCache.invalidateFirstPages();
+            contentVersions.bumpFeed();
+            // 存儲過程未返回新發文時無法組成增量事件，客戶端會在下次載入時看到
+            if (post.getPostId() != null) {
+                timelineService.onPostCreated(userId, post.getPostId());
+                post.setComments(List.of());
+                eventPublisher.publishEvent(FeedEvent.postCreated(post));
+            }
+        }
+        return result;
     }
 
     // 要求：需同時異動多個資料表時，請實作Transaction，避免資料錯亂 - 多表查詢事務
     @Override
     public List<Post> getAllPosts() {
-        List<Post> posts = postRepository.getAllPosts();
-        // 為每個文章載入評論
-        for (Post post : posts) {
-            List<Comment> comments = commentRepository.getPostComments(post.getPostId());
-            post.setComments(comments);
+        // 剛寫入的使用者或副本可能尚未同步時不使用共用快取
+        boolean cacheable = contentVersions.isSharedCacheable();
+        FeedPage cached = cacheable ? feedCache.get(ALL_POSTS_CACHE_KEY) : null;
+        if (cached != null) {
+            return cached.getPosts();
         }
-        return posts;
+
+        // 快取失效的瞬間大量請求同時到達時只查詢一次
+        return requestCoalescer.execute("posts.all", () -> {
+            long generation = feedCache.currentGeneration();
+            Long staleBefore = StaleResponses.currentAgeMillis();
+            List<Post> rows = postRepository.getAllPosts();
+            if (!Objects.equals(staleBefore, StaleResponses.currentAgeMillis())) {
+                // 發文為資料庫故障時的舊結果，留言查詢多半同樣失敗：返回上次組裝完成（含留言）的結果，
+                // 不再查詢留言，也不放入快取，恢復後的下一個請求即重新查詢
+                List<Post> lastGood = lastAllPosts;
+                return lastGood != null ? lastGood : withComments(rows);
+            }
+            List<Post> posts = withComments(rows);
+            if (cacheable) {
+                feedCache.put(ALL_POSTS_CACHE_KEY, true, new FeedPage(posts, null), generation);
+            }
+            lastAllPosts = posts;
+            return posts;
+        }, contentVersions.getFeedVersion());
+    }
+
+    @Override
+    public boolean streamAllPosts(Consumer<Post> consumer) {
+        return postRepository.streamAllPosts(consumer);
+    }
+
+    @Override
+    public FeedPage getFeed(String cursor, int limit) {
+        if (limit <= 0) {
+            throw new BusinessException("每頁筆數必須大於0");
+        }
+        int pageSize = Math.min(limit, MAX_FEED_LIMIT);
+        KeysetCursor before = KeysetCursor.decode(cursor);
+
+        String cacheKey = feedCacheKey(pageSize, cursor);
+        // 剛寫入的使用者或副本可能尚未同步時不使用共用快取
+        boolean cacheable = contentVersions.isSharedCacheable();
+        FeedPage cached = cacheable ? feedCache.get(cacheKey) : null;
+        if (cached != null) {
+            return cached;
+        }
+        return requestCoalescer.execute("posts.feed", () -> {
+            long generation = feedCache.currentGeneration();
+
+            // 多取一筆用於判斷是否還有下一頁
+            List<Post> posts = before == null
+                    ? postRepository.getFeedPage(null, null, pageSize + 1)
+                    : postRepository.getFeedPage(before.getCreatedAt(), before.getId(), pageSize + 1);
+
+            FeedPage page = toPage(posts, pageSize);
+            page = new FeedPage(withComments(page.getPosts()), page.getNextCursor());
+            if (cacheable) {
+                feedCache.put(cacheKey, before == null, page, generation);
+            }
+            return page;
+        }, cacheKey, contentVersions.getFeedVersion());
+    }
+
+    @Override
+    public FeedPage getUserPosts(Long userId, String cursor, int limit) {
+        if (userId == null) {
+            throw new BusinessException("使用者ID不能為空");
+        }
+        if (limit <= 0) {
+            throw new BusinessException("每頁筆數必須大於0");
+        }
+        int pageSize = Math.min(limit, MAX_FEED_LIMIT);
+        KeysetCursor before = KeysetCursor.decode(cursor);
+
+        // 多取一筆用於判斷是否還有下一頁
+        List<Post> posts = before == null
+                ? postRepository.getUserPostsPage(userId, null, null, pageSize + 1)
+                : postRepository.getUserPostsPage(userId, before.getCreatedAt(), before.getId(), pageSize + 1);
+        return toPage(posts, pageSize);
+    }
+
+    @Override
+    public FeedPage getHomeFeed(Long userId, String cursor, int limit) {
+        if (userId == null) {
+            throw new BusinessException("使用者ID不能為空");
+        }
+        if (limit <= 0) {
+            throw new BusinessException("每頁筆數必須大於0");
+        }
+        int pageSize = Math.min(limit, MAX_FEED_LIMIT);
+        // 首頁動態依發文ID排序，游標即為上一頁最後一筆的發文ID
+        Long beforePostId;
+        try {
+            beforePostId = cursor == null || cursor.isEmpty() ? null : Long.valueOf(cursor);
+        } catch (NumberFormatException e) {
+            throw new BusinessException("分頁游標格式錯誤", e);
+        }
+
+        // 多取一筆用於判斷是否還有下一頁
+        List<Long> postIds = timelineService.getHomePostIds(userId, beforePostId, pageSize + 1);
+        String nextCursor = null;
+        if (postIds.size() > pageSize) {
+            postIds = postIds.subList(0, pageSize);
+            nextCursor = String.valueOf(postIds.get(pageSize - 1));
+        }
+        return new FeedPage(withComments(postRepository.getPostsByIds(postIds)), nextCursor);
+    }
+
+    // 截去多取的一筆，並以本頁最後一筆產生下一頁游標
+    private static FeedPage toPage(List<Post> posts, int pageSize) {
+        String nextCursor = null;
+        if (posts.size() > pageSize) {
+            posts = new ArrayList<>(posts.subList(0, pageSize));
+            Post last = posts.get(pageSize - 1);
+            nextCursor = new KeysetCursor(last.getCreatedAt(), last.getPostId()).encode();
+        }
+        return new FeedPage(posts, nextCursor);
+    }
+
+    @Override
+    public SerializedFeedPage getFeedJson(String cursor, int limit) {
+        FeedPage page = getFeed(cursor, limit);
+        String cacheKey = feedCacheKey(Math.min(limit, MAX_FEED_LIMIT), cursor);
+
+        byte[] postsJson = feedCache.getPostsJson(cacheKey, page);
+        if (postsJson == null) {
+            try {
+                postsJson = POSTS_WRITER.writeValueAsBytes(page.getPosts());
+            } catch (JsonProcessingException e) {
+                throw new BusinessException("發文序列化失敗", e);
+            }
+            feedCache.putPostsJson(cacheKey, page, postsJson);
+        }
+        return new SerializedFeedPage(postsJson, page.getNextCursor());
+    }
+
+    private static String feedCacheKey(int pageSize, String cursor) {
+        return "feed:" + pageSize + ":" + (cursor == null ? "" : cursor);
     }
 
     @Override
@@ -77,7 +268,13 @@ public class PostServiceImpl implements PostService {
         post.setContent(HtmlEscapeUtil.escape(post.getContent()));
 
         // 編輯發文
-        return postRepository.editPost(post);
+        boolean result = postRepository.editPost(post);
+        if (result) {
+            feedCache.invalidatePost(post.getPostId());
+            contentVersions.bumpFeed();
+            eventPublisher.publishEvent(FeedEvent.postUpdated(post.getPostId(), post.getContent()));
+        }
+        return result;
     }
 
     @Override
@@ -93,6 +290,32 @@ public class PostServiceImpl implements PostService {
         // 但由於我們使用存儲過程，且要求最低限度實現，暫不處理
 
         // 刪除發文
-        return postRepository.deletePost(postId);
+        boolean result = postRepository.deletePost(postId);
+        if (result) {
+            feedCache.invalidatePost(postId);
+            contentVersions.bumpFeed();
+            contentVersions.bumpThread(postId);
+            eventPublisher.publishEvent(FeedEvent.postDeleted(postId));
+        }
+        return result;
+    }
+
+    // 一次查詢載入所有文章最新的數筆評論，再依文章ID分配，避免熱門文章使回應無限增大
+    // 返回附加留言後的複本（不可修改的列表），結果會放入快取並由多個請求共用，原本的發文不被修改
+    private List<Post> withComments(List<Post> posts) {
+        if (posts.isEmpty()) {
+            return List.of();
+        }
+        List<Long> postIds = posts.stream()
+                .map(Post::getPostId)
+                .collect(Collectors.toList());
+        Map<Long, List<Comment>> commentsByPost = commentRepository.getCommentPreviews(postIds, commentPreviewSize);
+        List<Post> result = new ArrayList<>(posts.size());
+        for (Post post : posts) {
+            Post copy = new Post(post);
+            copy.setComments(Collections.unmodifiableList(commentsByPost.getOrDefault(post.getPostId(), List.of())));
+            result.add(copy);
+        }
+        return Collections.unmodifiableList(result);
     }
 }
@@ -1,27 +1,43 @@
 package com.nanco.social.service.impl;
 
+import com.nanco.social.common.async.Bulkheads;
 import com.nanco.social.common.exception.BusinessException;
+import com.nanco.social.common.security.PasswordHasher;
 import com.nanco.social.common.util.HtmlEscapeUtil;
 import com.nanco.social.model.User;
 import com.nanco.social.model.dto.LoginRequest;
 import com.nanco.social.model.dto.UserRegisterRequest;
+import com.nanco.social.repository.FollowRepository;
 import com.nanco.social.repository.UserRepository;
 import com.nanco.social.service.UserService;
+import com.nanco.social.service.timeline.TimelineService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
 @Service
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final FollowRepository followRepository;
+    private final TimelineService timelineService;
+    private final PasswordHasher passwordHasher;
+    private final Bulkheads bulkheads;
 
     @Autowired
-    public UserServiceImpl(UserRepository userRepository) {
+    public UserServiceImpl(UserRepository userRepository, FollowRepository followRepository,
+                           TimelineService timelineService, PasswordHasher passwordHasher, Bulkheads bulkheads) {
         this.userRepository = userRepository;
+        this.followRepository = followRepository;
+        this.timelineService = timelineService;
+        this.passwordHasher = passwordHasher;
+        this.bulkheads = bulkheads;
     }
 
     @Override
-    public User register(UserRegisterRequest request) {
+    public CompletableFuture<User> register(UserRegisterRequest request) {
         if (request == null) {
             throw new BusinessException("註冊請求不能為空");
         }
@@ -41,24 +57,23 @@ public class UserServiceImpl implements UserService {
         User user = new User();
         user.setUserName(HtmlEscapeUtil.escape(request.getUserName()));
         user.setEmail(HtmlEscapeUtil.escape(request.getEmail()));
-        // 要求：Password 密碼請加鹽(salt)並經雜湊(Hash)後儲存，避免明碼外洩 - 密碼在存儲過程中雜湊
-        user.setPassword(request.getPassword()); // 密碼不需轉義，會被哈希
         user.setBiography(HtmlEscapeUtil.escape(request.getBiography()));
         user.setPhoneNumber(request.getPhoneNumber()); // 手機號碼不需轉義，假設只包含數字
 
-        // 創建使用者
-        boolean result = userRepository.createUser(user);
-
-        if (result) {
-            // 創建成功，返回登入信息
-            return userRepository.login(user.getPhoneNumber(), request.getPassword());
-        } else {
-            throw new BusinessException("註冊失敗，可能是使用者名稱或手機號碼已存在");
-        }
+        // 要求：Password 密碼請加鹽(salt)並經雜湊(Hash)後儲存，避免明碼外洩 - 以 BCrypt（每個使用者各自的鹽）雜湊後儲存
+        // 雜湊的執行緒池只做計算，雜湊完成後的寫入交回登入註冊的執行緒池；存儲過程直接返回新使用者，不需再查詢一次
+        return passwordHasher.hash(request.getPassword()).thenCompose(passwordHash -> bulkheads.auth().submit(() -> {
+            user.setPassword(passwordHash);
+            User created = userRepository.createUser(user);
+            if (created == null) {
+                throw new BusinessException("註冊失敗，可能是使用者名稱或手機號碼已存在");
+            }
+            return created;
+        }));
     }
 
     @Override
-    public User login(LoginRequest request) {
+    public CompletableFuture<User> login(LoginRequest request) {
         if (request == null) {
             throw new BusinessException("登入請求不能為空");
         }
@@ -71,14 +86,35 @@ public class UserServiceImpl implements UserService {
             throw new BusinessException("密碼不能為空");
         }
 
-        // 要求：Password 密碼請加鹽(salt)並經雜湊(Hash)後儲存，避免明碼外洩 - 進行登入驗證（密碼在存儲過程中雜湊比對）
-        User user = userRepository.login(request.getPhoneNumber(), request.getPassword());
+        // 要求：Password 密碼請加鹽(salt)並經雜湊(Hash)後儲存，避免明碼外洩 - 取得雜湊後在應用程式比對，不在資料庫計算
+        User user = userRepository.getCredentials(request.getPhoneNumber());
+        String storedHash = user == null ? null : user.getPassword();
+
+        return passwordHasher.verify(request.getPassword(), storedHash).thenApply(verification -> {
+            if (verification == PasswordHasher.Verification.MISMATCH) {
+                throw new BusinessException("登入失敗，手機號碼或密碼錯誤");
+            }
+            if (verification == PasswordHasher.Verification.MATCH_NEEDS_REHASH) {
+                rehash(user.getUserId(), request.getPassword());
+            }
+            user.setPassword(null);
+            return user;
+        });
+    }
 
-        if (user == null) {
-            throw new BusinessException("登入失敗，手機號碼或密碼錯誤");
+    // 舊版雜湊或成本較低的雜湊改存為目前設定的 BCrypt，不影響本次登入結果；寫入交給寫入的執行緒池，不佔用雜湊的執行緒
+    private void rehash(Long userId, String rawPassword) {
+        try {
+            passwordHasher.hash(rawPassword).thenAccept(passwordHash -> {
+                try {
+                    bulkheads.writes().submit(() -> userRepository.updatePassword(userId, passwordHash));
+                } catch (RejectedExecutionException e) {
+                    // 寫入佇列已滿，下次登入時再更新
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // 雜湊佇列已滿，下次登入時再更新
         }
-
-        return user;
     }
 
     @Override
@@ -89,4 +125,39 @@ public class UserServiceImpl implements UserService {
 
         return userRepository.updateUser(user);
     }
+
+    @Override
+    public boolean follow(Long followerId, Long followeeId) {
+        validateFollow(followerId, followeeId);
+
+        boolean result = followRepository.follow(followerId, followeeId);
+        if (result) {
+            // 首頁動態需納入新追蹤對象過去的發文，下次讀取時重建
+            timelineService.evict(followerId);
+        }
+        return result;
+    }
+
+    @Override
+    public boolean unfollow(Long followerId, Long followeeId) {
+        validateFollow(followerId, followeeId);
+
+        boolean result = followRepository.unfollow(followerId, followeeId);
+        if (result) {
+            timelineService.evict(followerId);
+        }
+        return result;
+    }
+
+    private static void validateFollow(Long followerId, Long followeeId) {
+        if (followerId == null) {
+            throw new BusinessException("使用者ID不能為空");
+        }
+        if (followeeId == null) {
+            throw new BusinessException("追蹤對象ID不能為空");
+        }
+        if (followerId.equals(followeeId)) {
+            throw new BusinessException("不能追蹤自己");
+        }
+    }
 }
@@ -0,0 +1,111 @@
+package com.nanco.social.service.timeline;
+
+import java.util.Arrays;
+
+/**
+ * 固定容量、由小到大排序的 long 環形緩衝區，保存一位使用者首頁動態的發文ID
+ * 以基本型別陣列存放，每筆只佔 8 bytes；容量已滿時捨棄最舊（最小）的ID
+ * 發文ID遞增，新ID通常直接附加在尾端；非執行緒安全，由呼叫端同步
+ */
+final class LongRingBuffer {
+
+    private final long[] values;
+    // 最舊一筆的實體位置
+    private int start;
+    private int size;
+
+    LongRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.values = new long[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return values.length;
+    }
+
+    /**
+     * 加入一筆ID，已存在時忽略
+     */
+    void add(long value) {
+        if (size == 0 || value > get(size - 1)) {
+            // 常見情況：新發文ID大於現有所有ID，直接附加
+            if (size == values.length) {
+                start = (start + 1) % values.length;
+                size--;
+            }
+            values[physical(size)] = value;
+            size++;
+            return;
+        }
+
+        int position = lowerBound(value);
+        if (position < size && get(position) == value) {
+            return;
+        }
+        if (size == values.length) {
+            if (position == 0) {
+                // 比所有保存的ID都舊且已無空間
+                return;
+            }
+            start = (start + 1) % values.length;
+            size--;
+            position--;
+        }
+        for (int i = size; i > position; i--) {
+            values[physical(i)] = values[physical(i - 1)];
+        }
+        values[physical(position)] = value;
+        size++;
+    }
+
+    /**
+     * 由新到舊取出小於 before 的ID
+     *
+     * @param before 上限（不含），null代表從最新開始
+     * @param limit 最多取出筆數
+     * @return 由新到舊排序的ID
+     */
+    long[] newestBefore(Long before, int limit) {
+        int end = before == null ? size : lowerBound(before);
+        int count = Math.max(0, Math.min(limit, end));
+        long[] result = new long[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = get(end - 1 - i);
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(newestBefore(null, size));
+    }
+
+    private long get(int index) {
+        return values[physical(index)];
+    }
+
+    private int physical(int index) {
+        return (start + index) % values.length;
+    }
+
+    // 第一個大於等於 value 的邏輯位置
+    private int lowerBound(long value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (get(mid) < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
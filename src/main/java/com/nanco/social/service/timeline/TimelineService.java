@@ -0,0 +1,268 @@
+package com.nanco.social.service.timeline;
+
+import com.nanco.social.repository.FollowRepository;
+import com.nanco.social.repository.PostRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 首頁動態（追蹤對象的發文）
+ * 一般帳號發文時將發文ID寫入各追蹤者記憶體中的環形緩衝區（fan-out-on-write），
+ * 追蹤者數超過門檻的帳號則不分發，由讀取時另外查詢（fan-out-on-read），避免單次發文需寫入大量動態；
+ * 讀取時只需合併兩個已排序的ID序列，再依ID載入發文，不需由資料庫排序
+ * 動態只保存於記憶體，數量有上限，不存在時由資料庫重建
+ * 寫入追蹤者動態的工作由單一背景執行緒執行，不佔用發文請求；佇列已滿時由發文的執行緒自行執行
+ */
+@Component
+public class TimelineService implements AutoCloseable {
+
+    private final FollowRepository followRepository;
+    private final PostRepository postRepository;
+    private final int capacity;
+    private final int maxUsers;
+    private final int fanoutThreshold;
+    private final Executor fanoutExecutor;
+    // 自行建立的執行緒池，close 時關閉；由外部傳入時為 null
+    private final ThreadPoolExecutor ownedExecutor;
+
+    private final LinkedHashMap<Long, Timeline> timelines;
+
+    private final LongAdder rebuilds = new LongAdder();
+
+    @Autowired
+    public TimelineService(FollowRepository followRepository, PostRepository postRepository,
+                           @Value("${timeline.capacity:200}") int capacity,
+                           @Value("${timeline.max-users:50000}") int maxUsers,
+                           @Value("${timeline.fanout-threshold:5000}") int fanoutThreshold,
+                           @Value("${timeline.fanout-queue-capacity:1000}") int fanoutQueueCapacity) {
+        this(followRepository, postRepository, capacity, maxUsers, fanoutThreshold,
+                fanoutExecutor(fanoutQueueCapacity));
+    }
+
+    TimelineService(FollowRepository followRepository, PostRepository postRepository,
+                    int capacity, int maxUsers, int fanoutThreshold, Executor fanoutExecutor) {
+        this.followRepository = followRepository;
+        this.postRepository = postRepository;
+        this.capacity = capacity;
+        this.maxUsers = maxUsers;
+        this.fanoutThreshold = fanoutThreshold;
+        this.fanoutExecutor = fanoutExecutor;
+        this.ownedExecutor = fanoutExecutor instanceof ThreadPoolExecutor ? (ThreadPoolExecutor) fanoutExecutor : null;
+        this.timelines = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Timeline> eldest) {
+                return size() > TimelineService.this.maxUsers;
+            }
+        };
+    }
+
+    private static ThreadPoolExecutor fanoutExecutor(int queueCapacity) {
+        return new ThreadPoolExecutor(1, 1, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            Thread thread = new Thread(runnable, "timeline-fanout");
+            thread.setDaemon(true);
+            return thread;
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * 新發文寫入作者本人及追蹤者的動態，只寫入已在記憶體中的動態，其餘在讀取時由資料庫重建
+     * 作者本人的動態立即寫入（發文後馬上讀取首頁可看到），追蹤者的動態由背景執行緒寫入
+     *
+     * @param authorId 作者ID
+     * @param postId 發文ID
+     */
+    public void onPostCreated(Long authorId, Long postId) {
+        if (authorId == null || postId == null) {
+            return;
+        }
+        Timeline own = residentTimeline(authorId);
+        if (own != null) {
+            own.add(postId);
+        }
+        if (isEmpty()) {
+            return;
+        }
+        fanoutExecutor.execute(() -> fanOut(authorId, postId));
+    }
+
+    private void fanOut(Long authorId, Long postId) {
+        // 先以使用者的追蹤者數判斷，沒有追蹤者或超過門檻（由讀取端查詢）時不需載入追蹤者ID
+        int followerCount = followRepository.getFollowerCount(authorId);
+        if (followerCount == 0 || followerCount > fanoutThreshold) {
+            return;
+        }
+        // 追蹤者數可能在查詢後改變，多取一筆再確認一次
+        List<Long> followerIds = followRepository.getFollowerIds(authorId, fanoutThreshold + 1);
+        if (followerIds.size() > fanoutThreshold) {
+            return;
+        }
+        for (Long followerId : followerIds) {
+            Timeline timeline = residentTimeline(followerId);
+            if (timeline != null) {
+                timeline.add(postId);
+            }
+        }
+    }
+
+    /**
+     * 追蹤關係改變後捨棄該使用者的動態，下次讀取時重建
+     */
+    public void evict(Long userId) {
+        synchronized (timelines) {
+            timelines.remove(userId);
+        }
+    }
+
+    /**
+     * 由新到舊獲取首頁動態的發文ID
+     *
+     * @param userId 使用者ID
+     * @param beforePostId 只返回小於此ID的發文，null代表從最新開始
+     * @param limit 最多返回筆數
+     * @return 發文ID列表
+     */
+    public List<Long> getHomePostIds(Long userId, Long beforePostId, int limit) {
+        Timeline timeline = timeline(userId);
+        long[] pushed = timeline.newestBefore(beforePostId, limit);
+        if (pushed.length < limit && timeline.isFull()) {
+            // 已超出記憶體保存的範圍（較舊的ID已被捨棄），改由資料庫讀取
+            pushed = toArray(postRepository.getPostIdsByUsers(timeline.pushedAuthorIds, beforePostId, limit));
+        }
+        long[] pulled = timeline.pulledFolloweeIds.isEmpty()
+                ? new long[0]
+                : toArray(postRepository.getPostIdsByUsers(timeline.pulledFolloweeIds, beforePostId, limit));
+        return mergeDescending(pushed, pulled, limit);
+    }
+
+    public int getResidentCount() {
+        synchronized (timelines) {
+            return timelines.size();
+        }
+    }
+
+    public long getRebuildCount() {
+        return rebuilds.sum();
+    }
+
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    private boolean isEmpty() {
+        synchronized (timelines) {
+            return timelines.isEmpty();
+        }
+    }
+
+    private Timeline residentTimeline(Long userId) {
+        synchronized (timelines) {
+            return timelines.get(userId);
+        }
+    }
+
+    // 先放入空的動態再由資料庫載入，載入期間的新發文照常寫入，載入結果與其合併
+    private Timeline timeline(Long userId) {
+        Timeline timeline;
+        synchronized (timelines) {
+            timeline = timelines.get(userId);
+            if (timeline == null) {
+                timeline = new Timeline(capacity);
+                timelines.put(userId, timeline);
+            }
+        }
+        if (!timeline.loaded) {
+            load(userId, timeline);
+        }
+        return timeline;
+    }
+
+    private void load(Long userId, Timeline timeline) {
+        rebuilds.increment();
+        Map<Long, Integer> followees = followRepository.getFollowees(userId);
+        List<Long> pushedAuthors = new ArrayList<>();
+        List<Long> pulledAuthors = new ArrayList<>();
+        pushedAuthors.add(userId);
+        followees.forEach((followeeId, followerCount) -> {
+            if (followerCount > fanoutThreshold) {
+                pulledAuthors.add(followeeId);
+            } else {
+                pushedAuthors.add(followeeId);
+            }
+        });
+
+        List<Long> recent = postRepository.getPostIdsByUsers(pushedAuthors, null, capacity);
+        synchronized (timeline) {
+            for (Long postId : recent) {
+                timeline.posts.add(postId);
+            }
+            timeline.pushedAuthorIds = pushedAuthors;
+            timeline.pulledFolloweeIds = pulledAuthors;
+            timeline.loaded = true;
+        }
+    }
+
+    private static long[] toArray(List<Long> ids) {
+        return ids.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    // 合併兩個由新到舊排序的ID序列並去除重複
+    static List<Long> mergeDescending(long[] left, long[] right, int limit) {
+        List<Long> merged = new ArrayList<>(Math.min(limit, left.length + right.length));
+        int i = 0;
+        int j = 0;
+        long last = Long.MAX_VALUE;
+        while (merged.size() < limit && (i < left.length || j < right.length)) {
+            long next;
+            if (j >= right.length || (i < left.length && left[i] >= right[j])) {
+                next = left[i++];
+            } else {
+                next = right[j++];
+            }
+            if (next != last) {
+                merged.add(next);
+                last = next;
+            }
+        }
+        return merged;
+    }
+
+    private static final class Timeline {
+        private final LongRingBuffer posts;
+        // 發文會寫入此動態的作者（本人及一般追蹤對象）
+        private volatile List<Long> pushedAuthorIds = List.of();
+        // 追蹤者數超過門檻的追蹤對象，讀取時另外查詢
+        private volatile List<Long> pulledFolloweeIds = List.of();
+        private volatile boolean loaded;
+
+        private Timeline(int capacity) {
+            this.posts = new LongRingBuffer(capacity);
+        }
+
+        private synchronized void add(long postId) {
+            posts.add(postId);
+        }
+
+        private synchronized long[] newestBefore(Long before, int limit) {
+            return posts.newestBefore(before, limit);
+        }
+
+        private synchronized boolean isFull() {
+            return posts.size() == posts.capacity();
+        }
+    }
+}
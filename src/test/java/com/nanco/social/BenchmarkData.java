@@ -0,0 +1,111 @@
+package com.nanco.social;
+
+import com.nanco.social.model.Comment;
+import com.nanco.social.model.Post;
+import com.nanco.social.model.dto.FeedPage;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 效能測試共用的測試資料，以固定亂數種子產生，每次執行內容相同以便比對結果
+ */
+public final class BenchmarkData {
+
+    // 內容取自測試資料，每篇不同，避免重複文字讓壓縮率失真
+    private static final String[] CONTENTS = {
+            "今天去了一間很棒的咖啡廳，手沖的衣索比亞耶加雪菲帶有明亮的柑橘與莓果香氣，店裡的環境也很適合工作。",
+            "週末到陽明山健行，天氣很好，沿途的芒草都開了，山頂的視野非常遼闊，推薦大家找時間去走走。",
+            "分享一道簡單的家常菜：番茄炒蛋。蛋先炒到半熟盛起，再炒番茄出汁，最後加入蛋拌勻即可。",
+            "最近在練習新的吉他曲，指法比想像中困難，每天練習半小時，希望下個月可以完整彈完整首歌。",
+            "新的瑜伽課程開始報名了！這期著重在核心肌群與呼吸練習，適合初學者，歡迎朋友們一起來上課。",
+            "今天讀完一本關於時間管理的書，最大的收穫是學會把重要但不緊急的事情排進每天的固定時段。",
+            "家裡的狗狗今天第一次去美容，剪完毛之後整隻變得好小，回家路上一直黏著我，真的太可愛了。"
+    };
+
+    private static final String[] COMMENTS = {
+            "好棒的分享，下次也想去看看！",
+            "看起來好好吃，週末來試做",
+            "加油！期待你的成果",
+            "推推，謝謝分享這麼實用的資訊",
+            "照片拍得真好，是用手機拍的嗎？"
+    };
+
+    // 使用者實際可能貼上的片段：表情符號（UTF-16 代理對）、HTML 標籤、引號與 & 符號
+    private static final String[] MARKUP = {
+            "😀", "🎉🎉", "👍🏻", "❤️", "🍜", "🐶",
+            "<b>重點</b>", "<a href=\"https://example.com/?a=1&b=2\">連結</a>", "<script>alert('x')</script>",
+            "Tom & Jerry", "\"引用\"", "it's", " #台北 ", " @User_3 ", "\n"
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * 產生指定長度（UTF-16 字元數）的發文內容
+     *
+     * @param length 長度
+     * @param markup 是否混入表情符號與 HTML 特殊字元，false 時只有中文與全形標點
+     * @param seed 亂數種子
+     */
+    public static String postBody(int length, boolean markup, long seed) {
+        Random random = new Random(seed);
+        StringBuilder body = new StringBuilder(length + 64);
+        while (body.length() < length) {
+            String sentence = CONTENTS[random.nextInt(CONTENTS.length)];
+            if (markup) {
+                int cut = random.nextInt(sentence.length());
+                body.append(sentence, 0, cut)
+                        .append(MARKUP[random.nextInt(MARKUP.length)])
+                        .append(sentence, cut, sentence.length());
+            } else {
+                body.append(sentence);
+            }
+        }
+        int end = length;
+        if (Character.isHighSurrogate(body.charAt(end - 1))) {
+            // 不截斷代理對
+            end--;
+        }
+        return body.substring(0, end);
+    }
+
+    /**
+     * 與 /api/post/feed 相同結構的分頁：每篇發文附最新幾則留言
+     *
+     * @param postCount 發文數
+     * @param commentsPerPost 每篇附帶的留言數
+     * @param bodyLength 發文內容長度，0 代表使用一般長度的短文
+     */
+    public static FeedPage feedPage(int postCount, int commentsPerPost, int bodyLength) {
+        List<Post> posts = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        for (long postId = postCount; postId >= 1; postId--) {
+            Post post = new Post();
+            post.setPostId(postId);
+            post.setUserId(postId % 10 + 1);
+            post.setUserName("User_" + (postId % 10 + 1));
+            post.setContent(bodyLength > 0
+                    ? postBody(bodyLength, true, postId)
+                    : CONTENTS[(int) (postId % CONTENTS.length)] + " #" + postId);
+            post.setCreatedAt(new Timestamp(now - postId * 60000));
+            post.setCommentCount(commentsPerPost * 4);
+            List<Comment> comments = new ArrayList<>();
+            for (long i = 1; i <= commentsPerPost; i++) {
+                Comment comment = new Comment();
+                comment.setCommentId(postId * 100 + i);
+                comment.setPostId(postId);
+                comment.setUserId(i);
+                comment.setUserName("User_" + i);
+                comment.setContent(COMMENTS[(int) ((postId + i) % COMMENTS.length)]);
+                comment.setCreatedAt(new Timestamp(now - postId * 60000 + i * 1000));
+                comments.add(comment);
+            }
+            post.setComments(comments);
+            posts.add(post);
+        }
+        return new FeedPage(posts, "MTcwMDAwMDAwMDAwMDoxMDA");
+    }
+}
@@ -0,0 +1,166 @@
+package com.nanco.social.common.async;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BulkheadTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private Bulkhead bulkhead;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        RequestContextHolder.resetRequestAttributes();
+        if (bulkhead != null) {
+            bulkhead.close();
+        }
+    }
+
+    @Test
+    void rejectsOnceThreadsAndQueueAreFull() {
+        bulkhead = new Bulkhead("write", 1, 1, 5000, registry);
+
+        bulkhead.submit(this::block);
+        bulkhead.submit(this::block);
+
+        assertThrows(RejectedExecutionException.class, () -> bulkhead.submit(this::block));
+        assertEquals(1.0, registry.get("bulkhead.rejected").tag("name", "write").counter().count());
+    }
+
+    @Test
+    void timedOutTaskStillQueuedIsSkipped() throws Exception {
+        bulkhead = new Bulkhead("feed-read", 1, 10, 50, registry);
+        AtomicBoolean queuedRan = new AtomicBoolean();
+
+        CompletableFuture<String> running = bulkhead.submit(this::block);
+        CompletableFuture<String> queued = bulkhead.submit(() -> {
+            queuedRan.set(true);
+            return "late";
+        });
+
+        ExecutionException error = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof TimeoutException);
+        assertTrue(running.isCompletedExceptionally());
+
+        release.countDown();
+        // 等待佇列中的工作被取出後確認未執行
+        bulkhead.submit(() -> "after").get(5, TimeUnit.SECONDS);
+        assertFalse(queuedRan.get());
+        // 計數在結束 Future 之後才增加，等待逾時執行緒完成
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("bulkhead.timeouts").tag("name", "feed-read").counter().count() < 2.0
+                && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(2.0, registry.get("bulkhead.timeouts").tag("name", "feed-read").counter().count());
+    }
+
+    @Test
+    void writeBulkheadNeverTimesOutRunningTask() throws Exception {
+        bulkhead = new Bulkhead("write", 1, 10, 50, false, registry);
+
+        CompletableFuture<String> running = bulkhead.submit(this::block);
+        CompletableFuture<String> queued = bulkhead.submit(() -> "late");
+
+        // 佇列中的寫入逾時且不會執行，已開始的寫入等待其結果
+        ExecutionException error = assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+        assertTrue(error.getCause() instanceof TimeoutException);
+        Thread.sleep(100);
+        assertFalse(running.isDone());
+        release.countDown();
+        assertEquals("done", running.get(5, TimeUnit.SECONDS));
+        assertEquals(1.0, registry.get("bulkhead.timeouts").tag("name", "write").counter().count());
+    }
+
+    @Test
+    void completedTasksCancelTheirTimeoutTimers() throws Exception {
+        bulkhead = new Bulkhead("feed-read", 2, 200, 60000, registry);
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            futures.add(bulkhead.submit(() -> "done"));
+        }
+        for (CompletableFuture<String> future : futures) {
+            assertEquals("done", future.get(5, TimeUnit.SECONDS));
+        }
+
+        // whenComplete 可能在 get 返回後才執行，等待取消完成
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.pendingTimeouts() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, bulkhead.pendingTimeouts());
+    }
+
+    @Test
+    void runningWriteDropsItsTimeoutTimer() throws Exception {
+        bulkhead = new Bulkhead("write", 1, 10, 60000, false, registry);
+        CountDownLatch started = new CountDownLatch(1);
+
+        CompletableFuture<String> running = bulkhead.submit(() -> {
+            started.countDown();
+            return block();
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.pendingTimeouts() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(0, bulkhead.pendingTimeouts());
+        assertFalse(running.isDone());
+        release.countDown();
+        assertEquals("done", running.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void tasksSeeSnapshotOfTheSubmittingRequest() throws Exception {
+        bulkhead = new Bulkhead("comment-read", 1, 10, 5000, registry);
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/comments/create");
+        request.setAttribute("userId", 7L);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+
+        RequestSnapshot snapshot = bulkhead.submit(RequestSnapshot::current).get(5, TimeUnit.SECONDS);
+
+        assertEquals(7L, snapshot.getUserId());
+        assertEquals("POST", snapshot.getMethod());
+        assertSame(snapshot, RequestSnapshot.find(request));
+        // 工作只取得快照，不綁定請求物件；請求結束後送出的工作也不保留
+        assertEquals(Boolean.TRUE, bulkhead.submit(() -> RequestContextHolder.getRequestAttributes() == null)
+                .get(5, TimeUnit.SECONDS));
+        RequestContextHolder.resetRequestAttributes();
+        assertNull(bulkhead.submit(RequestSnapshot::current).get(5, TimeUnit.SECONDS));
+    }
+
+    private String block() {
+        try {
+            release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return "done";
+    }
+}
@@ -0,0 +1,141 @@
+package com.nanco.social.common.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ReplicaRouterTests {
+
+    private final DataSource primary = mock(DataSource.class);
+    private final AtomicLong now = new AtomicLong();
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    void roundRobinSkipsLaggingReplica() throws SQLException {
+        DataSource first = replica(0);
+        DataSource second = replica(0);
+        DataSource lagging = replica(30);
+        ReplicaRouter router = router(List.of(first, second, lagging), ReplicaRouter.Strategy.ROUND_ROBIN);
+
+        router.checkHealth();
+
+        assertEquals(2, router.getHealthyCount());
+        for (int i = 0; i < 6; i++) {
+            DataSource routed = router.route();
+            assertSame(i % 2 == 0 ? first : second, routed);
+        }
+    }
+
+    @Test
+    void leastConnectionsPicksIdlestReplica() throws SQLException {
+        HikariDataSource busy = pooledReplica(8);
+        HikariDataSource idle = pooledReplica(1);
+        ReplicaRouter router = router(List.of(busy, idle), ReplicaRouter.Strategy.LEAST_CONNECTIONS);
+
+        router.checkHealth();
+
+        for (int i = 0; i < 4; i++) {
+            assertSame(idle, router.route());
+        }
+    }
+
+    @Test
+    void writerReadsPrimaryWithinStickyWindow() throws SQLException {
+        DataSource replica = replica(0);
+        ReplicaRouter router = router(List.of(replica), ReplicaRouter.Strategy.ROUND_ROBIN);
+        router.checkHealth();
+
+        bindRequest("POST", 7L);
+        assertSame(primary, router.route());
+        router.recordWrite(7L);
+
+        bindRequest("GET", 7L);
+        assertSame(primary, router.route());
+        bindRequest("GET", 8L);
+        assertSame(replica, router.route());
+
+        now.addAndGet(5_000_000_001L);
+        bindRequest("GET", 7L);
+        assertSame(replica, router.route());
+    }
+
+    @Test
+    void readmitsReplicaAndFallsBackToPrimaryWhenNoneHealthy() throws SQLException {
+        AtomicLong lag = new AtomicLong(60);
+        DataSource replica = replica(lag);
+        ReplicaRouter router = router(List.of(replica), ReplicaRouter.Strategy.ROUND_ROBIN);
+
+        router.checkHealth();
+        assertSame(primary, router.route());
+
+        lag.set(1);
+        router.checkHealth();
+        assertSame(replica, router.route());
+    }
+
+    private ReplicaRouter router(List<DataSource> replicas, ReplicaRouter.Strategy strategy) {
+        return new ReplicaRouter(primary, replicas, strategy, 2, 5000, new SimpleMeterRegistry(), now::get);
+    }
+
+    private static void bindRequest(String method, Long userId) {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, "/api/post/feed");
+        request.setAttribute("userId", userId);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    private static DataSource replica(long lagSeconds) throws SQLException {
+        return replica(new AtomicLong(lagSeconds));
+    }
+
+    private static DataSource replica(AtomicLong lagSeconds) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        stubStatus(dataSource, lagSeconds);
+        return dataSource;
+    }
+
+    private static HikariDataSource pooledReplica(int activeConnections) throws SQLException {
+        HikariDataSource dataSource = mock(HikariDataSource.class);
+        HikariPoolMXBean pool = mock(HikariPoolMXBean.class);
+        when(pool.getActiveConnections()).thenReturn(activeConnections);
+        when(dataSource.getHikariPoolMXBean()).thenReturn(pool);
+        stubStatus(dataSource, new AtomicLong());
+        return dataSource;
+    }
+
+    // 每次檢查都建立新的結果集，模擬 SHOW REPLICA STATUS
+    private static void stubStatus(DataSource dataSource, AtomicLong lagSeconds) throws SQLException {
+        Connection connection = mock(Connection.class);
+        Statement statement = mock(Statement.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(statement.executeQuery(anyString())).thenAnswer(invocation -> {
+            ResultSet status = mock(ResultSet.class);
+            when(status.next()).thenReturn(true);
+            when(status.getLong("Seconds_Behind_Source")).thenReturn(lagSeconds.get());
+            return status;
+        });
+    }
+}
@@ -0,0 +1,96 @@
+package com.nanco.social.common.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ConcurrencyLimitFilterTests {
+
+    private static final long BASELINE = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void limitGrowsWhileLatencyIsStableAndShrinksWhenItRises() {
+        GradientLimiter limiter = new GradientLimiter("read", 20, 5, 100, new SimpleMeterRegistry());
+
+        // 上限被用滿且回應時間穩定
+        for (int i = 0; i < 200; i++) {
+            sampleAtLimit(limiter, BASELINE);
+        }
+        int grown = limiter.getLimit();
+        assertTrue(grown > 20, "limit " + grown);
+
+        // 資料庫開始排隊，回應時間變為 5 倍
+        for (int i = 0; i < 30; i++) {
+            sampleAtLimit(limiter, BASELINE * 5);
+        }
+        assertTrue(limiter.getLimit() < grown / 2, "limit " + limiter.getLimit());
+        assertTrue(limiter.getLimit() >= 5);
+    }
+
+    @Test
+    void idleTrafficDoesNotRaiseLimit() {
+        GradientLimiter limiter = new GradientLimiter("read", 20, 5, 100, new SimpleMeterRegistry());
+
+        for (int i = 0; i < 200; i++) {
+            assertTrue(limiter.tryAcquire());
+            limiter.release(BASELINE);
+        }
+        assertEquals(20, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    void rejectsWithRetryAfterOnceReadBudgetIsExhausted() throws Exception {
+        ConcurrencyLimitFilter filter = new ConcurrencyLimitFilter(true, 1, 1, 1, 1, 1, 1, 2,
+                new ObjectMapper(), new SimpleMeterRegistry());
+
+        // 第一個讀取請求處理中時送出第二個讀取請求與一個寫入請求
+        AtomicReference<MockHttpServletResponse> nested = new AtomicReference<>();
+        AtomicReference<MockHttpServletResponse> write = new AtomicReference<>();
+        FilterChain slowRead = (request, response) -> {
+            nested.set(run(filter, "GET", "/api/comments/list/1", new MockFilterChain()));
+            write.set(run(filter, "POST", "/api/comments/create", new MockFilterChain()));
+        };
+        MockHttpServletResponse first = run(filter, "GET", "/api/post/list", slowRead);
+
+        assertEquals(200, first.getStatus());
+        assertEquals(503, nested.get().getStatus());
+        assertEquals("2", nested.get().getHeader("Retry-After"));
+        assertTrue(nested.get().getContentAsString().contains("\"success\":false"));
+        assertEquals(200, write.get().getStatus());
+        assertEquals(0, filter.getReadLimiter().getInFlight());
+        assertEquals(0, filter.getWriteLimiter().getInFlight());
+    }
+
+    // 上限被用滿時完成一個請求，其餘請求歸還時不作為樣本
+    private static void sampleAtLimit(GradientLimiter limiter, long rttNanos) {
+        while (limiter.tryAcquire()) {
+            // 取得所有名額
+        }
+        limiter.release(rttNanos);
+        while (limiter.getInFlight() > 0) {
+            limiter.release(0);
+        }
+    }
+
+    private static MockHttpServletResponse run(ConcurrencyLimitFilter filter, String method, String path,
+                                               FilterChain chain) throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+}
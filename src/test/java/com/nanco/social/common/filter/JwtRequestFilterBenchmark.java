@@ -0,0 +1,108 @@
+package com.nanco.social.common.filter;
+
+import com.nanco.social.common.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.SignatureAlgorithm;
+import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.security.Key;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JWT過濾器每個請求的成本：舊版三次解析、單次解析、快取命中
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtRequestFilterBenchmark {
+
+    private Key legacyKey;
+    private String legacyToken;
+
+    private JwtRequestFilter uncachedFilter;
+    private JwtRequestFilter cachedFilter;
+    private String uncachedToken;
+    private String cachedToken;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        legacyKey = Keys.secretKeyFor(SignatureAlgorithm.HS256);
+        legacyToken = Jwts.builder()
+                .setClaims(Map.of("userId", 42L, "userName", "Alice_Chen"))
+                .setIssuedAt(new Date())
+                .setExpiration(new Date(System.currentTimeMillis() + 86400000L))
+                .signWith(legacyKey)
+                .compact();
+
+        JwtUtil uncachedJwtUtil = new JwtUtil(86400000L, 0);
+        uncachedFilter = new JwtRequestFilter(uncachedJwtUtil, new SimpleMeterRegistry());
+        uncachedToken = uncachedJwtUtil.generateToken(42L, "Alice_Chen");
+
+        JwtUtil cachedJwtUtil = new JwtUtil(86400000L, 10000);
+        cachedFilter = new JwtRequestFilter(cachedJwtUtil, new SimpleMeterRegistry());
+        cachedToken = cachedJwtUtil.generateToken(42L, "Alice_Chen");
+        // 預先寫入快取
+        filter(cachedFilter, cachedToken);
+    }
+
+    /**
+     * 舊版流程：extractUserId、extractUserName、validateToken 各自建立解析器並驗證簽章
+     */
+    @Benchmark
+    public Object legacyThreeParses() {
+        Claims claims = parseLegacy();
+        Long userId = Long.valueOf(claims.get("userId").toString());
+        String userName = parseLegacy().get("userName", String.class);
+        boolean valid = !parseLegacy().getExpiration().before(new Date());
+        return valid ? userId + userName : null;
+    }
+
+    @Benchmark
+    public Object filterSingleParse() throws Exception {
+        return filter(uncachedFilter, uncachedToken);
+    }
+
+    @Benchmark
+    public Object filterCacheHit() throws Exception {
+        return filter(cachedFilter, cachedToken);
+    }
+
+    private Claims parseLegacy() {
+        return Jwts.parserBuilder()
+                .setSigningKey(legacyKey)
+                .build()
+                .parseClaimsJws(legacyToken)
+                .getBody();
+    }
+
+    private static Object filter(JwtRequestFilter filter, String token) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/post/feed");
+        request.setServletPath("/api/post/feed");
+        request.addHeader("Authorization", "Bearer " + token);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        SecurityContextHolder.clearContext();
+        return request.getAttribute("userId");
+    }
+}
@@ -0,0 +1,96 @@
+package com.nanco.social.common.filter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.servlet.ServletException;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RateLimitFilterTests {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(1_000 * SECOND);
+
+    @Test
+    void allowsBurstThenRefillsAtConfiguredRate() {
+        TokenBucketLimiter limiter = limiter("post", 2, 3);
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(0, limiter.tryAcquire(7L));
+        }
+        long wait = limiter.tryAcquire(7L);
+        assertEquals(SECOND / 2, wait);
+        // 其他使用者不受影響
+        assertEquals(0, limiter.tryAcquire(8L));
+
+        now.addAndGet(wait);
+        assertEquals(0, limiter.tryAcquire(7L));
+        assertTrue(limiter.tryAcquire(7L) > 0);
+
+        assertEquals(5.0, registry.get("rate.limit.decisions").tag("result", "allowed").counter().count());
+        assertEquals(2.0, registry.get("rate.limit.decisions").tag("result", "limited").counter().count());
+    }
+
+    @Test
+    void evictsUsersWhoseBucketHasRefilled() {
+        TokenBucketLimiter limiter = limiter("comment", 1, 2);
+        limiter.tryAcquire(1L);
+        limiter.tryAcquire(2L);
+        limiter.tryAcquire(2L);
+        assertEquals(2, limiter.getTrackedUsers());
+
+        // 使用者 1 的桶已補滿，使用者 2 還差一個令牌
+        now.addAndGet(SECOND + SECOND / 2);
+        assertEquals(0, limiter.tryAcquire(3L));
+        assertEquals(2, limiter.getTrackedUsers());
+        now.addAndGet(SECOND * 10);
+        limiter.tryAcquire(3L);
+        assertEquals(1, limiter.getTrackedUsers());
+    }
+
+    @Test
+    void rejectsWritesPerUserWith429AndLeavesReadsAlone() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(true, limiter("post", 1, 1), limiter("comment", 1, 1),
+                limiter("write", 1, 1), new ObjectMapper());
+
+        assertEquals(200, run(filter, "POST", "/api/post/create", 7L).getStatus());
+        MockHttpServletResponse limited = run(filter, "POST", "/api/post/create", 7L);
+        assertEquals(429, limited.getStatus());
+        assertEquals("1", limited.getHeader("Retry-After"));
+        assertTrue(limited.getContentAsString().contains("\"success\":false"));
+
+        // 各端點分類與各使用者分開計算，讀取與未登入的請求不限流
+        assertEquals(200, run(filter, "POST", "/api/comments/create", 7L).getStatus());
+        assertEquals(200, run(filter, "POST", "/api/post/create", 8L).getStatus());
+        assertEquals(200, run(filter, "GET", "/api/post/list", 7L).getStatus());
+        assertEquals(200, run(filter, "GET", "/api/post/list", 7L).getStatus());
+        assertEquals(200, run(filter, "POST", "/api/user/login", null).getStatus());
+    }
+
+    private TokenBucketLimiter limiter(String name, double rate, int burst) {
+        return new TokenBucketLimiter(name, rate, burst, SECOND, registry, now::get);
+    }
+
+    private static MockHttpServletResponse run(RateLimitFilter filter, String method, String path, Long userId)
+            throws IOException, ServletException {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, path);
+        request.setServletPath(path);
+        if (userId != null) {
+            request.setAttribute("userId", userId);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
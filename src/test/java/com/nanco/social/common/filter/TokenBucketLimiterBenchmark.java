@@ -0,0 +1,48 @@
+package com.nanco.social.common.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每個寫入請求的限流成本，16 個執行緒同時判斷
+ * users 為 1 時所有執行緒競爭同一個桶（最壞情況），10000 時分散在不同的桶
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class TokenBucketLimiterBenchmark {
+
+    @Param({"1", "10000"})
+    private int users;
+
+    private TokenBucketLimiter limiter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        limiter = new TokenBucketLimiter("post", 2, 10, new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public long tryAcquire() {
+        return limiter.tryAcquire(ThreadLocalRandom.current().nextInt(users));
+    }
+}
@@ -0,0 +1,43 @@
+package com.nanco.social.common.metrics;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ProcedureMetricsTests {
+
+    @Test
+    void countsFailuresByProcedureAndException() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ProcedureMetrics metrics = new ProcedureMetrics(registry);
+
+        assertEquals("ok", metrics.record("sp_get_feed_page", () -> "ok"));
+        for (int i = 0; i < 2; i++) {
+            assertThrows(QueryTimeoutException.class, () -> metrics.run("sp_get_feed_page", () -> {
+                throw new QueryTimeoutException("timeout");
+            }));
+        }
+
+        assertEquals(1, registry.get("db.procedure").tags("procedure", "sp_get_feed_page", "outcome", "success")
+                .timer().count());
+        assertEquals(2, registry.get("db.procedure").tags("procedure", "sp_get_feed_page", "outcome", "error")
+                .timer().count());
+        assertEquals(2.0, registry.get("db.procedure.errors")
+                .tags("procedure", "sp_get_feed_page", "exception", "QueryTimeoutException")
+                .counter().count());
+    }
+
+    @Test
+    void successfulCallsDoNotRegisterErrorCounter() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        ProcedureMetrics metrics = new ProcedureMetrics(registry);
+
+        metrics.run("sp_edit_post", () -> { });
+
+        assertNull(registry.find("db.procedure.errors").counter());
+    }
+}
@@ -0,0 +1,212 @@
+package com.nanco.social.common.resilience;
+
+import com.nanco.social.common.datasource.ReplicaRouter;
+import com.nanco.social.common.exception.CircuitOpenException;
+import com.nanco.social.common.util.StaleResponses;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class StaleWhileRevalidateTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/post/list");
+    private final CircuitBreakers breakers = new CircuitBreakers(true, 0.5, 2, 2, 60000, registry);
+    private StaleWhileRevalidate staleWhileRevalidate;
+
+    @BeforeEach
+    void setUp() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+        staleWhileRevalidate = staleWhileRevalidate(5000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+        staleWhileRevalidate.close();
+    }
+
+    @Test
+    void breakerOpensOnFailureRateAndClosesAfterSuccessfulProbe() {
+        AtomicLong now = new AtomicLong();
+        CircuitBreaker breaker = new CircuitBreaker("sp_get_all_posts", 0.5, 4, 4, 1000, now::get);
+
+        breaker.onSuccess();
+        breaker.onError();
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        breaker.onError();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertFalse(breaker.tryAcquire());
+
+        // 開啟時間到後只放行一個試探呼叫
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(breaker.tryAcquire());
+        assertFalse(breaker.tryAcquire());
+        breaker.onError();
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertTrue(breaker.tryAcquire());
+    }
+
+    @Test
+    void onlyDataAccessFailuresCountTowardOpeningBreaker() {
+        for (int i = 0; i < 4; i++) {
+            // 串流匯出時客戶端中斷，由回呼拋出的例外
+            assertThrows(UncheckedIOException.class, () -> breakers.execute("sp_get_all_posts.export", () -> {
+                throw new UncheckedIOException(new IOException("Broken pipe"));
+            }));
+        }
+        assertEquals(CircuitBreaker.State.CLOSED, breakers.breaker("sp_get_all_posts.export").getState());
+
+        // 由 SQLException 引起的例外計入失敗（2 次中 1 次即開啟）
+        assertThrows(UncheckedIOException.class, () -> breakers.execute("sp_get_all_posts.export", () -> {
+            throw new UncheckedIOException(new IOException("read failed", new SQLException("Communications link failure")));
+        }));
+        assertEquals(CircuitBreaker.State.OPEN, breakers.breaker("sp_get_all_posts.export").getState());
+        assertEquals(CircuitBreaker.State.CLOSED, breakers.breaker("sp_get_all_posts").getState());
+    }
+
+    @Test
+    void openBreakerServesLastGoodResultMarkedStale() {
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger failing = new AtomicInteger();
+
+        assertEquals(List.of("post"), read(breakers, calls, failing));
+        assertNull(StaleResponses.currentAgeMillis());
+
+        // 由請求內容造成的錯誤不計入失敗
+        assertThrows(DataIntegrityViolationException.class, () -> breakers.execute("sp_create_user", () -> {
+            throw new DataIntegrityViolationException("duplicate");
+        }));
+        assertEquals(CircuitBreaker.State.CLOSED, breakers.breaker("sp_create_user").getState());
+
+        // 斷路器關閉時直接查詢，失敗時返回上次的結果；失敗比例達門檻（2 次中 1 次）即開啟，之後的讀取不再呼叫資料庫
+        failing.set(1);
+        assertEquals(List.of("post"), read(breakers, calls, failing));
+        assertEquals(CircuitBreaker.State.OPEN, breakers.breaker("sp_get_all_posts").getState());
+        int before = calls.get();
+        assertEquals(List.of("post"), read(breakers, calls, failing));
+        assertEquals(before, calls.get());
+        assertEquals(1.0, registry.get("db.circuit.rejected").counter().count());
+        assertEquals(2.0, registry.get("stale.reads").tag("result", "stale-error").counter().count());
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        StaleResponses.applyHeaders(request, response);
+        assertEquals("true", response.getHeader(StaleResponses.STALE_HEADER));
+        assertEquals("no-store", response.getHeader("Cache-Control"));
+
+        // 沒有舊結果的參數照舊拋出例外
+        assertThrows(CircuitOpenException.class, () -> staleWhileRevalidate.read("sp_get_all_posts",
+                () -> breakers.execute("sp_get_all_posts", () -> List.of("other")), 2));
+    }
+
+    @Test
+    void healthyReadsRunInlineOnCallerThread() {
+        Thread caller = Thread.currentThread();
+        List<Thread> loaderThreads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String version = "v" + i;
+            assertEquals(version, staleWhileRevalidate.read("sp_get_post_comments", () -> {
+                loaderThreads.add(Thread.currentThread());
+                return version;
+            }, 42L));
+        }
+
+        assertEquals(List.of(caller, caller, caller), loaderThreads);
+        assertNull(StaleResponses.currentAgeMillis());
+        assertEquals(3.0, registry.get("stale.reads").tag("result", "fresh").counter().count());
+    }
+
+    @Test
+    void slowQueryServesStaleWhileSingleRefreshRepopulates() throws Exception {
+        staleWhileRevalidate.close();
+        staleWhileRevalidate = staleWhileRevalidate(50);
+        AtomicInteger slowCalls = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        staleWhileRevalidate.read("sp_get_post_comments", () -> "v1", 42L);
+
+        // 直接查詢超過等待時間，結果照常返回，之後的查詢改由背景執行緒執行
+        assertEquals("v2", staleWhileRevalidate.read("sp_get_post_comments", () -> {
+            sleep(100);
+            return "v2";
+        }, 42L));
+        assertNull(StaleResponses.currentAgeMillis());
+
+        Runnable slowRead = () -> assertEquals("v2", staleWhileRevalidate.read("sp_get_post_comments", () -> {
+            slowCalls.incrementAndGet();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "v3";
+        }, 42L));
+        slowRead.run();
+        slowRead.run();
+        assertTrue(StaleResponses.currentAgeMillis() != null);
+        assertEquals(2.0, registry.get("stale.reads").tag("result", "stale-slow").counter().count());
+
+        // 兩次逾時的讀取共用同一個背景查詢，完成後更新保存的結果
+        release.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        String latest = "v2";
+        while ("v2".equals(latest) && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+            latest = staleWhileRevalidate.read("sp_get_post_comments", () -> "v4", 42L);
+        }
+        assertFalse("v2".equals(latest));
+        assertEquals(1, slowCalls.get());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private StaleWhileRevalidate staleWhileRevalidate(long latencyBudgetMillis) {
+        return new StaleWhileRevalidate(latencyBudgetMillis, 600000, 100, 2, 10,
+                new ReplicaRouter(null, List.of(), ReplicaRouter.Strategy.ROUND_ROBIN, 2, 5000, registry), breakers,
+                registry);
+    }
+
+    private List<String> read(CircuitBreakers breakers, AtomicInteger calls, AtomicInteger failing) {
+        return staleWhileRevalidate.read("sp_get_all_posts", () -> breakers.execute("sp_get_all_posts", () -> {
+            calls.incrementAndGet();
+            if (failing.get() > 0) {
+                throw new QueryTimeoutException("timeout");
+            }
+            return List.of("post");
+        }));
+    }
+}
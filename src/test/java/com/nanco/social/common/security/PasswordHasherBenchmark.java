@@ -0,0 +1,56 @@
+package com.nanco.social.common.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 不同 BCrypt 成本下每秒可完成的登入密碼比對數
+ * 以多個執行緒同時送出，經由專用執行緒池計算，結果即為單一節點的登入吞吐量上限
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+@Threads(16)
+@State(Scope.Benchmark)
+public class PasswordHasherBenchmark {
+
+    @Param({"8", "10", "12"})
+    private int strength;
+
+    private PasswordHasher hasher;
+    private String storedHash;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 佇列足以容納所有送出的執行緒，不會被拒絕
+        hasher = new PasswordHasher(strength, 0, 64, new SimpleMeterRegistry());
+        storedHash = hasher.hash("password123").join();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hasher.close();
+    }
+
+    @Benchmark
+    public PasswordHasher.Verification login() {
+        return hasher.verify("password123", storedHash).join();
+    }
+}
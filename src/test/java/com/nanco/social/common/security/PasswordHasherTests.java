@@ -0,0 +1,67 @@
+package com.nanco.social.common.security;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PasswordHasherTests {
+
+    private PasswordHasher hasher;
+
+    @AfterEach
+    void tearDown() {
+        if (hasher != null) {
+            hasher.close();
+        }
+    }
+
+    @Test
+    void hashesWithPerUserSaltAndVerifies() {
+        hasher = new PasswordHasher(4, 1, 10, new SimpleMeterRegistry());
+
+        String first = hasher.hash("password123").join();
+        String second = hasher.hash("password123").join();
+
+        assertTrue(first.startsWith("$2a$04$"));
+        assertNotEquals(first, second);
+        assertEquals(PasswordHasher.Verification.MATCH, hasher.verify("password123", first).join());
+        assertEquals(PasswordHasher.Verification.MISMATCH, hasher.verify("password124", first).join());
+        assertEquals(PasswordHasher.Verification.MISMATCH, hasher.verify("password123", null).join());
+    }
+
+    @Test
+    void legacyAndCheaperHashesNeedRehash() {
+        hasher = new PasswordHasher(5, 1, 10, new SimpleMeterRegistry());
+        // DB/dml.sql 中 SHA2(CONCAT('password123', 'salt123'), 256) 的結果
+        String legacy = "bb4609fd7ede19a1a39bb73b2b84e41284e7df890458f63358323e81718a0954";
+        String cheaper = new BCryptPasswordEncoder(4).encode("password123");
+
+        assertEquals(PasswordHasher.Verification.MATCH_NEEDS_REHASH, hasher.verify("password123", legacy).join());
+        assertEquals(PasswordHasher.Verification.MISMATCH, hasher.verify("password", legacy).join());
+        assertEquals(PasswordHasher.Verification.MATCH_NEEDS_REHASH, hasher.verify("password123", cheaper).join());
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        hasher = new PasswordHasher(12, 1, 1, new SimpleMeterRegistry());
+
+        List<CompletableFuture<String>> accepted = new ArrayList<>();
+        assertThrows(RejectedExecutionException.class, () -> {
+            for (int i = 0; i < 3; i++) {
+                accepted.add(hasher.hash("password123"));
+            }
+        });
+        assertEquals(2, accepted.size());
+    }
+}
@@ -0,0 +1,100 @@
+package com.nanco.social.common.sse;
+
+import com.nanco.social.model.dto.FeedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FeedEventBroadcasterTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final Deque<SseEmitter> emitters = new ArrayDeque<>();
+    private FeedEventBroadcaster broadcaster;
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        if (broadcaster != null) {
+            broadcaster.shutdown();
+        }
+    }
+
+    @Test
+    void blockedEmitterDoesNotDelayOtherSubscribers() throws Exception {
+        BlockingEmitter blocked = new BlockingEmitter();
+        RecordingEmitter healthy = new RecordingEmitter();
+        emitters.add(blocked);
+        emitters.add(healthy);
+        // 只有一個寫出執行緒，卡住的連線會佔住它
+        broadcaster = new FeedEventBroadcaster(registry, 64, 100, 60000, 3000, 60000, 1, 100, 4, emitters::poll);
+
+        broadcaster.subscribe();
+        assertTrue(blocked.sending.await(5, TimeUnit.SECONDS));
+        broadcaster.subscribe();
+        broadcaster.broadcast(FeedEvent.postDeleted(7L));
+
+        assertNotNull(healthy.sent.poll(5, TimeUnit.SECONDS));
+        assertNotNull(healthy.sent.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, broadcaster.getConnectionCount());
+        assertEquals(1.0, registry.get("feed.stream.stalled").counter().count());
+        assertFalse(blocked.completed);
+
+        // 卡住的寫出結束後由寫出的執行緒關閉連線
+        release.countDown();
+        assertTrue(blocked.completion.await(5, TimeUnit.SECONDS));
+        assertFalse(healthy.completed);
+    }
+
+    private class BlockingEmitter extends SseEmitter {
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch completion = new CountDownLatch(1);
+        private volatile boolean completed;
+
+        // 與 SseEmitter 相同，寫出期間持有連線的鎖
+        @Override
+        public synchronized void send(SseEventBuilder builder) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+            completion.countDown();
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+        private final BlockingQueue<SseEventBuilder> sent = new LinkedBlockingQueue<>();
+        private volatile boolean completed;
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            sent.add(builder);
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+    }
+}
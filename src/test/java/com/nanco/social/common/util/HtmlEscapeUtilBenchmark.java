@@ -0,0 +1,60 @@
+package com.nanco.social.common.util;
+
+import com.nanco.social.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 發文、留言寫入前的 HTML 轉義成本
+ * mixed 混入表情符號與 HTML 特殊字元，plain 只有中文與全形標點（不需轉義的常見情況）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HtmlEscapeUtilBenchmark {
+
+    @Param({"140", "5000"})
+    public int length;
+
+    @Param({"mixed", "plain"})
+    public String content;
+
+    private String input;
+    private final StringBuilder buffer = new StringBuilder(8192);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = BenchmarkData.postBody(length, "mixed".equals(content), 42L);
+    }
+
+    @Benchmark
+    public String escape() {
+        return HtmlEscapeUtil.escape(input);
+    }
+
+    /**
+     * 寫入重複使用的緩衝區，不建立新的字串
+     */
+    @Benchmark
+    public StringBuilder escapeIntoBuffer() throws IOException {
+        buffer.setLength(0);
+        HtmlEscapeUtil.escape(input, buffer);
+        return buffer;
+    }
+}
@@ -0,0 +1,42 @@
+package com.nanco.social.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class HtmlEscapeUtilTests {
+
+    @Test
+    void returnsSameInstanceWhenNothingToEscape() {
+        String input = "今天天氣很好，去陽明山健行 😀 #台北";
+
+        assertSame(input, HtmlEscapeUtil.escape(input));
+        assertNull(HtmlEscapeUtil.escape(null));
+    }
+
+    @Test
+    void escapesSpecialCharactersBetweenCleanRuns() {
+        assertEquals("&lt;b&gt;重點&lt;/b&gt; Tom &amp; Jerry &quot;引用&quot; it&#x27;s",
+                HtmlEscapeUtil.escape("<b>重點</b> Tom & Jerry \"引用\" it's"));
+        assertEquals("&lt;&gt;", HtmlEscapeUtil.escape("<>"));
+    }
+
+    @Test
+    void escapesIntoBufferAndWriter() throws IOException {
+        String input = "a<b>&c 🎉";
+        StringBuilder buffer = new StringBuilder("前綴:");
+        StringWriter writer = new StringWriter();
+
+        HtmlEscapeUtil.escape(input, buffer);
+        HtmlEscapeUtil.escape(input, writer);
+        HtmlEscapeUtil.escape(null, writer);
+
+        assertEquals("前綴:a&lt;b&gt;&amp;c 🎉", buffer.toString());
+        assertEquals(HtmlEscapeUtil.escape(input), writer.toString());
+    }
+}
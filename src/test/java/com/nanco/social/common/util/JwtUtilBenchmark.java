@@ -0,0 +1,61 @@
+package com.nanco.social.common.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登入簽發令牌與每個請求解析令牌的成本
+ * 快取命中的情況見 JwtRequestFilterBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtUtilBenchmark {
+
+    private JwtUtil jwtUtil;
+    private String token;
+    private long userId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 停用快取，每次都完整驗證簽章
+        jwtUtil = new JwtUtil(86400000L, 0);
+        token = jwtUtil.generateToken(42L, "Alice_Chen");
+    }
+
+    @Benchmark
+    public String generateToken() {
+        return jwtUtil.generateToken(++userId, "Alice_Chen");
+    }
+
+    /**
+     * 單次解析並驗證簽章與到期時間（過濾器使用的路徑）
+     */
+    @Benchmark
+    public JwtPrincipal verify() {
+        return jwtUtil.verify(token);
+    }
+
+    /**
+     * 經由 extractClaim 解析全部聲明後取出單一欄位
+     */
+    @Benchmark
+    public Long extractAllClaims() {
+        return jwtUtil.extractUserId(token);
+    }
+}
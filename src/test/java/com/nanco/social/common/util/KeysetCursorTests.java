@@ -0,0 +1,48 @@
+package com.nanco.social.common.util;
+
+import com.nanco.social.common.exception.BusinessException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.Base64;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeysetCursorTests {
+
+    @Test
+    void encodeDecodeRoundTrip() {
+        KeysetCursor cursor = new KeysetCursor(new Timestamp(1_700_000_000_123L), 42L);
+
+        String encoded = cursor.encode();
+        KeysetCursor decoded = KeysetCursor.decode(encoded);
+
+        // 游標只含 URL 安全字元，可直接放在查詢參數
+        assertTrue(encoded.matches("[A-Za-z0-9_-]+"));
+        assertEquals(cursor.getCreatedAt(), decoded.getCreatedAt());
+        assertEquals(cursor.getId(), decoded.getId());
+    }
+
+    @Test
+    void emptyCursorMeansFirstPage() {
+        assertNull(KeysetCursor.decode(null));
+        assertNull(KeysetCursor.decode(""));
+    }
+
+    @Test
+    void malformedOrTamperedCursorIsBusinessError() {
+        assertThrows(BusinessException.class, () -> KeysetCursor.decode("not base64!"));
+        assertThrows(BusinessException.class, () -> KeysetCursor.decode(encodeRaw("12345")));
+        assertThrows(BusinessException.class, () -> KeysetCursor.decode(encodeRaw("12345:abc")));
+        assertThrows(BusinessException.class, () -> KeysetCursor.decode(encodeRaw(":42")));
+        assertThrows(BusinessException.class, () -> KeysetCursor.decode(encodeRaw("1:2:3")));
+    }
+
+    private static String encodeRaw(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
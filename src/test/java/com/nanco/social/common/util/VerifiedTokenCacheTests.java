@@ -0,0 +1,82 @@
+package com.nanco.social.common.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class VerifiedTokenCacheTests {
+
+    @Test
+    void expiredTokensAreNotReturned() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        JwtPrincipal principal = principal(1L, 1000);
+        cache.put("a", principal, 0);
+
+        assertSame(principal, cache.get("a", 999));
+        assertNull(cache.get("a", 1000));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+    }
+
+    @Test
+    void putRemovesExpiredEntriesFirst() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(10);
+        cache.put("a", principal(1L, 100), 0);
+        cache.put("b", principal(2L, 200), 0);
+        cache.put("c", principal(3L, 5000), 0);
+
+        cache.put("d", principal(4L, 5000), 150);
+
+        assertEquals(3, cache.size());
+        assertNull(cache.get("a", 0));
+        assertNotNull(cache.get("b", 150));
+    }
+
+    @Test
+    void sizeStaysBoundedByEvictingEarliestExpiry() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(100);
+        for (int i = 0; i < 1000; i++) {
+            // 到期時間與加入順序不同，淘汰依到期時間
+            cache.put("token-" + i, principal((long) i, 10_000 + (i * 7919L) % 1000), 0);
+            assertEquals(Math.min(i + 1, 100), cache.size());
+        }
+
+        int kept = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (cache.get("token-" + i, 0) != null) {
+                kept++;
+                assertEquals(true, (i * 7919L) % 1000 >= 900);
+            }
+        }
+        assertEquals(100, kept);
+    }
+
+    @Test
+    void replacingTokenKeepsSingleEntry() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(2);
+        cache.put("a", principal(1L, 1000), 0);
+        JwtPrincipal replaced = principal(1L, 2000);
+        cache.put("a", replaced, 0);
+        cache.put("b", principal(2L, 3000), 0);
+
+        assertEquals(2, cache.size());
+        assertSame(replaced, cache.get("a", 1500));
+    }
+
+    @Test
+    void zeroSizeDisablesCache() {
+        VerifiedTokenCache cache = new VerifiedTokenCache(0);
+        cache.put("a", principal(1L, 1000), 0);
+
+        assertNull(cache.get("a", 0));
+        assertEquals(0, cache.size());
+    }
+
+    private static JwtPrincipal principal(Long userId, long expiresAtMillis) {
+        return new JwtPrincipal(userId, "user" + userId, expiresAtMillis);
+    }
+}
@@ -0,0 +1,110 @@
+package com.nanco.social.controller;
+
+import com.nanco.social.common.async.Bulkheads;
+import com.nanco.social.model.dto.CommentPage;
+import com.nanco.social.service.CommentService;
+import com.nanco.social.service.cache.ContentVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class CommentControllerTests {
+
+    private CommentService commentService;
+    private ContentVersions contentVersions;
+    private Bulkheads bulkheads;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        commentService = mock(CommentService.class);
+        contentVersions = new ContentVersions();
+        when(commentService.getPostComments(eq(1L), any(), anyInt()))
+                .thenReturn(new CommentPage(List.of(), null));
+        bulkheads = new Bulkheads(1, 10, 1000, 1, 10, 1000, 1, 10, 1000, 1, 10, 1000, new SimpleMeterRegistry());
+        mockMvc = MockMvcBuilders.standaloneSetup(new CommentController(commentService, contentVersions, bulkheads)).build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkheads.close();
+    }
+
+    @Test
+    void answersMatchingIfNoneMatchWithoutLoadingComments() throws Exception {
+        String etag = perform(get("/api/comments/list/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "private, no-cache"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        perform(get("/api/comments/list/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        verify(commentService, times(1)).getPostComments(eq(1L), any(), anyInt());
+    }
+
+    @Test
+    void binaryFormatsNegotiatedByAcceptUseSeparateETags() throws Exception {
+        String jsonETag = perform(get("/api/comments/list/1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        String smileETag = perform(get("/api/comments/list/1").header(HttpHeaders.ACCEPT, "application/x-jackson-smile"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-jackson-smile"))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        assertNotEquals(jsonETag, smileETag);
+        perform(get("/api/comments/list/1")
+                        .header(HttpHeaders.ACCEPT, "application/x-jackson-smile")
+                        .header(HttpHeaders.IF_NONE_MATCH, jsonETag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void commentWriteChangesETag() throws Exception {
+        String etag = perform(get("/api/comments/list/1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        contentVersions.bumpThread(1L);
+
+        perform(get("/api/comments/list/1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        verify(commentService, times(2)).getPostComments(eq(1L), any(), anyInt());
+    }
+
+    // 留言列表在執行緒池中讀取，完成後再分派一次產生回應；304 時不進入非同步處理
+    private ResultActions perform(MockHttpServletRequestBuilder request) throws Exception {
+        ResultActions actions = mockMvc.perform(request);
+        MvcResult result = actions.andReturn();
+        if (!result.getRequest().isAsyncStarted()) {
+            return actions;
+        }
+        result.getAsyncResult(5000);
+        return mockMvc.perform(asyncDispatch(result));
+    }
+}
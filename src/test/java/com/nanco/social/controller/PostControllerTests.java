@@ -0,0 +1,149 @@
+package com.nanco.social.controller;
+
+import com.nanco.social.common.async.Bulkheads;
+import com.nanco.social.common.converter.SerializedFeedPageConverter;
+import com.nanco.social.common.handler.GlobalExceptionHandler;
+import com.nanco.social.common.sse.FeedEventBroadcaster;
+import com.nanco.social.model.Post;
+import com.nanco.social.service.PostService;
+import com.nanco.social.service.cache.ContentVersions;
+import com.nanco.social.service.cache.SerializedFeedPage;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+class PostControllerTests {
+
+    private PostService postService;
+    private Bulkheads bulkheads;
+    private MockMvc mockMvc;
+
+    @BeforeEach
+    void setUp() {
+        postService = mock(PostService.class);
+        bulkheads = new Bulkheads(1, 10, 1000, 1, 10, 1000, 1, 10, 1000, 1, 10, 1000, new SimpleMeterRegistry());
+        PostController controller = new PostController(postService, new ContentVersions(),
+                mock(FeedEventBroadcaster.class), bulkheads, 1, 200);
+        mockMvc = MockMvcBuilders.standaloneSetup(controller)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .setMessageConverters(new SerializedFeedPageConverter(), new MappingJackson2HttpMessageConverter())
+                .build();
+    }
+
+    @AfterEach
+    void tearDown() {
+        bulkheads.close();
+    }
+
+    @Test
+    void feedWritesCachedPostsJsonWithContentLength() throws Exception {
+        byte[] postsJson = "[{\"postId\":2,\"content\":\"發文\"}]".getBytes(StandardCharsets.UTF_8);
+        when(postService.getFeedJson(null, 20)).thenReturn(new SerializedFeedPage(postsJson, "Y3Vyc29y"));
+
+        MvcResult result = mockMvc.perform(get("/api/post/feed")).andReturn();
+        result.getAsyncResult(5000);
+        MvcResult response = mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.success").value(true))
+                .andExpect(jsonPath("$.data.posts[0].content").value("發文"))
+                .andExpect(jsonPath("$.data.nextCursor").value("Y3Vyc29y"))
+                .andReturn();
+
+        byte[] body = response.getResponse().getContentAsByteArray();
+        assertEquals(String.valueOf(body.length), response.getResponse().getHeader(HttpHeaders.CONTENT_LENGTH));
+    }
+
+    @Test
+    void exportBeyondConcurrencyLimitIsRejectedWithRetryAfter() throws Exception {
+        CountDownLatch streaming = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(postService.streamAllPosts(any())).thenAnswer(invocation -> {
+            streaming.countDown();
+            release.await();
+            return true;
+        });
+
+        MvcResult first = mockMvc.perform(get("/api/post/export")).andReturn();
+        assertTrue(streaming.await(5, TimeUnit.SECONDS));
+
+        MvcResult second = mockMvc.perform(get("/api/post/export")).andReturn();
+        second.getAsyncResult(5000);
+        mockMvc.perform(asyncDispatch(second))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().exists(HttpHeaders.RETRY_AFTER));
+
+        release.countDown();
+        first.getAsyncResult(5000);
+        mockMvc.perform(asyncDispatch(first)).andExpect(status().isOk());
+        // 名額歸還後可再次匯出
+        MvcResult third = mockMvc.perform(get("/api/post/export")).andReturn();
+        third.getAsyncResult(5000);
+        mockMvc.perform(asyncDispatch(third)).andExpect(status().isOk());
+    }
+
+    @Test
+    void exportStopsReadingOncePastItsDeadline() throws Exception {
+        AtomicInteger delivered = new AtomicInteger();
+        when(postService.streamAllPosts(any())).thenAnswer(invocation -> {
+            Consumer<Post> consumer = invocation.getArgument(0);
+            try {
+                for (int i = 0; i < 1000; i++) {
+                    consumer.accept(new Post());
+                    delivered.incrementAndGet();
+                    Thread.sleep(1);
+                }
+                return true;
+            } catch (UncheckedIOException e) {
+                // 與資料存取層相同，中斷讀取並返回未完成
+                return false;
+            }
+        });
+
+        MvcResult result = mockMvc.perform(get("/api/post/export")).andReturn();
+        assertInstanceOf(IOException.class, result.getAsyncResult(5000));
+        assertTrue(delivered.get() < 1000);
+    }
+
+    @Test
+    void lastFeedPageHasNullCursor() throws Exception {
+        when(postService.getFeedJson(null, 20))
+                .thenReturn(new SerializedFeedPage("[]".getBytes(StandardCharsets.UTF_8), null));
+
+        MvcResult result = mockMvc.perform(get("/api/post/feed")).andReturn();
+        result.getAsyncResult(5000);
+        mockMvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(
+                        "{\"success\":true,\"message\":\"操作成功\",\"data\":{\"posts\":[],\"nextCursor\":null}}"
+                                .getBytes(StandardCharsets.UTF_8)));
+    }
+}
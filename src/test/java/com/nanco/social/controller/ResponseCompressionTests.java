@@ -0,0 +1,108 @@
+package com.nanco.social.controller;
+
+import com.nanco.social.common.async.Bulkheads;
+import com.nanco.social.common.sse.FeedEventBroadcaster;
+import com.nanco.social.model.Post;
+import com.nanco.social.service.PostService;
+import com.nanco.social.service.cache.ContentVersions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.http.HttpMessageConvertersAutoConfiguration;
+import org.springframework.boot.autoconfigure.jackson.JacksonAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.DispatcherServletAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.ServletWebServerFactoryAutoConfiguration;
+import org.springframework.boot.autoconfigure.web.servlet.WebMvcAutoConfiguration;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * 以實際的 Tomcat 確認帶有 ETag 的大型回應仍會壓縮
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        classes = ResponseCompressionTests.TestConfig.class)
+class ResponseCompressionTests {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private ContentVersions contentVersions;
+
+    @Test
+    void largePostListIsGzippedAndRevalidates() throws Exception {
+        HttpClient client = HttpClient.newHttpClient();
+        HttpResponse<byte[]> response = client.send(HttpRequest.newBuilder(uri())
+                .header("Accept-Encoding", "gzip")
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("gzip", response.headers().firstValue("Content-Encoding").orElse(null));
+        String etag = response.headers().firstValue("ETag").orElseThrow();
+        assertTrue(etag.startsWith("W/"));
+        String json = new String(new GZIPInputStream(new ByteArrayInputStream(response.body())).readAllBytes(),
+                StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"content\":\"post 199"));
+
+        HttpResponse<byte[]> revalidated = client.send(HttpRequest.newBuilder(uri())
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", etag)
+                .build(), HttpResponse.BodyHandlers.ofByteArray());
+        assertEquals(304, revalidated.statusCode());
+    }
+
+    private URI uri() {
+        return URI.create("http://localhost:" + port + "/api/post/list");
+    }
+
+    @Configuration
+    @ImportAutoConfiguration({ServletWebServerFactoryAutoConfiguration.class, DispatcherServletAutoConfiguration.class,
+            WebMvcAutoConfiguration.class, HttpMessageConvertersAutoConfiguration.class,
+            JacksonAutoConfiguration.class})
+    static class TestConfig {
+
+        @Bean
+        ContentVersions contentVersions() {
+            return new ContentVersions();
+        }
+
+        @Bean(destroyMethod = "close")
+        Bulkheads bulkheads() {
+            return new Bulkheads(1, 10, 1000, 1, 10, 1000, 1, 10, 1000, 1, 10, 1000, new SimpleMeterRegistry());
+        }
+
+        @Bean
+        PostController postController(ContentVersions contentVersions, Bulkheads bulkheads) {
+            List<Post> posts = new ArrayList<>();
+            for (long postId = 1; postId < 200; postId++) {
+                Post post = new Post();
+                post.setPostId(postId);
+                post.setUserId(1L);
+                post.setContent("post " + postId);
+                post.setComments(List.of());
+                posts.add(post);
+            }
+            PostService postService = mock(PostService.class);
+            when(postService.getAllPosts()).thenReturn(posts);
+            return new PostController(postService, contentVersions, mock(FeedEventBroadcaster.class), bulkheads, 2, 60000);
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.nanco.social.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.nanco.social.BenchmarkData;
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 依讀寫比例對 REST API 發送請求，輸出各操作的吞吐量與延遲百分位數
+ * 以固定速率發送（open-loop）：每個請求有預定的發送時間，延遲由預定時間起算，
+ * 伺服器變慢時排隊等待的時間也計入，避免 closed-loop 測試低估尾端延遲（coordinated omission）
+ * 登入帳號為 SyntheticDataGenerator 產生的帳號；結果另以 JSON 輸出，可比對不同版本
+ */
+public final class LoadDriver {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    // 最長記錄 60 秒，三位有效數字
+    private static final long MAX_LATENCY_MICROS = TimeUnit.SECONDS.toMicros(60);
+
+    private final String baseUrl = LoadTest.setting("base-url", "http://localhost:8080");
+    private final int rate = LoadTest.intSetting("rate", 200);
+    private final int durationSeconds = LoadTest.intSetting("duration", 60);
+    private final int warmupSeconds = LoadTest.intSetting("warmup", 10);
+    private final int concurrency = LoadTest.intSetting("concurrency", 64);
+    private final int accounts = LoadTest.intSetting("accounts", 100);
+    private final String password = LoadTest.setting("password", "loadtest123");
+    private final String mix = LoadTest.setting("mix", "feed=40,comments=25,home=15,user=10,post=5,comment=5");
+    private final String resultFile = LoadTest.setting("result", "target/loadtest-result.json");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    private final List<String> tokens = new ArrayList<>();
+
+    // 由發文列表回應收集的發文ID與作者ID，供留言列表、個人頁面與新增留言使用
+    private final AtomicLongArray knownPostIds = new AtomicLongArray(4096);
+    private final AtomicLongArray knownUserIds = new AtomicLongArray(4096);
+    private final AtomicLong knownCursor = new AtomicLong();
+
+    private volatile String feedCursor;
+
+    public static void main(String[] args) throws Exception {
+        new LoadDriver().run();
+    }
+
+    private void run() throws Exception {
+        Map<String, Operation> operations = parseMix();
+        login();
+        // 預先讀取一頁發文，取得可用的發文ID
+        recordIds(send(get("/api/post/feed?limit=50")).body());
+
+        int totalWeight = operations.values().stream().mapToInt(operation -> operation.weight).sum();
+        Operation[] wheel = new Operation[totalWeight];
+        int slot = 0;
+        for (Operation operation : operations.values()) {
+            for (int i = 0; i < operation.weight; i++) {
+                wheel[slot++] = operation;
+            }
+        }
+
+        System.out.printf("目標 %s，每秒 %d 個請求，暖機 %d 秒、測量 %d 秒，比例：%s%n",
+                baseUrl, rate, warmupSeconds, durationSeconds, mix);
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(durationSeconds);
+        for (long i = 0; ; i++) {
+            long intended = start + i * intervalNanos;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = wheel[ThreadLocalRandom.current().nextInt(wheel.length)];
+            boolean measured = intended >= measureFrom;
+            workers.execute(() -> execute(operation, intended, measured));
+        }
+        workers.shutdown();
+        if (!workers.awaitTermination(2, TimeUnit.MINUTES)) {
+            workers.shutdownNow();
+        }
+        report(operations);
+    }
+
+    private void execute(Operation operation, long intended, boolean measured) {
+        boolean ok;
+        try {
+            HttpResponse<String> response = send(request(operation.name));
+            ok = response.statusCode() < 400;
+            if (ok && operation.name.equals("feed")) {
+                recordIds(response.body());
+            }
+        } catch (Exception e) {
+            ok = false;
+        }
+        if (measured) {
+            long micros = Math.min(MAX_LATENCY_MICROS, (System.nanoTime() - intended) / 1000);
+            operation.latency.recordValue(Math.max(1, micros));
+            if (!ok) {
+                operation.errors.incrementAndGet();
+            }
+        }
+    }
+
+    private HttpRequest request(String operation) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        switch (operation) {
+            case "feed":
+                // 約三成請求為翻頁
+                String cursor = feedCursor;
+                return get(cursor != null && random.nextInt(10) < 3
+                        ? "/api/post/feed?before=" + cursor
+                        : "/api/post/feed");
+            case "comments":
+                return get("/api/comments/list/" + known(knownPostIds));
+            case "home":
+                return get("/api/post/home");
+            case "user":
+                return get("/api/post/user/" + known(knownUserIds));
+            case "post":
+                return post("/api/post/create", json("content",
+                        BenchmarkData.postBody(40 + random.nextInt(400), true, random.nextLong())));
+            case "comment":
+                ObjectNode comment = json("content", "壓力測試留言 " + random.nextInt(1000));
+                comment.put("postId", known(knownPostIds));
+                return post("/api/comments/create", comment);
+            default:
+                throw new IllegalArgumentException("未知的操作：" + operation);
+        }
+    }
+
+    private void login() throws IOException, InterruptedException {
+        for (int number = 1; number <= accounts; number++) {
+            ObjectNode body = json("phoneNumber", String.format("08%08d", number));
+            body.put("password", password);
+            HttpResponse<String> response = client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/api/user/login"))
+                            .header("Content-Type", "application/json")
+                            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                            .build(),
+                    HttpResponse.BodyHandlers.ofString());
+            JsonNode token = MAPPER.readTree(response.body()).path("data").path("token");
+            if (response.statusCode() != 200 || token.isMissingNode()) {
+                throw new IllegalStateException("登入失敗（" + response.statusCode() + "）：" + response.body()
+                        + "，請先執行 -Dloadtest.task=generate 產生測試帳號");
+            }
+            tokens.add(token.asText());
+        }
+        System.out.printf("已登入 %d 個帳號%n", tokens.size());
+    }
+
+    private void recordIds(String body) {
+        try {
+            JsonNode data = MAPPER.readTree(body).path("data");
+            for (JsonNode post : data.path("posts")) {
+                int slot = (int) (knownCursor.getAndIncrement() & (knownPostIds.length() - 1));
+                knownPostIds.set(slot, post.path("postId").asLong());
+                knownUserIds.set(slot, post.path("userId").asLong());
+            }
+            if (data.hasNonNull("nextCursor")) {
+                feedCursor = data.get("nextCursor").asText();
+            }
+        } catch (IOException e) {
+            // 回應格式不符時只是少收集一些ID
+        }
+    }
+
+    private long known(AtomicLongArray ids) {
+        int filled = (int) Math.min(ids.length(), knownCursor.get());
+        if (filled == 0) {
+            return 1;
+        }
+        long id = ids.get(ThreadLocalRandom.current().nextInt(filled));
+        return id == 0 ? 1 : id;
+    }
+
+    private HttpRequest get(String path) {
+        return authorized(path).GET().build();
+    }
+
+    private HttpRequest post(String path, ObjectNode body) {
+        return authorized(path)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+                .build();
+    }
+
+    private HttpRequest.Builder authorized(String path) {
+        String token = tokens.get(ThreadLocalRandom.current().nextInt(tokens.size()));
+        return HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Authorization", "Bearer " + token);
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static ObjectNode json(String field, String value) {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put(field, value);
+        return node;
+    }
+
+    private Map<String, Operation> parseMix() {
+        Map<String, Operation> operations = new LinkedHashMap<>();
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split("=");
+            int weight = Integer.parseInt(parts[1].trim());
+            if (weight > 0) {
+                operations.put(parts[0].trim(), new Operation(parts[0].trim(), weight));
+            }
+        }
+        if (operations.isEmpty()) {
+            throw new IllegalArgumentException("loadtest.mix 沒有任何操作");
+        }
+        return operations;
+    }
+
+    private void report(Map<String, Operation> operations) throws IOException {
+        Histogram total = new Histogram(MAX_LATENCY_MICROS, 3);
+        long totalErrors = 0;
+        ObjectNode result = MAPPER.createObjectNode();
+        result.put("baseUrl", baseUrl);
+        result.put("rate", rate);
+        result.put("durationSeconds", durationSeconds);
+        result.put("mix", mix);
+        ArrayNode rows = result.putArray("operations");
+
+        System.out.printf("%n%-10s %10s %8s %10s %10s %10s %10s %10s %10s%n",
+                "操作", "請求數", "錯誤", "req/s", "p50(ms)", "p90(ms)", "p99(ms)", "p99.9(ms)", "max(ms)");
+        for (Operation operation : operations.values()) {
+            Histogram histogram = operation.latency.copy();
+            total.add(histogram);
+            totalErrors += operation.errors.get();
+            print(operation.name, histogram, operation.errors.get());
+            rows.add(toJson(operation.name, histogram, operation.errors.get()));
+        }
+        print("total", total, totalErrors);
+        result.set("total", toJson("total", total, totalErrors));
+
+        File file = new File(resultFile);
+        if (file.getParentFile() != null) {
+            file.getParentFile().mkdirs();
+        }
+        MAPPER.writerWithDefaultPrettyPrinter().writeValue(file, result);
+        System.out.printf("%n結果已寫入 %s%n", file.getPath());
+    }
+
+    private void print(String name, Histogram histogram, long errors) {
+        System.out.printf("%-10s %10d %8d %10.1f %10.2f %10.2f %10.2f %10.2f %10.2f%n",
+                name, histogram.getTotalCount(), errors, histogram.getTotalCount() / (double) durationSeconds,
+                millis(histogram, 50), millis(histogram, 90), millis(histogram, 99), millis(histogram, 99.9),
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    private ObjectNode toJson(String name, Histogram histogram, long errors) {
+        ObjectNode node = MAPPER.createObjectNode();
+        node.put("operation", name);
+        node.put("requests", histogram.getTotalCount());
+        node.put("errors", errors);
+        node.put("throughput", histogram.getTotalCount() / (double) durationSeconds);
+        node.put("p50Ms", millis(histogram, 50));
+        node.put("p90Ms", millis(histogram, 90));
+        node.put("p99Ms", millis(histogram, 99));
+        node.put("p999Ms", millis(histogram, 99.9));
+        node.put("maxMs", histogram.getMaxValue() / 1000.0);
+        return node;
+    }
+
+    private static double millis(Histogram histogram, double percentile) {
+        return histogram.getValueAtPercentile(percentile) / 1000.0;
+    }
+
+    private static final class Operation {
+        private final String name;
+        private final int weight;
+        private final ConcurrentHistogram latency = new ConcurrentHistogram(MAX_LATENCY_MICROS, 3);
+        private final AtomicLong errors = new AtomicLong();
+
+        private Operation(String name, int weight) {
+            this.name = name;
+            this.weight = weight;
+        }
+    }
+}
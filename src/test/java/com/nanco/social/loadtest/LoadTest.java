@@ -0,0 +1,44 @@
+package com.nanco.social.loadtest;
+
+/**
+ * 壓力測試進入點，由 loadtest 設定檔執行：
+ * mvn -Ploadtest test -Dloadtest.task=generate   產生測試資料並批次寫入資料庫
+ * mvn -Ploadtest test -Dloadtest.task=drive      依讀寫比例對 REST API 發送請求並輸出吞吐量與延遲百分位數
+ * 其餘參數皆以 -Dloadtest.* 系統屬性指定，預設值見各類別
+ */
+public final class LoadTest {
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String task = args.length > 0 ? args[0] : setting("task", "drive");
+        switch (task) {
+            case "generate":
+                SyntheticDataGenerator.main(args);
+                break;
+            case "drive":
+                LoadDriver.main(args);
+                break;
+            default:
+                throw new IllegalArgumentException("未知的 loadtest.task：" + task + "（可用值：generate、drive）");
+        }
+    }
+
+    static String setting(String name, String defaultValue) {
+        String value = System.getProperty("loadtest." + name);
+        return value == null || value.isEmpty() ? defaultValue : value;
+    }
+
+    static int intSetting(String name, int defaultValue) {
+        return Integer.parseInt(setting(name, Integer.toString(defaultValue)));
+    }
+
+    static long longSetting(String name, long defaultValue) {
+        return Long.parseLong(setting(name, Long.toString(defaultValue)));
+    }
+
+    static double doubleSetting(String name, double defaultValue) {
+        return Double.parseDouble(setting(name, Double.toString(defaultValue)));
+    }
+}
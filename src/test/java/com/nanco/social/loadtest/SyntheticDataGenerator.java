@@ -0,0 +1,333 @@
+package com.nanco.social.loadtest;
+
+import com.nanco.social.BenchmarkData;
+import com.nanco.social.common.util.HtmlEscapeUtil;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * 產生大量測試資料並以批次 JDBC 寫入（rewriteBatchedStatements 會合併為多列 INSERT）
+ * 資料分布接近實際情況：
+ * - 發文作者與留言者依冪次分布，少數帳號產生大部分內容
+ * - 每篇發文的留言數為 Pareto 分布，多數發文沒有或只有少量留言，少數熱門發文有上千則
+ * - 追蹤對象依冪次分布，少數帳號的追蹤者數超過動態分發門檻
+ * - 發文時間有日夜週期，並隨機穿插短時間的爆量
+ * 以固定亂數種子產生，相同參數每次產生相同資料；ID 接續資料表現有的最大值，可在測試資料之後追加
+ * 寫入期間關閉外鍵與唯一性檢查，反正規化欄位（comment_count、follower_count）直接寫入計算結果
+ */
+public final class SyntheticDataGenerator {
+
+    // 將冪次分布的排名打散到不同ID，避免熱門帳號集中在最前面
+    private static final long SCATTER = 1_000_003L;
+
+    private static final String[] COMMENTS = {
+            "好棒的分享，下次也想去看看！", "看起來好好吃，週末來試做", "加油！期待你的成果", "推推，謝謝分享這麼實用的資訊",
+            "照片拍得真好，是用手機拍的嗎？", "同意 👍", "哈哈哈笑死 🤣", "求地點！", "這個我也想知道", "太厲害了吧 🔥"
+    };
+
+    private static final long HOUR_MILLIS = 3_600_000L;
+    private static final long DAY_MILLIS = 24 * HOUR_MILLIS;
+
+    private final String jdbcUrl = LoadTest.setting("jdbc-url",
+            "jdbc:mysql://localhost:3306/social_db?useSSL=false&serverTimezone=UTC&rewriteBatchedStatements=true");
+    private final String dbUser = LoadTest.setting("db-user", "root");
+    private final String dbPassword = LoadTest.setting("db-password", "123456");
+    private final int users = LoadTest.intSetting("users", 100_000);
+    private final int posts = LoadTest.intSetting("posts", 2_000_000);
+    private final int days = LoadTest.intSetting("days", 90);
+    // Pareto 指數越小越集中；1.2 時約半數發文沒有留言，平均每篇約 3.6 則
+    private final double commentAlpha = LoadTest.doubleSetting("comment-alpha", 1.2);
+    private final int maxComments = LoadTest.intSetting("max-comments", 5000);
+    private final double followAlpha = LoadTest.doubleSetting("follow-alpha", 1.5);
+    private final int minFollows = LoadTest.intSetting("min-follows", 5);
+    private final int maxFollows = LoadTest.intSetting("max-follows", 2000);
+    private final String password = LoadTest.setting("password", "loadtest123");
+    private final long seed = LoadTest.longSetting("seed", 20240101L);
+    private final int batchSize = LoadTest.intSetting("batch-size", 2000);
+
+    private final long endMillis = System.currentTimeMillis();
+    private final long startMillis = endMillis - days * DAY_MILLIS;
+
+    private long userBase;
+    private long postBase;
+    private long commentBase;
+
+    public static void main(String[] args) throws Exception {
+        new SyntheticDataGenerator().run();
+    }
+
+    private void run() throws SQLException {
+        long started = System.nanoTime();
+        try (Connection connection = DriverManager.getConnection(jdbcUrl, dbUser, dbPassword)) {
+            connection.setAutoCommit(false);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET foreign_key_checks = 0");
+                statement.execute("SET unique_checks = 0");
+            }
+            userBase = maxId(connection, "SELECT COALESCE(MAX(user_id), 0) FROM user");
+            postBase = maxId(connection, "SELECT COALESCE(MAX(post_id), 0) FROM post");
+            commentBase = maxId(connection, "SELECT COALESCE(MAX(comment_id), 0) FROM comment");
+
+            System.out.printf("產生 %,d 位使用者、%,d 篇發文（%d 天），資料庫：%s%n", users, posts, days, jdbcUrl);
+            int[] followerCounts = countFollowers();
+            insertUsers(connection, followerCounts);
+            insertFollows(connection);
+            insertPostsAndComments(connection, postTimestamps());
+
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET unique_checks = 1");
+                statement.execute("SET foreign_key_checks = 1");
+            }
+        }
+        System.out.printf("完成，耗時 %d 秒；登入帳號：手機 08%08d 起，密碼 %s%n",
+                (System.nanoTime() - started) / 1_000_000_000L, 1, password);
+    }
+
+    private static long maxId(Connection connection, String sql) throws SQLException {
+        try (Statement statement = connection.createStatement(); ResultSet rs = statement.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    // 第一輪只計算每位使用者的追蹤者數，寫入使用者時一併寫入
+    private int[] countFollowers() {
+        int[] counts = new int[users];
+        for (int index = 0; index < users; index++) {
+            for (int followee : followees(index)) {
+                counts[followee]++;
+            }
+        }
+        return counts;
+    }
+
+    private void insertUsers(Connection connection, int[] followerCounts) throws SQLException {
+        // 所有產生的帳號使用同一組密碼，只雜湊一次，成本與預設的 security.password.bcrypt-strength 相同
+        String passwordHash = new BCryptPasswordEncoder(10).encode(password);
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO user (user_id, user_name, email, password, biography, phone_number, follower_count) "
+                        + "VALUES (?, ?, ?, ?, ?, ?, ?)")) {
+            Batch batch = new Batch("user", ps, connection);
+            for (int index = 0; index < users; index++) {
+                int number = index + 1;
+                ps.setLong(1, userBase + number);
+                ps.setString(2, "lt_" + number);
+                ps.setString(3, "lt_" + number + "@example.com");
+                ps.setString(4, passwordHash);
+                ps.setString(5, "壓力測試帳號 #" + number);
+                // 08 開頭避免與測試資料的 09 手機號碼重複
+                ps.setString(6, String.format("08%08d", number));
+                ps.setInt(7, followerCounts[index]);
+                batch.add();
+            }
+            batch.finish();
+        }
+    }
+
+    private void insertFollows(Connection connection) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(
+                "INSERT INTO follow (follower_id, followee_id, created_at) VALUES (?, ?, ?)")) {
+            Batch batch = new Batch("follow", ps, connection);
+            Random random = new Random(seed ^ 0x5DEECE66DL);
+            for (int index = 0; index < users; index++) {
+                for (int followee : followees(index)) {
+                    ps.setLong(1, userBase + index + 1);
+                    ps.setLong(2, userBase + followee + 1);
+                    ps.setTimestamp(3, new Timestamp(startMillis + (long) (random.nextDouble() * (endMillis - startMillis))));
+                    batch.add();
+                }
+            }
+            batch.finish();
+        }
+    }
+
+    // 依使用者編號決定追蹤對象，兩輪計算結果相同；依ID排序以符合主鍵順序寫入
+    private int[] followees(int index) {
+        Random random = new Random(seed * 31 + index);
+        int target = Math.min(users - 1, pareto(random, followAlpha, minFollows, maxFollows));
+        Set<Integer> chosen = new LinkedHashSet<>();
+        for (int attempt = 0; chosen.size() < target && attempt < target * 3; attempt++) {
+            int followee = skewed(random, users);
+            if (followee != index) {
+                chosen.add(followee);
+            }
+        }
+        int[] result = chosen.stream().mapToInt(Integer::intValue).toArray();
+        Arrays.sort(result);
+        return result;
+    }
+
+    private void insertPostsAndComments(Connection connection, long[] timestamps) throws SQLException {
+        try (PreparedStatement postPs = connection.prepareStatement(
+                "INSERT INTO post (post_id, user_id, content, created_at, comment_count) VALUES (?, ?, ?, ?, ?)");
+             PreparedStatement commentPs = connection.prepareStatement(
+                     "INSERT INTO comment (comment_id, user_id, post_id, content, created_at) VALUES (?, ?, ?, ?, ?)")) {
+            Batch postBatch = new Batch("post", postPs, null);
+            Batch commentBatch = new Batch("comment", commentPs, null);
+            Random random = new Random(seed + 7);
+            long commentId = commentBase;
+            for (int i = 0; i < posts; i++) {
+                long postId = postBase + i + 1;
+                long createdAt = timestamps[i];
+                int commentCount = pareto(random, commentAlpha, 1, maxComments + 1) - 1;
+
+                postPs.setLong(1, postId);
+                postPs.setLong(2, userBase + skewed(random, users) + 1);
+                postPs.setString(3, postContent(random, postId));
+                postPs.setTimestamp(4, new Timestamp(createdAt));
+                postPs.setInt(5, commentCount);
+                postBatch.add();
+
+                // 留言多在發文後數小時內出現，依時間排序後配發ID
+                long[] commentTimes = new long[commentCount];
+                for (int c = 0; c < commentCount; c++) {
+                    long delay = (long) (-Math.log(1 - random.nextDouble()) * 2 * HOUR_MILLIS);
+                    commentTimes[c] = Math.min(endMillis, createdAt + delay);
+                }
+                Arrays.sort(commentTimes);
+                for (long commentTime : commentTimes) {
+                    commentPs.setLong(1, ++commentId);
+                    commentPs.setLong(2, userBase + skewed(random, users) + 1);
+                    commentPs.setLong(3, postId);
+                    commentPs.setString(4, COMMENTS[random.nextInt(COMMENTS.length)]);
+                    commentPs.setTimestamp(5, new Timestamp(commentTime));
+                    commentBatch.add();
+                }
+
+                // 留言參照發文，發文需先寫入；兩者累積到批次大小時一併送出並提交
+                if (postBatch.pending() + commentBatch.pending() >= batchSize) {
+                    postBatch.flush();
+                    commentBatch.flush();
+                    connection.commit();
+                }
+            }
+            postBatch.flush();
+            commentBatch.flush();
+            connection.commit();
+            postBatch.report();
+            commentBatch.report();
+        }
+    }
+
+    // 長度為對數常態分布（中位數約 120 字），內容混合中文、表情符號與 HTML，並與服務層相同先轉義再儲存
+    private static String postContent(Random random, long postId) {
+        int length = (int) Math.max(10, Math.min(4000, Math.exp(Math.log(120) + random.nextGaussian())));
+        String content = HtmlEscapeUtil.escape(BenchmarkData.postBody(length, true, postId));
+        return content.length() <= 5000 ? content : BenchmarkData.postBody(length, false, postId);
+    }
+
+    /**
+     * 發文時間：以拒絕取樣依強度函數取樣後排序，發文ID隨時間遞增
+     * 強度 = 日夜週期（台灣時間 21 點最高、5 點附近最低）x 爆量（隨機時段內為 10 倍）
+     */
+    private long[] postTimestamps() {
+        Random random = new Random(seed + 3);
+        int spanMinutes = (int) ((endMillis - startMillis) / 60_000L) + 1;
+        boolean[] burstMinutes = new boolean[spanMinutes];
+        for (int burst = 0; burst < days * 2; burst++) {
+            int start = random.nextInt(spanMinutes);
+            int duration = (int) (-Math.log(1 - random.nextDouble()) * 30) + 1;
+            Arrays.fill(burstMinutes, start, Math.min(spanMinutes, start + duration), true);
+        }
+
+        double maxIntensity = 1.8 * 10;
+        long[] timestamps = new long[posts];
+        for (int i = 0; i < posts; i++) {
+            long t;
+            double intensity;
+            do {
+                t = startMillis + (long) (random.nextDouble() * (endMillis - startMillis));
+                double hour = ((t / (double) HOUR_MILLIS) + 8) % 24;
+                intensity = (1 + 0.8 * Math.cos(2 * Math.PI * (hour - 21) / 24))
+                        * (burstMinutes[(int) ((t - startMillis) / 60_000L)] ? 10 : 1);
+            } while (random.nextDouble() * maxIntensity > intensity);
+            timestamps[i] = t;
+        }
+        Arrays.sort(timestamps);
+        return timestamps;
+    }
+
+    /**
+     * 冪次分布（P(rank) 約與 1/(rank + 10) 成正比）取樣，返回打散後的 0 ~ n-1
+     * 位移 10 讓最熱門的帳號約佔 1%，不致單一帳號佔去大部分內容
+     */
+    private static int skewed(Random random, int n) {
+        double head = 10;
+        long rank = Math.min(n - 1, (long) (head * Math.pow((n + head) / head, random.nextDouble()) - head));
+        return n % SCATTER == 0 ? (int) rank : (int) ((rank * SCATTER) % n);
+    }
+
+    /**
+     * Pareto 分布取樣，結果介於 min 與 max 之間
+     */
+    private static int pareto(Random random, double alpha, int min, int max) {
+        double value = min / Math.pow(1 - random.nextDouble(), 1 / alpha);
+        return (int) Math.min(max, Math.floor(value));
+    }
+
+    /**
+     * 累積批次並定期送出，connection 不為 null 時每次送出後提交
+     */
+    private final class Batch {
+        private final String table;
+        private final PreparedStatement statement;
+        private final Connection connection;
+        private int pending;
+        private long written;
+
+        private Batch(String table, PreparedStatement statement, Connection connection) {
+            this.table = table;
+            this.statement = statement;
+            this.connection = connection;
+        }
+
+        int pending() {
+            return pending;
+        }
+
+        void add() throws SQLException {
+            statement.addBatch();
+            pending++;
+            if (connection != null && pending >= batchSize) {
+                flush();
+                connection.commit();
+            }
+        }
+
+        void flush() throws SQLException {
+            if (pending == 0) {
+                return;
+            }
+            statement.executeBatch();
+            long before = written;
+            written += pending;
+            pending = 0;
+            if (before / 1_000_000 != written / 1_000_000) {
+                System.out.printf("  %s：%,d 筆%n", table, written);
+            }
+        }
+
+        void finish() throws SQLException {
+            flush();
+            if (connection != null) {
+                connection.commit();
+            }
+            report();
+        }
+
+        void report() {
+            System.out.printf("%s：共寫入 %,d 筆%n", table, written);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.nanco.social.model.dto;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nanco.social.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ApiResponse 包裝的發文分頁以 JSON 序列化的成本，涵蓋一般分頁到大型分頁（長文、多留言）
+ * 使用與應用程式相同設定的 ObjectMapper（日期輸出為毫秒）
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ApiResponseBenchmark {
+
+    @Param({"20", "200"})
+    public int posts;
+
+    @Param({"3", "20"})
+    public int commentsPerPost;
+
+    @Param({"280", "5000"})
+    public int bodyLength;
+
+    private ObjectWriter writer;
+    private ApiResponse<FeedPage> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        writer = Jackson2ObjectMapperBuilder.json().build().writerFor(ApiResponse.class);
+        page = ApiResponse.success(BenchmarkData.feedPage(posts, commentsPerPost, bodyLength));
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(page);
+    }
+}
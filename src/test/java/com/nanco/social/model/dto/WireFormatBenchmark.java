@@ -0,0 +1,81 @@
+package com.nanco.social.model.dto;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.nanco.social.BenchmarkData;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 發文分頁（ApiResponse&lt;FeedPage&gt;）各種輸出格式的序列化成本與傳輸大小
+ * 傳輸大小在每個格式的準備階段輸出（raw / gzip bytes），時間為序列化（及壓縮）一頁所需的時間
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+
+    @Param({"json", "smile", "cbor"})
+    public String format;
+
+    private ObjectWriter writer;
+    private ApiResponse<FeedPage> page;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        ObjectMapper mapper;
+        switch (format) {
+            case "smile":
+                mapper = Jackson2ObjectMapperBuilder.smile().build();
+                break;
+            case "cbor":
+                mapper = Jackson2ObjectMapperBuilder.cbor().build();
+                break;
+            default:
+                mapper = Jackson2ObjectMapperBuilder.json().build();
+        }
+        writer = mapper.writerFor(ApiResponse.class);
+        // 與 /api/post/feed 預設分頁相同：每頁 20 篇，每篇附最新 3 則留言
+        page = ApiResponse.success(BenchmarkData.feedPage(20, 3, 0));
+
+        byte[] raw = writer.writeValueAsBytes(page);
+        System.out.printf("%n[%s] raw=%d bytes, gzip=%d bytes%n", format, raw.length, gzip(raw).length);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public byte[] serializeAndGzip() throws IOException {
+        return gzip(writer.writeValueAsBytes(page));
+    }
+
+    private static byte[] gzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 2);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        }
+        return out.toByteArray();
+    }
+}
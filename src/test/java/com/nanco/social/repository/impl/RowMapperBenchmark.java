@@ -0,0 +1,122 @@
+package com.nanco.social.repository.impl;
+
+import com.nanco.social.BenchmarkData;
+import com.nanco.social.model.Comment;
+import com.nanco.social.model.Post;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import javax.sql.rowset.CachedRowSet;
+import javax.sql.rowset.RowSetMetaDataImpl;
+import javax.sql.rowset.RowSetProvider;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 存儲過程結果集轉換為發文、留言物件的成本（不含資料庫往返）
+ * 結果集以 JDK 內建的 CachedRowSet 保存在記憶體中，欄位與存儲過程返回的相同
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RowMapperBenchmark {
+
+    // 一頁發文與全站匯出時的批次大小
+    @Param({"20", "1000"})
+    public int rows;
+
+    @Param({"280", "5000"})
+    public int bodyLength;
+
+    private final PostRepositoryImpl.PostRowMapper postRowMapper = new PostRepositoryImpl.PostRowMapper();
+    private final CommentRepositoryImpl.CommentRowMapper commentRowMapper = new CommentRepositoryImpl.CommentRowMapper();
+
+    private CachedRowSet postRows;
+    private CachedRowSet commentRows;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        long now = System.currentTimeMillis();
+
+        postRows = rowSet("post_id", Types.BIGINT, "user_id", Types.BIGINT, "content", Types.VARCHAR,
+                "created_at", Types.TIMESTAMP, "comment_count", Types.INTEGER, "user_name", Types.VARCHAR);
+        for (int i = 0; i < rows; i++) {
+            postRows.moveToInsertRow();
+            postRows.updateLong(1, rows - i);
+            postRows.updateLong(2, i % 10 + 1);
+            postRows.updateString(3, BenchmarkData.postBody(bodyLength, true, i));
+            postRows.updateTimestamp(4, new Timestamp(now - i * 60000L));
+            postRows.updateInt(5, i % 7);
+            postRows.updateString(6, "User_" + (i % 10 + 1));
+            postRows.insertRow();
+        }
+        postRows.moveToCurrentRow();
+
+        commentRows = rowSet("comment_id", Types.BIGINT, "user_id", Types.BIGINT, "post_id", Types.BIGINT,
+                "content", Types.VARCHAR, "created_at", Types.TIMESTAMP, "user_name", Types.VARCHAR);
+        for (int i = 0; i < rows; i++) {
+            commentRows.moveToInsertRow();
+            commentRows.updateLong(1, rows - i);
+            commentRows.updateLong(2, i % 10 + 1);
+            commentRows.updateLong(3, i / 3 + 1);
+            commentRows.updateString(4, BenchmarkData.postBody(60, true, i));
+            commentRows.updateTimestamp(5, new Timestamp(now - i * 1000L));
+            commentRows.updateString(6, "User_" + (i % 10 + 1));
+            commentRows.insertRow();
+        }
+        commentRows.moveToCurrentRow();
+    }
+
+    @Benchmark
+    public List<Post> mapPosts() throws SQLException {
+        List<Post> posts = new ArrayList<>(rows);
+        postRows.beforeFirst();
+        int rowNum = 0;
+        while (postRows.next()) {
+            posts.add(postRowMapper.mapRow(postRows, rowNum++));
+        }
+        return posts;
+    }
+
+    @Benchmark
+    public List<Comment> mapComments() throws SQLException {
+        List<Comment> comments = new ArrayList<>(rows);
+        commentRows.beforeFirst();
+        int rowNum = 0;
+        while (commentRows.next()) {
+            comments.add(commentRowMapper.mapRow(commentRows, rowNum++));
+        }
+        return comments;
+    }
+
+    // 參數依序為欄位名稱與 java.sql.Types 類型
+    private static CachedRowSet rowSet(Object... columns) throws SQLException {
+        RowSetMetaDataImpl metaData = new RowSetMetaDataImpl();
+        metaData.setColumnCount(columns.length / 2);
+        for (int i = 0; i < columns.length / 2; i++) {
+            metaData.setColumnName(i + 1, (String) columns[i * 2]);
+            metaData.setColumnLabel(i + 1, (String) columns[i * 2]);
+            metaData.setColumnType(i + 1, (Integer) columns[i * 2 + 1]);
+        }
+        CachedRowSet rowSet = RowSetProvider.newFactory().createCachedRowSet();
+        rowSet.setMetaData(metaData);
+        return rowSet;
+    }
+}
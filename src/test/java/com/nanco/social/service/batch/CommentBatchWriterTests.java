@@ -0,0 +1,173 @@
+package com.nanco.social.service.batch;
+
+import com.nanco.social.common.exception.ServiceBusyException;
+import com.nanco.social.model.Comment;
+import com.nanco.social.repository.CommentRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CommentBatchWriterTests {
+
+    private CommentBatchWriter writer;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void submittedCommentsAreCommittedInBatches() throws Exception {
+        List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+        CommentRepository repository = mock(CommentRepository.class);
+        when(repository.createComments(anyList())).thenAnswer(invocation -> {
+            batchSizes.add(invocation.<List<Comment>>getArgument(0).size());
+            return true;
+        });
+        writer = new CommentBatchWriter(repository, true, 100, 50, 1000, 100, 5000);
+        writer.start();
+
+        List<CompletableFuture<Boolean>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(writer.submit(comment(i)));
+        }
+        for (CompletableFuture<Boolean> future : futures) {
+            assertTrue(future.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(50, batchSizes.stream().mapToInt(Integer::intValue).sum());
+        assertTrue(batchSizes.size() < 50);
+    }
+
+    @Test
+    void futureCompletesOnlyAfterBatchCommits() throws Exception {
+        CountDownLatch commitStarted = new CountDownLatch(1);
+        CountDownLatch releaseCommit = new CountDownLatch(1);
+        CommentRepository repository = mock(CommentRepository.class);
+        when(repository.createComments(anyList())).thenAnswer(invocation -> {
+            commitStarted.countDown();
+            releaseCommit.await();
+            return true;
+        });
+        writer = new CommentBatchWriter(repository, true, 10, 1, 1, 10, 5000);
+        writer.start();
+
+        CompletableFuture<Boolean> first = writer.submit(comment(1));
+        assertTrue(commitStarted.await(5, TimeUnit.SECONDS));
+        assertFalse(first.isDone());
+
+        // 佇列容量為1，第二筆進入佇列後第三筆應被拒絕
+        CompletableFuture<Boolean> second = writer.submit(comment(2));
+        assertThrows(ServiceBusyException.class, () -> writer.submit(comment(3)));
+
+        releaseCommit.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(second.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void writeTimingOutInQueueIsCancelledAndNeverCommitted() throws Exception {
+        CountDownLatch commitStarted = new CountDownLatch(1);
+        CountDownLatch releaseCommit = new CountDownLatch(1);
+        List<Long> committedPostIds = new CopyOnWriteArrayList<>();
+        CommentRepository repository = mock(CommentRepository.class);
+        when(repository.createComments(anyList())).thenAnswer(invocation -> {
+            commitStarted.countDown();
+            releaseCommit.await();
+            for (Comment comment : invocation.<List<Comment>>getArgument(0)) {
+                committedPostIds.add(comment.getPostId());
+            }
+            return true;
+        });
+        writer = new CommentBatchWriter(repository, true, 1, 1, 10, 10, 50);
+        writer.start();
+
+        // 第一筆佔住寫入執行緒，第二筆逾時時仍在佇列中
+        CompletableFuture<Boolean> first = writer.submit(comment(1));
+        assertTrue(commitStarted.await(5, TimeUnit.SECONDS));
+        assertThrows(ServiceBusyException.class, () -> writer.write(comment(2)));
+
+        releaseCommit.countDown();
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(writer.submit(comment(3)).get(5, TimeUnit.SECONDS));
+        assertEquals(List.of(1L, 3L), committedPostIds);
+        verify(repository, times(2)).createComments(anyList());
+    }
+
+    @Test
+    void writeAlreadyCommittingWaitsForResultInsteadOfTimingOut() throws Exception {
+        AtomicBoolean committed = new AtomicBoolean();
+        CommentRepository repository = mock(CommentRepository.class);
+        when(repository.createComments(anyList())).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            committed.set(true);
+            return true;
+        });
+        writer = new CommentBatchWriter(repository, true, 1, 1, 10, 10, 50);
+        writer.start();
+
+        assertTrue(writer.write(comment(1)));
+        assertTrue(committed.get());
+    }
+
+    @Test
+    void invalidCommentFailsAloneWithoutRollingBackItsBatch() throws Exception {
+        List<Long> committedPostIds = new CopyOnWriteArrayList<>();
+        CountDownLatch queued = new CountDownLatch(1);
+        CommentRepository repository = mock(CommentRepository.class);
+        when(repository.createComments(anyList())).thenAnswer(invocation -> {
+            queued.await();
+            List<Comment> comments = invocation.getArgument(0);
+            // 發文不存在的留言違反外鍵，整批回滾
+            if (comments.stream().anyMatch(comment -> comment.getPostId() == 0L)) {
+                throw new DataIntegrityViolationException("fk_comment_post");
+            }
+            comments.forEach(comment -> committedPostIds.add(comment.getPostId()));
+            return true;
+        });
+        writer = new CommentBatchWriter(repository, true, 10, 50, 100, 100, 5000);
+        writer.start();
+
+        CompletableFuture<Boolean> first = writer.submit(comment(1));
+        CompletableFuture<Boolean> invalid = writer.submit(comment(0));
+        CompletableFuture<Boolean> last = writer.submit(comment(2));
+        queued.countDown();
+
+        assertTrue(first.get(5, TimeUnit.SECONDS));
+        assertTrue(last.get(5, TimeUnit.SECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> invalid.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(DataIntegrityViolationException.class, failure.getCause());
+        assertEquals(List.of(1L, 2L), committedPostIds);
+        assertThrows(ServiceBusyException.class, () -> writer.write(comment(0)));
+    }
+
+    private static Comment comment(long postId) {
+        Comment comment = new Comment();
+        comment.setUserId(1L);
+        comment.setPostId(postId);
+        comment.setContent("comment " + postId);
+        return comment;
+    }
+}
@@ -0,0 +1,72 @@
+package com.nanco.social.service.cache;
+
+import com.nanco.social.common.datasource.ReplicaRouter;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ContentVersionsTests {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicBoolean readsPrimary = new AtomicBoolean();
+
+    @Test
+    void withoutReplicasEverythingIsCacheable() {
+        ContentVersions versions = new ContentVersions();
+
+        versions.bumpFeed();
+
+        assertTrue(versions.isSharedCacheable());
+        assertNotNull(versions.feedETag());
+    }
+
+    @Test
+    void stickyWriterBypassesSharedCacheAndETags() {
+        ContentVersions versions = new ContentVersions(router(), now::get);
+
+        readsPrimary.set(true);
+        assertFalse(versions.isSharedCacheable());
+        assertNull(versions.feedETag());
+        assertNull(versions.threadETag(1L));
+
+        readsPrimary.set(false);
+        assertTrue(versions.isSharedCacheable());
+        assertNotNull(versions.feedETag());
+    }
+
+    @Test
+    void replicaReadsAreNotTaggedUntilMaxLagHasPassedSinceLastBump() {
+        ContentVersions versions = new ContentVersions(router(), now::get);
+
+        versions.bumpThread(1L);
+        assertFalse(versions.isSharedCacheable());
+        assertNull(versions.threadETag(1L));
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2) - 1);
+        assertNull(versions.feedETag());
+
+        now.addAndGet(1);
+        assertTrue(versions.isSharedCacheable());
+        assertNotNull(versions.threadETag(1L));
+
+        versions.bumpFeed();
+        assertNull(versions.feedETag());
+    }
+
+    private ReplicaRouter router() {
+        ReplicaRouter router = mock(ReplicaRouter.class);
+        when(router.hasReplicas()).thenReturn(true);
+        when(router.getMaxLagNanos()).thenReturn(TimeUnit.SECONDS.toNanos(2));
+        when(router.readsPrimary()).thenAnswer(invocation -> readsPrimary.get());
+        return router;
+    }
+}
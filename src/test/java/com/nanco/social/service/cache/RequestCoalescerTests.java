@@ -0,0 +1,124 @@
+package com.nanco.social.service.cache;
+
+import com.nanco.social.common.datasource.ReplicaRouter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestCoalescerTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void concurrentIdenticalReadsShareOneQuery() throws Exception {
+        RequestCoalescer coalescer = coalescer(5000);
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        Object result = new Object();
+        CountDownLatch arrived = new CountDownLatch(8);
+
+        List<Future<Object>> callers = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            callers.add(executor.submit(() -> {
+                arrived.countDown();
+                return coalescer.execute("comments.list", () -> {
+                    queries.incrementAndGet();
+                    await(release);
+                    return result;
+                }, 1L, null, 20);
+            }));
+        }
+        // 讓其餘呼叫都加入執行中的查詢後才完成查詢
+        assertTrue(arrived.await(5, TimeUnit.SECONDS));
+        Thread.sleep(200);
+        release.countDown();
+
+        for (Future<Object> caller : callers) {
+            assertSame(result, caller.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, queries.get());
+        assertEquals(0, coalescer.getInFlightCount());
+        assertEquals(7.0, registry.get("coalescing.calls").tag("result", "collapsed").counter().count());
+    }
+
+    @Test
+    void slowQueryLetsWaiterQueryOnItsOwn() throws Exception {
+        RequestCoalescer coalescer = coalescer(50);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Future<String> leader = executor.submit(() -> coalescer.execute("posts.all", () -> {
+            started.countDown();
+            await(release);
+            return "leader";
+        }, 3L));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        assertEquals("own", coalescer.execute("posts.all", () -> "own", 3L));
+        assertEquals(1.0, registry.get("coalescing.calls").tag("result", "timeout").counter().count());
+
+        release.countDown();
+        assertEquals("leader", leader.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void failureReachesWaitersAndIsNotRetained() throws Exception {
+        RequestCoalescer coalescer = coalescer(5000);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+
+        Future<Object> leader = executor.submit(() -> coalescer.execute("posts.feed", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("db down");
+        }, "feed:20"));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        Future<Object> waiter = executor.submit(() -> coalescer.execute("posts.feed", () -> {
+            throw new AssertionError("waiter should not query");
+        }, "feed:20"));
+        Thread.sleep(200);
+        release.countDown();
+
+        Exception leaderError = assertThrows(Exception.class, () -> leader.get(5, TimeUnit.SECONDS));
+        assertTrue(leaderError.getCause() instanceof IllegalStateException);
+        Exception waiterError = assertThrows(Exception.class, () -> waiter.get(5, TimeUnit.SECONDS));
+        assertTrue(waiterError.getCause() instanceof IllegalStateException);
+
+        // 失敗的查詢已移除，之後的請求重新查詢
+        assertEquals(0, coalescer.getInFlightCount());
+        assertEquals("again", coalescer.execute("posts.feed", () -> "again", "feed:20"));
+    }
+
+    private RequestCoalescer coalescer(long maxWaitMillis) {
+        ReplicaRouter router = new ReplicaRouter(null, List.of(), ReplicaRouter.Strategy.ROUND_ROBIN, 2, 5000, registry);
+        return new RequestCoalescer(registry, router, maxWaitMillis);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.nanco.social.service.impl;
+
+import com.nanco.social.common.datasource.ReplicaRouter;
+import com.nanco.social.common.exception.BusinessException;
+import com.nanco.social.common.exception.ServiceBusyException;
+import com.nanco.social.common.util.KeysetCursor;
+import com.nanco.social.model.Comment;
+import com.nanco.social.model.dto.CommentPage;
+import com.nanco.social.model.dto.FeedEvent;
+import com.nanco.social.repository.CommentRepository;
+import com.nanco.social.service.batch.CommentBatchWriter;
+import com.nanco.social.service.cache.ContentVersions;
+import com.nanco.social.service.cache.FeedCache;
+import com.nanco.social.service.cache.RequestCoalescer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CommentServiceImplTests {
+
+    private static final long POST_ID = 10L;
+    private static final long OWNER = 1L;
+    private static final long OTHER_USER = 2L;
+
+    private final List<Object> publishedEvents = new ArrayList<>();
+    private final ContentVersions contentVersions = new ContentVersions();
+
+    private CommentRepository commentRepository;
+    private CommentBatchWriter batchWriter;
+    private CommentServiceImpl commentService;
+
+    @BeforeEach
+    void setUp() {
+        commentRepository = mock(CommentRepository.class);
+        commentService = commentService(new CommentBatchWriter(commentRepository, false, 100, 5, 10, 100, 5000));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (batchWriter != null) {
+            batchWriter.stop();
+        }
+    }
+
+    @Test
+    void getPostCommentsPagesWithKeysetCursor() {
+        when(commentRepository.getPostComments(POST_ID, null, null, 3))
+                .thenReturn(List.of(comment(1L), comment(2L), comment(3L)));
+
+        CommentPage first = commentService.getPostComments(POST_ID, null, 2);
+
+        assertEquals(2, first.getComments().size());
+        KeysetCursor cursor = KeysetCursor.decode(first.getNextCursor());
+        assertEquals(2L, cursor.getId());
+        assertEquals(new Timestamp(2000), cursor.getCreatedAt());
+
+        // 下一頁由上一頁最後一筆之後開始，最後一頁沒有游標
+        when(commentRepository.getPostComments(POST_ID, new Timestamp(2000), 2L, 3))
+                .thenReturn(List.of(comment(3L)));
+        CommentPage second = commentService.getPostComments(POST_ID, first.getNextCursor(), 2);
+
+        assertEquals(1, second.getComments().size());
+        assertEquals(3L, second.getComments().get(0).getCommentId());
+        assertNull(second.getNextCursor());
+    }
+
+    @Test
+    void getPostCommentsClampsLimitAndRejectsInvalidInput() {
+        when(commentRepository.getPostComments(eq(POST_ID), any(), any(), anyInt())).thenReturn(List.of());
+
+        commentService.getPostComments(POST_ID, null, 1000);
+
+        verify(commentRepository).getPostComments(POST_ID, null, null, 101);
+        assertThrows(BusinessException.class, () -> commentService.getPostComments(null, null, 20));
+        assertThrows(BusinessException.class, () -> commentService.getPostComments(POST_ID, null, 0));
+        assertThrows(BusinessException.class, () -> commentService.getPostComments(POST_ID, "bad cursor", 20));
+    }
+
+    @Test
+    void deleteCommentBumpsVersionsAndPublishesEvent() {
+        when(commentRepository.deleteComment(5L, OWNER)).thenReturn(POST_ID);
+        long threadVersion = contentVersions.getThreadVersion(POST_ID);
+
+        assertTrue(commentService.deleteComment(5L, OWNER));
+
+        assertEquals(1, contentVersions.getFeedVersion());
+        assertEquals(threadVersion + 1, contentVersions.getThreadVersion(POST_ID));
+        FeedEvent event = (FeedEvent) publishedEvents.get(0);
+        assertEquals(FeedEvent.COMMENT_DELETED, event.getType());
+        assertEquals(POST_ID, event.getPostId());
+        assertEquals(5L, event.getCommentId());
+    }
+
+    @Test
+    void deletingOthersOrMissingCommentChangesNothing() {
+        // 存儲過程只刪除留言者本人的留言，其他使用者或不存在的留言返回null
+        when(commentRepository.deleteComment(5L, OTHER_USER)).thenReturn(null);
+
+        assertFalse(commentService.deleteComment(5L, OTHER_USER));
+
+        assertEquals(0, contentVersions.getFeedVersion());
+        assertTrue(publishedEvents.isEmpty());
+    }
+
+    @Test
+    void deleteCommentRejectsMissingIds() {
+        assertThrows(BusinessException.class, () -> commentService.deleteComment(null, OWNER));
+        assertThrows(BusinessException.class, () -> commentService.deleteComment(5L, null));
+        verifyNoInteractions(commentRepository);
+    }
+
+    @Test
+    void failedCreateDoesNotPublishOrBumpVersions() {
+        when(commentRepository.createComment(any())).thenReturn(false);
+
+        assertFalse(commentService.createComment(newComment("<b>hi</b>"), OWNER));
+
+        assertEquals(0, contentVersions.getFeedVersion());
+        assertTrue(publishedEvents.isEmpty());
+        assertThrows(BusinessException.class, () -> commentService.createComment(newComment(""), OWNER));
+        assertThrows(BusinessException.class, () -> commentService.createComment(newComment("hi"), null));
+    }
+
+    @Test
+    void busyBatchWriterPropagatesWithoutPublishing() {
+        // 未啟動的批次寫入不接受留言，視同佇列已滿
+        batchWriter = new CommentBatchWriter(commentRepository, true, 100, 5, 10, 1, 5000);
+        commentService = commentService(batchWriter);
+
+        assertThrows(ServiceBusyException.class, () -> commentService.createComment(newComment("hi"), OWNER));
+
+        verify(commentRepository, never()).createComments(any());
+        verify(commentRepository, never()).deleteComment(anyLong(), anyLong());
+        assertTrue(publishedEvents.isEmpty());
+    }
+
+    private CommentServiceImpl commentService(CommentBatchWriter writer) {
+        ReplicaRouter replicaRouter = new ReplicaRouter(null, List.of(), ReplicaRouter.Strategy.ROUND_ROBIN, 2, 5000,
+                new SimpleMeterRegistry());
+        return new CommentServiceImpl(commentRepository, new FeedCache(10, 60000), contentVersions,
+                new RequestCoalescer(new SimpleMeterRegistry(), replicaRouter, 1000), writer, publishedEvents::add);
+    }
+
+    private static Comment newComment(String content) {
+        Comment comment = new Comment();
+        comment.setPostId(POST_ID);
+        comment.setContent(content);
+        return comment;
+    }
+
+    private static Comment comment(long commentId) {
+        Comment comment = newComment("comment " + commentId);
+        comment.setCommentId(commentId);
+        comment.setUserId(OWNER);
+        comment.setCreatedAt(new Timestamp(commentId * 1000));
+        return comment;
+    }
+}
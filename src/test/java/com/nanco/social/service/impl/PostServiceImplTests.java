@@ -0,0 +1,333 @@
+package com.nanco.social.service.impl;
+
+import com.nanco.social.common.datasource.ReplicaRouter;
+import com.nanco.social.common.exception.BusinessException;
+import com.nanco.social.common.metrics.ProcedureMetrics;
+import com.nanco.social.common.resilience.CircuitBreakers;
+import com.nanco.social.common.resilience.StaleWhileRevalidate;
+import com.nanco.social.common.util.StaleResponses;
+import com.nanco.social.common.util.KeysetCursor;
+import com.nanco.social.model.Post;
+import com.nanco.social.model.dto.FeedEvent;
+import com.nanco.social.model.dto.FeedPage;
+import com.nanco.social.repository.impl.CommentRepositoryImpl;
+import com.nanco.social.repository.impl.FollowRepositoryImpl;
+import com.nanco.social.repository.impl.PostRepositoryImpl;
+import com.nanco.social.service.cache.ContentVersions;
+import com.nanco.social.service.cache.FeedCache;
+import com.nanco.social.service.cache.RequestCoalescer;
+import com.nanco.social.service.cache.SerializedFeedPage;
+import com.nanco.social.service.timeline.TimelineService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PostServiceImplTests {
+
+    private final AtomicInteger statementCount = new AtomicInteger();
+
+    private final List<Map<String, Object>> postRows = new ArrayList<>();
+
+    private final List<Map<String, Object>> commentRows = new ArrayList<>();
+
+    private final List<Object> publishedEvents = new ArrayList<>();
+
+    private volatile boolean databaseDown;
+
+    private FeedCache feedCache;
+
+    private final ContentVersions contentVersions = new ContentVersions();
+
+    private PostServiceImpl postService;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(countingDataSource());
+        ProcedureMetrics procedureMetrics = new ProcedureMetrics(new SimpleMeterRegistry());
+        feedCache = new FeedCache(10, 60000);
+        ReplicaRouter replicaRouter = new ReplicaRouter(null, List.of(), ReplicaRouter.Strategy.ROUND_ROBIN, 2, 5000,
+                new SimpleMeterRegistry());
+        StaleWhileRevalidate staleWhileRevalidate = new StaleWhileRevalidate(500, 600000, 100, 1, 10, replicaRouter,
+                CircuitBreakers.disabled(), new SimpleMeterRegistry());
+        PostRepositoryImpl postRepository = new PostRepositoryImpl(jdbcTemplate, jdbcTemplate, procedureMetrics,
+                staleWhileRevalidate);
+        postService = new PostServiceImpl(
+                postRepository,
+                new CommentRepositoryImpl(jdbcTemplate, jdbcTemplate, procedureMetrics, new TransactionTemplate(),
+                        staleWhileRevalidate),
+                feedCache,
+                contentVersions,
+                new RequestCoalescer(new SimpleMeterRegistry(), replicaRouter, 1000),
+                new TimelineService(new FollowRepositoryImpl(jdbcTemplate, jdbcTemplate, procedureMetrics), postRepository, 200, 100, 5000, 100),
+                publishedEvents::add,
+                3
+        );
+    }
+
+    @Test
+    void getAllPostsLoadsCommentsInSingleStatement() {
+        for (long postId = 1; postId <= 500; postId++) {
+            postRows.add(postRow(postId));
+        }
+        commentRows.add(commentRow(1L, 1L));
+        commentRows.add(commentRow(2L, 1L));
+        commentRows.add(commentRow(3L, 42L));
+
+        List<Post> posts = postService.getAllPosts();
+
+        // 一次查詢發文 + 一次批次查詢留言
+        assertEquals(2, statementCount.get());
+        assertEquals(500, posts.size());
+        assertEquals(2, posts.get(0).getComments().size());
+        assertEquals(1, posts.get(41).getComments().size());
+        assertEquals(0, posts.get(2).getComments().size());
+    }
+
+    @Test
+    void getAllPostsSkipsCommentQueryWhenNoPosts() {
+        List<Post> posts = postService.getAllPosts();
+
+        assertEquals(1, statementCount.get());
+        assertEquals(0, posts.size());
+    }
+
+    @Test
+    void getAllPostsServesRepeatedReadsFromCache() {
+        postRows.add(postRow(1L));
+
+        postService.getAllPosts();
+        postService.getAllPosts();
+
+        assertEquals(2, statementCount.get());
+        assertEquals(1, feedCache.getHitCount());
+    }
+
+    @Test
+    void cachedPostsCannotBeModifiedByCallers() {
+        postRows.add(postRow(1L));
+
+        List<Post> posts = postService.getAllPosts();
+
+        assertThrows(UnsupportedOperationException.class, () -> posts.add(new Post()));
+        assertThrows(UnsupportedOperationException.class, () -> posts.get(0).getComments().add(null));
+        assertSame(posts, postService.getAllPosts());
+    }
+
+    @Test
+    void getAllPostsServesLastAssembledPostsWhileDatabaseIsDown() {
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(new MockHttpServletRequest("GET", "/api/post/list")));
+        try {
+            postRows.add(postRow(1L));
+            commentRows.add(commentRow(1L, 1L));
+            List<Post> lastGood = postService.getAllPosts();
+
+            feedCache.invalidateFirstPages();
+            databaseDown = true;
+            List<Post> stale = postService.getAllPosts();
+
+            // 不以空白的留言預覽覆蓋上次的結果，也不放入快取
+            assertSame(lastGood, stale);
+            assertEquals(1, stale.get(0).getComments().size());
+            assertTrue(StaleResponses.currentAgeMillis() != null);
+            assertNull(feedCache.get("all"));
+        } finally {
+            RequestContextHolder.resetRequestAttributes();
+        }
+    }
+
+    @Test
+    void editPostInvalidatesCachedPagesContainingPost() {
+        postRows.add(postRow(1L));
+        postService.getFeed(null, 20);
+
+        Post edited = new Post();
+        edited.setPostId(1L);
+        edited.setContent("edited");
+        postService.editPost(edited, 1L);
+        int statementsBeforeReload = statementCount.get();
+        postService.getFeed(null, 20);
+
+        assertEquals(statementsBeforeReload + 2, statementCount.get());
+        assertEquals(1, contentVersions.getFeedVersion());
+        FeedEvent event = (FeedEvent) publishedEvents.get(0);
+        assertEquals(FeedEvent.POST_UPDATED, event.getType());
+        assertEquals("edited", event.getContent());
+    }
+
+    @Test
+    void getFeedClampsLimitAndReturnsCursorToNextPage() {
+        for (long postId = 150; postId >= 1; postId--) {
+            postRows.add(postRow(postId));
+        }
+
+        FeedPage page = postService.getFeed(null, 500);
+
+        assertEquals(100, page.getPosts().size());
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(51L, cursor.getId());
+        assertEquals(new Timestamp(51000), cursor.getCreatedAt());
+    }
+
+    @Test
+    void getFeedLastPageHasNoNextCursor() {
+        postRows.add(postRow(2L));
+        postRows.add(postRow(1L));
+
+        FeedPage page = postService.getFeed(new KeysetCursor(new Timestamp(3000), 3L).encode(), 20);
+
+        assertEquals(2, page.getPosts().size());
+        assertNull(page.getNextCursor());
+    }
+
+    @Test
+    void getFeedRejectsInvalidCursorAndLimit() {
+        assertThrows(BusinessException.class, () -> postService.getFeed("not a cursor", 20));
+        assertThrows(BusinessException.class, () -> postService.getFeed(null, 0));
+        assertEquals(0, statementCount.get());
+    }
+
+    @Test
+    void getUserPostsPagesWithoutLoadingComments() {
+        postRows.add(postRow(3L));
+        postRows.add(postRow(2L));
+        postRows.add(postRow(1L));
+
+        FeedPage page = postService.getUserPosts(1L, null, 2);
+
+        assertEquals(1, statementCount.get());
+        assertEquals(2, page.getPosts().size());
+        assertNull(page.getPosts().get(0).getComments());
+        KeysetCursor cursor = KeysetCursor.decode(page.getNextCursor());
+        assertEquals(2L, cursor.getId());
+        assertEquals(new Timestamp(2000), cursor.getCreatedAt());
+    }
+
+    @Test
+    void createPostPublishesCreatedRowAsEvent() {
+        // sp_create_post 返回新建立的發文
+        postRows.add(postRow(7L));
+
+        Post post = new Post();
+        post.setContent("<b>hello</b>");
+        assertTrue(postService.createPost(post, 1L));
+
+        assertEquals(1, publishedEvents.size());
+        FeedEvent event = (FeedEvent) publishedEvents.get(0);
+        assertEquals(FeedEvent.POST_CREATED, event.getType());
+        assertEquals(7L, event.getPostId());
+        assertSame(post, event.getPost());
+        assertEquals("Alice_Chen", post.getUserName());
+        assertEquals(new Timestamp(7000), post.getCreatedAt());
+    }
+
+    @Test
+    void getFeedJsonSerializesCachedPageOnce() {
+        postRows.add(postRow(1L));
+        commentRows.add(commentRow(1L, 1L));
+
+        SerializedFeedPage first = postService.getFeedJson(null, 20);
+        SerializedFeedPage second = postService.getFeedJson(null, 20);
+
+        assertSame(first.getPostsJson(), second.getPostsJson());
+        String json = new String(first.getPostsJson(), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("[{\"postId\":1,"));
+        assertTrue(json.contains("\"comments\":[{\"commentId\":1,"));
+    }
+
+    private DataSource countingDataSource() throws Exception {
+        Statement statement = mock(Statement.class);
+        when(statement.executeQuery(anyString())).thenAnswer(invocation -> {
+            statementCount.incrementAndGet();
+            if (databaseDown) {
+                throw new SQLException("Communications link failure");
+            }
+            return resultSet(rowsFor(invocation.getArgument(0)));
+        });
+
+        Connection connection = mock(Connection.class);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement(anyString())).thenAnswer(invocation -> {
+            String sql = invocation.getArgument(0);
+            PreparedStatement preparedStatement = mock(PreparedStatement.class);
+            when(preparedStatement.getParameterMetaData()).thenReturn(mock(ParameterMetaData.class));
+            when(preparedStatement.executeQuery()).thenAnswer(execution -> {
+                statementCount.incrementAndGet();
+                if (databaseDown) {
+                    throw new SQLException("Communications link failure");
+                }
+                return resultSet(rowsFor(sql));
+            });
+            return preparedStatement;
+        });
+
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+
+    private List<Map<String, Object>> rowsFor(String sql) {
+        return sql.contains("comment") ? commentRows : postRows;
+    }
+
+    private static ResultSet resultSet(List<Map<String, Object>> rows) throws Exception {
+        AtomicInteger cursor = new AtomicInteger(-1);
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.next()).thenAnswer(invocation -> cursor.incrementAndGet() < rows.size());
+        when(rs.getLong(anyString())).thenAnswer(invocation ->
+                ((Number) rows.get(cursor.get()).get(invocation.<String>getArgument(0))).longValue());
+        when(rs.getString(anyString())).thenAnswer(invocation ->
+                (String) rows.get(cursor.get()).get(invocation.<String>getArgument(0)));
+        when(rs.getTimestamp(anyString())).thenAnswer(invocation ->
+                (Timestamp) rows.get(cursor.get()).get(invocation.<String>getArgument(0)));
+        return rs;
+    }
+
+    private static Map<String, Object> postRow(long postId) {
+        return Map.of(
+                "post_id", postId,
+                "user_id", 1L,
+                "content", "post " + postId,
+                "created_at", new Timestamp(postId * 1000),
+                "user_name", "Alice_Chen"
+        );
+    }
+
+    private static Map<String, Object> commentRow(long commentId, long postId) {
+        return Map.of(
+                "comment_id", commentId,
+                "user_id", 2L,
+                "post_id", postId,
+                "content", "comment " + commentId,
+                "created_at", new Timestamp(commentId * 1000),
+                "user_name", "Bob_Wang"
+        );
+    }
+}
@@ -0,0 +1,93 @@
+package com.nanco.social.service.impl;
+
+import com.nanco.social.common.async.Bulkheads;
+import com.nanco.social.common.security.PasswordHasher;
+import com.nanco.social.model.User;
+import com.nanco.social.model.dto.LoginRequest;
+import com.nanco.social.model.dto.UserRegisterRequest;
+import com.nanco.social.repository.FollowRepository;
+import com.nanco.social.repository.UserRepository;
+import com.nanco.social.service.timeline.TimelineService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class UserServiceImplTests {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    private UserRepository userRepository;
+    private PasswordHasher passwordHasher;
+    private Bulkheads bulkheads;
+    private UserServiceImpl userService;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        passwordHasher = new PasswordHasher(4, 1, 10, registry);
+        bulkheads = new Bulkheads(1, 10, 3000, 1, 10, 3000, 1, 10, 5000, 1, 10, 5000, registry);
+        userService = new UserServiceImpl(userRepository, mock(FollowRepository.class), mock(TimelineService.class),
+                passwordHasher, bulkheads);
+    }
+
+    @AfterEach
+    void tearDown() {
+        passwordHasher.close();
+        bulkheads.close();
+    }
+
+    @Test
+    void registerWritesUserOffThePasswordHashPool() throws Exception {
+        CompletableFuture<String> writerThread = new CompletableFuture<>();
+        when(userRepository.createUser(any(User.class))).thenAnswer(invocation -> {
+            writerThread.complete(Thread.currentThread().getName());
+            User created = invocation.getArgument(0);
+            created.setUserId(1L);
+            return created;
+        });
+        UserRegisterRequest request = new UserRegisterRequest();
+        request.setUserName("nanco");
+        request.setPassword("secret");
+        request.setPhoneNumber("0912345678");
+
+        User created = userService.register(request).get(5, TimeUnit.SECONDS);
+
+        assertEquals(1L, created.getUserId());
+        assertTrue(created.getPassword().startsWith("$2"));
+        assertTrue(writerThread.get().startsWith("bulkhead-auth-"));
+    }
+
+    @Test
+    void rehashWritesPasswordOffThePasswordHashPool() throws Exception {
+        User stored = new User();
+        stored.setUserId(2L);
+        // DB/dml.sql 中 SHA2(CONCAT('password123', 'salt123'), 256) 的結果
+        stored.setPassword("bb4609fd7ede19a1a39bb73b2b84e41284e7df890458f63358323e81718a0954");
+        when(userRepository.getCredentials("0912345678")).thenReturn(stored);
+        CompletableFuture<String> writerThread = new CompletableFuture<>();
+        when(userRepository.updatePassword(eq(2L), anyString())).thenAnswer(invocation -> {
+            writerThread.complete(Thread.currentThread().getName());
+            return true;
+        });
+        LoginRequest request = new LoginRequest();
+        request.setPhoneNumber("0912345678");
+        request.setPassword("password123");
+
+        assertNotNull(userService.login(request).get(5, TimeUnit.SECONDS));
+
+        assertTrue(writerThread.get(5, TimeUnit.SECONDS).startsWith("bulkhead-write-"));
+    }
+}
@@ -0,0 +1,48 @@
+package com.nanco.social.service.timeline;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LongRingBufferTests {
+
+    @Test
+    void dropsOldestWhenFull() {
+        LongRingBuffer buffer = new LongRingBuffer(3);
+        for (long id = 1; id <= 5; id++) {
+            buffer.add(id);
+        }
+
+        assertEquals(3, buffer.size());
+        assertArrayEquals(new long[]{5, 4, 3}, buffer.newestBefore(null, 10));
+    }
+
+    @Test
+    void keepsOrderForOutOfOrderAndDuplicateIds() {
+        LongRingBuffer buffer = new LongRingBuffer(4);
+        buffer.add(10);
+        buffer.add(30);
+        buffer.add(20);
+        buffer.add(30);
+        buffer.add(40);
+        // 已滿時插入中間值會捨棄最舊的ID
+        buffer.add(25);
+        // 比所有ID都舊且已無空間時忽略
+        buffer.add(5);
+
+        assertArrayEquals(new long[]{40, 30, 25, 20}, buffer.newestBefore(null, 10));
+    }
+
+    @Test
+    void newestBeforeReturnsPageBelowCursor() {
+        LongRingBuffer buffer = new LongRingBuffer(10);
+        for (long id = 1; id <= 10; id++) {
+            buffer.add(id * 10);
+        }
+
+        assertArrayEquals(new long[]{60, 50}, buffer.newestBefore(70L, 2));
+        assertArrayEquals(new long[]{60, 50, 40, 30, 20, 10}, buffer.newestBefore(65L, 10));
+        assertArrayEquals(new long[0], buffer.newestBefore(10L, 5));
+    }
+}
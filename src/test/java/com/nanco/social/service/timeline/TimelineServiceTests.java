@@ -0,0 +1,119 @@
+package com.nanco.social.service.timeline;
+
+import com.nanco.social.repository.FollowRepository;
+import com.nanco.social.repository.PostRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TimelineServiceTests {
+
+    private static final long READER = 1L;
+    private static final long FRIEND = 2L;
+    private static final long CELEBRITY = 3L;
+
+    private FollowRepository followRepository;
+    private PostRepository postRepository;
+    private TimelineService timelineService;
+
+    @BeforeEach
+    void setUp() {
+        followRepository = mock(FollowRepository.class);
+        postRepository = mock(PostRepository.class);
+        timelineService = new TimelineService(followRepository, postRepository, 100, 10, 2, Runnable::run);
+
+        when(followRepository.getFollowees(READER)).thenReturn(Map.of(FRIEND, 1, CELEBRITY, 3));
+        when(postRepository.getPostIdsByUsers(eq(List.of(READER, FRIEND)), eq(null), anyInt()))
+                .thenReturn(List.of(20L, 10L));
+    }
+
+    @Test
+    void fansOutToResidentFollowersAndPullsCelebritiesOnRead() {
+        timelineService.getHomePostIds(READER, null, 10);
+
+        // 一般帳號發文寫入追蹤者的動態
+        when(followRepository.getFollowerCount(FRIEND)).thenReturn(1);
+        when(followRepository.getFollowerIds(eq(FRIEND), anyInt())).thenReturn(List.of(READER));
+        timelineService.onPostCreated(FRIEND, 40L);
+        // 超過門檻的帳號發文不分發，也不載入追蹤者ID
+        when(followRepository.getFollowerCount(CELEBRITY)).thenReturn(3);
+        timelineService.onPostCreated(CELEBRITY, 50L);
+        verify(followRepository, never()).getFollowerIds(eq(CELEBRITY), anyInt());
+
+        when(postRepository.getPostIdsByUsers(eq(List.of(CELEBRITY)), eq(null), anyInt()))
+                .thenReturn(List.of(50L, 30L));
+        when(postRepository.getPostIdsByUsers(eq(List.of(CELEBRITY)), eq(40L), anyInt()))
+                .thenReturn(List.of(30L));
+
+        assertEquals(List.of(50L, 40L, 30L, 20L, 10L), timelineService.getHomePostIds(READER, null, 10));
+        assertEquals(List.of(30L, 20L), timelineService.getHomePostIds(READER, 40L, 2));
+        assertEquals(1, timelineService.getRebuildCount());
+    }
+
+    @Test
+    void skipsFollowerQueryWhenNoTimelineIsResident() {
+        timelineService.onPostCreated(FRIEND, 40L);
+
+        verify(followRepository, never()).getFollowerIds(any(), anyInt());
+    }
+
+    @Test
+    void fanOutRunsOffTheCallingThread() {
+        List<Runnable> queued = new ArrayList<>();
+        timelineService = new TimelineService(followRepository, postRepository, 100, 10, 2, queued::add);
+        when(followRepository.getFollowees(FRIEND)).thenReturn(Map.of());
+        when(postRepository.getPostIdsByUsers(eq(List.of(FRIEND)), eq(null), anyInt())).thenReturn(List.of());
+        timelineService.getHomePostIds(READER, null, 10);
+        timelineService.getHomePostIds(FRIEND, null, 10);
+        when(followRepository.getFollowerCount(FRIEND)).thenReturn(1);
+        when(followRepository.getFollowerIds(eq(FRIEND), anyInt())).thenReturn(List.of(READER));
+
+        timelineService.onPostCreated(FRIEND, 40L);
+
+        // 作者本人的動態立即更新，追蹤者的動態等背景工作執行後才更新
+        assertEquals(List.of(40L), timelineService.getHomePostIds(FRIEND, null, 10));
+        assertEquals(List.of(20L, 10L), timelineService.getHomePostIds(READER, null, 10));
+        assertEquals(1, queued.size());
+        verify(followRepository, never()).getFollowerCount(any());
+
+        queued.get(0).run();
+        assertEquals(List.of(40L, 20L, 10L), timelineService.getHomePostIds(READER, null, 10));
+    }
+
+    @Test
+    void skipsFollowerQueryWhenAuthorHasNoFollowers() {
+        timelineService.getHomePostIds(READER, null, 10);
+        when(followRepository.getFollowerCount(FRIEND)).thenReturn(0);
+
+        timelineService.onPostCreated(FRIEND, 40L);
+
+        verify(followRepository, never()).getFollowerIds(any(), anyInt());
+    }
+
+    @Test
+    void evictRebuildsTimelineOnNextRead() {
+        timelineService.getHomePostIds(READER, null, 10);
+        timelineService.evict(READER);
+        timelineService.getHomePostIds(READER, null, 10);
+
+        assertEquals(2, timelineService.getRebuildCount());
+    }
+
+    @Test
+    void mergeDescendingRemovesDuplicates() {
+        assertEquals(List.of(9L, 7L, 5L, 3L),
+                TimelineService.mergeDescending(new long[]{9, 7, 3}, new long[]{7, 5, 3, 1}, 4));
+    }
+}